@@ -0,0 +1,194 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package sync.pds.weights;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import java.util.AbstractCollection;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import sync.pds.solver.nodes.Node;
+import wpds.impl.Weight;
+import wpds.interfaces.Location;
+
+/**
+ * Variant of {@link SetDomain} that stores the node set as a bit set over ids handed out by a
+ * shared {@link NodeIndex}. Merging two weights is a word-wise OR of their bit sets, and the one
+ * and zero elements are singletons that are compared by identity.
+ */
+public class BitSetDomain<N, Stmt, Fact> extends Weight {
+
+  private static final BitSetDomain one = new BitSetDomain("<1>");
+  private static final BitSetDomain zero = new BitSetDomain("<0>");
+  private final String rep;
+  private final NodeIndex<Stmt, Fact> index;
+  private final BitSet nodes;
+  private int hashCode;
+
+  private BitSetDomain(String rep) {
+    this.rep = rep;
+    this.index = null;
+    this.nodes = null;
+  }
+
+  private BitSetDomain(NodeIndex<Stmt, Fact> index, BitSet nodes) {
+    this.rep = null;
+    this.index = index;
+    this.nodes = nodes;
+  }
+
+  public BitSetDomain(NodeIndex<Stmt, Fact> index, Node<Stmt, Fact> node) {
+    this.rep = null;
+    this.index = index;
+    this.nodes = new BitSet();
+    this.nodes.set(index.idOf(node));
+  }
+
+  @Override
+  public Weight extendWith(Weight other) {
+    if (other == one()) {
+      return this;
+    }
+    if (this == one()) {
+      return other;
+    }
+    return zero();
+  }
+
+  @Override
+  public Weight combineWith(Weight other) {
+    if (other == zero()) return this;
+    if (this == zero()) return other;
+    if (this == one() || other == one()) return one();
+    if (other instanceof BitSetDomain) {
+      BitSetDomain<N, Stmt, Fact> o = (BitSetDomain<N, Stmt, Fact>) other;
+      if (o.index != index) {
+        throw new IllegalArgumentException("Cannot combine weights of different node indices");
+      }
+      BitSet merged = (BitSet) nodes.clone();
+      merged.or(o.nodes);
+      return new BitSetDomain<N, Stmt, Fact>(index, merged);
+    }
+    return zero();
+  }
+
+  public static <N extends Location, Stmt, Fact> BitSetDomain<N, Stmt, Fact> one() {
+    return one;
+  }
+
+  public static <N extends Location, Stmt, Fact> BitSetDomain<N, Stmt, Fact> zero() {
+    return zero;
+  }
+
+  /** Returns a read-only view of the nodes in this weight, decoded lazily from the bit set. */
+  public Collection<Node<Stmt, Fact>> elements() {
+    if (nodes == null) {
+      return Collections.emptyList();
+    }
+    return new AbstractCollection<Node<Stmt, Fact>>() {
+      @Override
+      public Iterator<Node<Stmt, Fact>> iterator() {
+        return new Iterator<Node<Stmt, Fact>>() {
+          private int next = nodes.nextSetBit(0);
+
+          @Override
+          public boolean hasNext() {
+            return next >= 0;
+          }
+
+          @Override
+          public Node<Stmt, Fact> next() {
+            if (next < 0) throw new NoSuchElementException();
+            Node<Stmt, Fact> node = index.nodeOf(next);
+            next = nodes.nextSetBit(next + 1);
+            return node;
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return nodes.cardinality();
+      }
+
+      @Override
+      public boolean contains(Object o) {
+        int id = index.find(o);
+        return id >= 0 && nodes.get(id);
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    if (rep != null) return rep;
+    return elements().toString();
+  }
+
+  @Override
+  public int hashCode() {
+    if (hashCode != 0) return hashCode;
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + ((nodes == null) ? 0 : nodes.hashCode());
+    result = prime * result + ((rep == null) ? 0 : rep.hashCode());
+    hashCode = result;
+    return hashCode;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) return true;
+    if (obj == null) return false;
+    if (getClass() != obj.getClass()) return false;
+    BitSetDomain other = (BitSetDomain) obj;
+    if (rep != null || other.rep != null) return false;
+    return index == other.index && nodes.equals(other.nodes);
+  }
+
+  /**
+   * Interns nodes to dense integer ids. All {@link BitSetDomain} weights that are combined with
+   * each other must share the same index.
+   */
+  public static class NodeIndex<Stmt, Fact> {
+    private final Map<Node<Stmt, Fact>, Integer> ids = Maps.newHashMap();
+    private final List<Node<Stmt, Fact>> nodes = Lists.newArrayList();
+
+    public synchronized int idOf(Node<Stmt, Fact> node) {
+      Integer id = ids.get(node);
+      if (id == null) {
+        id = nodes.size();
+        ids.put(node, id);
+        nodes.add(node);
+      }
+      return id;
+    }
+
+    private synchronized int find(Object node) {
+      Integer id = ids.get(node);
+      return id == null ? -1 : id;
+    }
+
+    public synchronized Node<Stmt, Fact> nodeOf(int id) {
+      return nodes.get(id);
+    }
+
+    public synchronized int size() {
+      return nodes.size();
+    }
+  }
+}
@@ -13,6 +13,7 @@ package sync.pds.weights;
 
 import com.google.common.collect.Sets;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Set;
 import sync.pds.solver.nodes.Node;
 import wpds.impl.Weight;
@@ -20,8 +21,8 @@ import wpds.interfaces.Location;
 
 public class SetDomain<N, Stmt, Fact> extends Weight {
 
-  private static SetDomain one;
-  private static SetDomain zero;
+  private static final SetDomain one = new SetDomain("<1>");
+  private static final SetDomain zero = new SetDomain("<0>");
   private final String rep;
   private Collection<Node<Stmt, Fact>> nodes;
 
@@ -64,12 +65,10 @@ public class SetDomain<N, Stmt, Fact> extends Weight {
   }
 
   public static <N extends Location, Stmt, Fact> SetDomain<N, Stmt, Fact> one() {
-    if (one == null) one = new SetDomain("<1>");
     return one;
   }
 
   public static <N extends Location, Stmt, Fact> SetDomain<N, Stmt, Fact> zero() {
-    if (zero == null) zero = new SetDomain("<0>");
     return zero;
   }
 
@@ -104,6 +103,6 @@ public class SetDomain<N, Stmt, Fact> extends Weight {
   }
 
   public Collection<Node<Stmt, Fact>> elements() {
-    return Sets.newHashSet(nodes);
+    return Collections.unmodifiableCollection(nodes);
   }
 }
@@ -0,0 +1,108 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package analysis.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import sync.pds.solver.nodes.Node;
+import sync.pds.weights.BitSetDomain;
+import sync.pds.weights.BitSetDomain.NodeIndex;
+import sync.pds.weights.SetDomain;
+import wpds.impl.Weight;
+
+/** Checks that {@link BitSetDomain} satisfies the same laws and results as {@link SetDomain}. */
+public class BitSetDomainTest {
+  private final NodeIndex<String, String> index = new NodeIndex<>();
+  private final Random random = new Random(3);
+
+  @Test
+  public void oneAndZero() {
+    Weight a = new BitSetDomain<>(index, node(1));
+    assertSame(a, a.extendWith(BitSetDomain.one()));
+    assertSame(a, BitSetDomain.one().extendWith(a));
+    assertSame(BitSetDomain.zero(), a.extendWith(a));
+    assertSame(a, a.combineWith(BitSetDomain.zero()));
+    assertSame(a, BitSetDomain.zero().combineWith(a));
+    assertSame(BitSetDomain.one(), a.combineWith(BitSetDomain.one()));
+    assertSame(BitSetDomain.one(), BitSetDomain.one().combineWith(a));
+    assertFalse(BitSetDomain.one().equals(BitSetDomain.zero()));
+  }
+
+  @Test
+  public void combineAgreesWithSetDomain() {
+    List<Pair> pairs = Lists.newArrayList();
+    for (int i = 0; i < 50; i++) {
+      Node<String, String> n = node(random.nextInt(30));
+      pairs.add(new Pair(new BitSetDomain<>(index, n), new SetDomain<>(n)));
+    }
+    for (int i = 0; i < 500; i++) {
+      Pair a = pairs.get(random.nextInt(pairs.size()));
+      Pair b = pairs.get(random.nextInt(pairs.size()));
+      Pair combined =
+          new Pair(
+              (BitSetDomain<?, String, String>) a.bits.combineWith(b.bits),
+              (SetDomain<?, String, String>) a.set.combineWith(b.set));
+      assertEquals(
+          Sets.newHashSet(combined.set.elements()), Sets.newHashSet(combined.bits.elements()));
+      assertEquals(combined.set.elements().size(), combined.bits.elements().size());
+      pairs.add(combined);
+    }
+    for (int i = 0; i < 500; i++) {
+      Pair a = pairs.get(random.nextInt(pairs.size()));
+      Pair b = pairs.get(random.nextInt(pairs.size()));
+      Pair c = pairs.get(random.nextInt(pairs.size()));
+      // Equality and hash codes agree with the set based domain.
+      assertEquals(a.set.equals(b.set), a.bits.equals(b.bits));
+      if (a.bits.equals(b.bits)) {
+        assertEquals(a.bits.hashCode(), b.bits.hashCode());
+      }
+      // Combine is commutative, associative and idempotent.
+      assertEquals(a.bits.combineWith(b.bits), b.bits.combineWith(a.bits));
+      assertEquals(
+          a.bits.combineWith(b.bits).combineWith(c.bits),
+          a.bits.combineWith(b.bits.combineWith(c.bits)));
+      assertEquals(a.bits, a.bits.combineWith(a.bits));
+      for (Node<String, String> n : a.set.elements()) {
+        assertTrue(a.bits.elements().contains(n));
+      }
+    }
+    assertFalse(pairs.get(0).bits.elements().contains(node(1000)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void differentIndicesCannotBeCombined() {
+    new BitSetDomain<>(index, node(1))
+        .combineWith(new BitSetDomain<>(new NodeIndex<String, String>(), node(2)));
+  }
+
+  private static Node<String, String> node(int i) {
+    return new Node<>("s" + (i % 7), "f" + i);
+  }
+
+  private static class Pair {
+    private final BitSetDomain<?, String, String> bits;
+    private final SetDomain<?, String, String> set;
+
+    private Pair(BitSetDomain<?, String, String> bits, SetDomain<?, String, String> set) {
+      this.bits = bits;
+      this.set = set;
+    }
+  }
+}
@@ -13,6 +13,7 @@ package wpds.impl;
 
 import com.google.common.collect.Maps;
 import java.util.Map;
+import java.util.function.Predicate;
 import wpds.interfaces.Location;
 import wpds.interfaces.State;
 
@@ -30,4 +31,8 @@ public class SummaryNestedWeightedPAutomatons<N extends Location, D extends Stat
   public WeightedPAutomaton<N, D, W> getSummaryAutomaton(D target) {
     return summaries.get(target);
   }
+
+  public void removeSummaryAutomata(Predicate<WeightedPAutomaton<N, D, W>> stale) {
+    summaries.values().removeIf(stale);
+  }
 }
@@ -16,7 +16,7 @@ public abstract class Weight {
 
   public abstract Weight combineWith(Weight other);
 
-  public static NoWeight NO_WEIGHT_ONE = new Weight.NoWeight();
+  public static final NoWeight NO_WEIGHT_ONE = new Weight.NoWeight();
 
   public static class NoWeight extends Weight {
     @Override
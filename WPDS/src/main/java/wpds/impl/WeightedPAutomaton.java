@@ -29,6 +29,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pathexpression.Edge;
@@ -92,6 +93,10 @@ public abstract class WeightedPAutomaton<N extends Location, D extends State, W
     return Lists.newArrayList(transitions);
   }
 
+  public int getNumberOfTransitions() {
+    return transitions.size();
+  }
+
   public boolean addTransition(Transition<N, D> trans) {
     boolean addWeightForTransition = addWeightForTransition(trans, getOne());
     if (!addWeightForTransition) {
@@ -366,11 +371,10 @@ public abstract class WeightedPAutomaton<N extends Location, D extends State, W
     }
   }
 
-  private static int count = 0;
+  private static final AtomicInteger count = new AtomicInteger();
 
   private void increaseListenerCount(WPAStateListener<N, D, W> l) {
-    count++;
-    if (count % 100000 == 0) {
+    if (count.incrementAndGet() % 100000 == 0) {
       onManyStateListenerRegister();
     }
   }
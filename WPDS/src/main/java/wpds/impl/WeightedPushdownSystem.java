@@ -71,6 +71,10 @@ public class WeightedPushdownSystem<N extends Location, D extends State, W exten
     return pushRules;
   }
 
+  public int getNumberOfRules() {
+    return normalRules.size() + popRules.size() + pushRules.size();
+  }
+
   @Override
   public Set<Rule<N, D, W>> getAllRules() {
     Set<Rule<N, D, W>> rules = Sets.newHashSet();
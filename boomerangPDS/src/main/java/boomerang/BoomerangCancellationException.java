@@ -0,0 +1,45 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package boomerang;
+
+import boomerang.stats.IBoomerangStats;
+
+/**
+ * Thrown when a query is aborted via its {@link CancellationToken} or because it exceeded {@link
+ * BoomerangOptions#memoryBudgetMB()}. It extends {@link BoomerangTimeoutException} such that
+ * clients handling timeouts also handle cancelled queries.
+ */
+public class BoomerangCancellationException extends BoomerangTimeoutException {
+
+  public enum Reason {
+    CANCELLED,
+    DEADLINE,
+    RULE_BUDGET,
+    MEMORY_BUDGET
+  }
+
+  private final Reason reason;
+
+  BoomerangCancellationException(Reason reason, long elapsed, IBoomerangStats stats) {
+    super(elapsed, stats);
+    this.reason = reason;
+  }
+
+  public Reason getReason() {
+    return reason;
+  }
+
+  @Override
+  public String toString() {
+    return "Boomerang query aborted (" + reason + ")\n " + super.toString();
+  }
+}
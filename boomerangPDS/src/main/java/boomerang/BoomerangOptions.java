@@ -12,8 +12,10 @@
 package boomerang;
 
 import boomerang.callgraph.BoomerangResolver;
+import boomerang.callgraph.DispatchCache;
 import boomerang.callgraph.ICallerCalleeResolutionStrategy.Factory;
 import boomerang.callgraph.ObservableICFG;
+import boomerang.callgraph.ReceiverPointsToCache;
 import boomerang.scene.AllocVal;
 import boomerang.scene.Method;
 import boomerang.scene.Statement;
@@ -61,6 +63,15 @@ public interface BoomerangOptions {
 
   int analysisTimeoutMS();
 
+  /**
+   * @return Size in MB that, once exceeded by the {@link
+   *     WeightedBoomerang#getRetainedSizeEstimate() estimated memory} retained by the solvers,
+   *     aborts the running query with a {@link BoomerangCancellationException}. The results
+   *     computed so far are returned and flagged as timed out and as having exceeded the memory
+   *     budget. A value <= 0 disables the budget.
+   */
+  int memoryBudgetMB();
+
   // TODO remove icfg here.
   Optional<AllocVal> getAllocationVal(
       Method m, Statement stmt, Val fact, ObservableICFG<Statement, Method> icfg);
@@ -102,4 +113,25 @@ public interface BoomerangOptions {
   boolean trackDataFlowPath();
 
   boolean allowMultipleQueries();
+
+  /**
+   * @return Maximal number of forward solvers kept between two queries when allowMultipleQueries is
+   *     enabled. Least recently used solvers are evicted and transparently re-computed when needed
+   *     again. A value <= 0 keeps all solvers.
+   */
+  int forwardSolverCacheSize();
+
+  /**
+   * @return Cache of resolved receiver allocation sites consulted by the {@link BoomerangResolver}
+   *     before issuing a backward query for the receiver of an instance invoke. Solvers sharing the
+   *     cache resolve each call site only once. A cache hit still starts the forward solvers of the
+   *     receiver's allocation sites. Null disables the cache.
+   */
+  ReceiverPointsToCache getReceiverPointsToCache();
+
+  /**
+   * @return Cache of virtual dispatch targets shared by the {@link BoomerangResolver}s of all
+   *     solvers created with these options. Null gives each solver its own cache.
+   */
+  DispatchCache getDispatchCache();
 }
@@ -0,0 +1,79 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package boomerang;
+
+/**
+ * Allows to abort a query passed to {@link WeightedBoomerang#solve(ForwardQuery,
+ * CancellationToken)} or {@link WeightedBoomerang#solve(BackwardQuery, CancellationToken)}. A query
+ * is aborted when {@link #cancel()} is called from any thread, when the wall-clock deadline passes,
+ * or when the solvers of the query added more rules than the rule budget allows.
+ *
+ * <p>The token is checked cooperatively by the solver, once every {@link #getCheckInterval()}
+ * propagation steps. An aborted query terminates with a {@link BoomerangCancellationException} and
+ * its results are flagged as timed out.
+ */
+public class CancellationToken {
+  public static final int DEFAULT_CHECK_INTERVAL = 1000;
+
+  private volatile boolean cancelled;
+  private long deadlineMillis = -1;
+  private long ruleBudget = -1;
+  private int checkInterval = DEFAULT_CHECK_INTERVAL;
+
+  public void cancel() {
+    cancelled = true;
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  /** Sets the deadline to the given number of milliseconds from now. */
+  public CancellationToken withTimeout(long timeoutMillis) {
+    return withDeadline(System.currentTimeMillis() + timeoutMillis);
+  }
+
+  /** Sets the deadline to the given wall-clock time, see {@link System#currentTimeMillis()}. */
+  public CancellationToken withDeadline(long deadlineMillis) {
+    this.deadlineMillis = deadlineMillis;
+    return this;
+  }
+
+  public CancellationToken withRuleBudget(long ruleBudget) {
+    this.ruleBudget = ruleBudget;
+    return this;
+  }
+
+  public CancellationToken withCheckInterval(int checkInterval) {
+    if (checkInterval <= 0) {
+      throw new IllegalArgumentException("Check interval must be positive");
+    }
+    this.checkInterval = checkInterval;
+    return this;
+  }
+
+  public int getCheckInterval() {
+    return checkInterval;
+  }
+
+  public boolean hasRuleBudget() {
+    return ruleBudget >= 0;
+  }
+
+  boolean isDeadlineExceeded() {
+    return deadlineMillis >= 0 && System.currentTimeMillis() > deadlineMillis;
+  }
+
+  boolean isRuleBudgetExceeded(long rules) {
+    return hasRuleBudget() && rules > ruleBudget;
+  }
+}
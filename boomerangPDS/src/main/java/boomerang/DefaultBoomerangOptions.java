@@ -11,7 +11,9 @@
  */
 package boomerang;
 
+import boomerang.callgraph.DispatchCache;
 import boomerang.callgraph.ObservableICFG;
+import boomerang.callgraph.ReceiverPointsToCache;
 import boomerang.scene.AllocVal;
 import boomerang.scene.Method;
 import boomerang.scene.Statement;
@@ -118,6 +120,11 @@ public class DefaultBoomerangOptions implements BoomerangOptions {
     return 10000;
   }
 
+  @Override
+  public int memoryBudgetMB() {
+    return -1;
+  }
+
   @Override
   public IBoomerangStats statsFactory() {
     return new SimpleBoomerangStats();
@@ -214,6 +221,21 @@ public class DefaultBoomerangOptions implements BoomerangOptions {
     return false;
   }
 
+  @Override
+  public int forwardSolverCacheSize() {
+    return -1;
+  }
+
+  @Override
+  public ReceiverPointsToCache getReceiverPointsToCache() {
+    return null;
+  }
+
+  @Override
+  public DispatchCache getDispatchCache() {
+    return null;
+  }
+
   public void checkValid() {
     if (trackPathConditions() == false && prunePathConditions()) {
       throw new RuntimeException(
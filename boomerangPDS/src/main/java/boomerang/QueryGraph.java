@@ -13,6 +13,7 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
+import java.util.Collection;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
@@ -317,4 +318,34 @@ public class QueryGraph<W extends Weight> {
   public boolean isRoot(Query q) {
     return roots.contains(q);
   }
+
+  /** Returns the parents and children of the given query. */
+  public Set<Query> getAdjacentQueries(Query query) {
+    Set<Query> adjacent = Sets.newHashSet();
+    for (QueryEdge edge : sourceToQueryEdgeLookUp.get(query)) {
+      adjacent.add(edge.getTarget());
+    }
+    for (QueryEdge edge : targetToQueryEdgeLookUp.get(query)) {
+      adjacent.add(edge.getSource());
+    }
+    return adjacent;
+  }
+
+  /** Removes the queries and all edges from or to them, and returns the removed roots. */
+  public Set<Query> remove(Collection<? extends Query> queries) {
+    Set<Query> removedRoots = Sets.newHashSet();
+    for (Query q : queries) {
+      if (roots.remove(q)) {
+        removedRoots.add(q);
+      }
+      for (QueryEdge edge : sourceToQueryEdgeLookUp.removeAll(q)) {
+        targetToQueryEdgeLookUp.remove(edge.getTarget(), edge);
+      }
+      for (QueryEdge edge : targetToQueryEdgeLookUp.removeAll(q)) {
+        sourceToQueryEdgeLookUp.remove(edge.getSource(), edge);
+      }
+      edgeAddListener.removeAll(q);
+    }
+    return removedRoots;
+  }
 }
@@ -0,0 +1,143 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package boomerang;
+
+import boomerang.results.BackwardBoomerangResults;
+import boomerang.results.ForwardBoomerangResults;
+import boomerang.results.PersistentQueryResultCache;
+import boomerang.results.PersistentQueryResultCache.CachedQueryResult;
+import boomerang.scene.CallGraph;
+import boomerang.scene.DataFlowScope;
+import boomerang.scene.Method;
+import boomerang.scene.jimple.SootHierarchy;
+import com.google.common.base.Stopwatch;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import wpds.impl.Weight;
+
+/**
+ * Answers {@link ForwardQuery}s and {@link BackwardQuery}s submitted from several threads in
+ * parallel. The {@link CallGraph} and {@link DataFlowScope} are shared between all queries and
+ * treated as read-only, while every query is solved by its own {@link WeightedBoomerang} instance
+ * created by the {@link SolverFactory}. Hence, no solver state is shared across threads.
+ */
+public class QueryService<W extends Weight> {
+  private static final Logger LOGGER = LoggerFactory.getLogger(QueryService.class);
+
+  public interface SolverFactory<W extends Weight> {
+    WeightedBoomerang<W> create(CallGraph callGraph, DataFlowScope scope);
+  }
+
+  private final CallGraph callGraph;
+  private final DataFlowScope scope;
+  private final SolverFactory<W> solverFactory;
+  private final ExecutorService executor;
+
+  public QueryService(
+      CallGraph callGraph, DataFlowScope scope, SolverFactory<W> solverFactory, int threads) {
+    this.callGraph = callGraph;
+    this.scope = scope;
+    this.solverFactory = solverFactory;
+    AtomicInteger threadCount = new AtomicInteger();
+    this.executor =
+        Executors.newFixedThreadPool(
+            threads,
+            r -> {
+              Thread t = new Thread(r, "boomerang-query-" + threadCount.incrementAndGet());
+              t.setDaemon(true);
+              return t;
+            });
+    prepareSharedScope(callGraph);
+  }
+
+  public static QueryService<Weight.NoWeight> create(
+      CallGraph callGraph, DataFlowScope scope, BoomerangOptions options, int threads) {
+    return new QueryService<>(callGraph, scope, (cg, s) -> new Boomerang(cg, s, options), threads);
+  }
+
+  /**
+   * Method and control-flow graph representations build their caches lazily upon first access. They
+   * are built eagerly for all reachable methods before any query runs, such that the concurrently
+   * running solvers only read from them. The shared singletons initialize themselves safely, and
+   * Soot's hierarchies are built here and queried through {@link SootHierarchy}.
+   */
+  public static void prepareSharedScope(CallGraph callGraph) {
+    Stopwatch watch = Stopwatch.createStarted();
+    SootHierarchy.prepare();
+    for (Method m : callGraph.getReachableMethods()) {
+      m.getControlFlowGraph().getStartPoints();
+      m.getLocals();
+      m.getParameterLocals();
+      m.getReturnLocals();
+    }
+    callGraph.getStaticFieldIndex();
+    LOGGER.debug("Prepared shared scope for concurrent queries in {}", watch);
+  }
+
+  public CompletableFuture<ForwardBoomerangResults<W>> submit(ForwardQuery query) {
+    return CompletableFuture.supplyAsync(() -> newSolver().solve(query), executor);
+  }
+
+  public CompletableFuture<BackwardBoomerangResults<W>> submit(BackwardQuery query) {
+    return CompletableFuture.supplyAsync(() -> newSolver().solve(query), executor);
+  }
+
+  /**
+   * Answers the query from the cache if it holds results for the current program, otherwise solves
+   * the query and stores its results in the cache. The cache may be shared by all queries.
+   */
+  public CompletableFuture<CachedQueryResult> submit(
+      ForwardQuery query, PersistentQueryResultCache cache) {
+    return CompletableFuture.supplyAsync(
+        () ->
+            cache
+                .lookup(query)
+                .orElseGet(
+                    () -> {
+                      WeightedBoomerang<W> solver = newSolver();
+                      return cache.store(query, solver.solve(query), solver.getVisitedMethods());
+                    }),
+        executor);
+  }
+
+  /** See {@link #submit(ForwardQuery, PersistentQueryResultCache)}. */
+  public CompletableFuture<CachedQueryResult> submit(
+      BackwardQuery query, PersistentQueryResultCache cache) {
+    return CompletableFuture.supplyAsync(
+        () ->
+            cache
+                .lookup(query)
+                .orElseGet(
+                    () -> {
+                      WeightedBoomerang<W> solver = newSolver();
+                      return cache.store(query, solver.solve(query), solver.getVisitedMethods());
+                    }),
+        executor);
+  }
+
+  private WeightedBoomerang<W> newSolver() {
+    return solverFactory.create(callGraph, scope);
+  }
+
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return executor.awaitTermination(timeout, unit);
+  }
+}
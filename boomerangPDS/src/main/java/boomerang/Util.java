@@ -2,6 +2,10 @@ package boomerang;
 
 import java.lang.management.GarbageCollectorMXBean;
 import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
 
 public class Util {
   private static int icfgEdges;
@@ -43,17 +47,42 @@ public class Util {
   //        return icfgEdges;
   //    }
 
+  /**
+   * Estimates the live heap without forcing a garbage collection: the heap used after the most
+   * recent collection, or the current heap usage if no collection has happened yet.
+   */
   public static long getReallyUsedMemory() {
-    return 0;
-    // long before = getGcCount();
-    // System.gc();
-    // while (getGcCount() == before)
-    // ;
-    // return getCurrentlyUsedMemory();
+    long retained = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() != MemoryType.HEAP) continue;
+      MemoryUsage afterGc = pool.getCollectionUsage();
+      if (afterGc == null) continue;
+      retained += afterGc.getUsed();
+    }
+    if (retained == 0) {
+      return getCurrentlyUsedMemory();
+    }
+    return retained;
   }
 
-  private static long getCurrentlyUsedMemory() {
+  public static long getCurrentlyUsedMemory() {
     return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
     // + ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage().getUsed();
   }
+
+  /**
+   * Returns the number of bytes allocated by the current thread so far, or -1 if the JVM does not
+   * support per-thread allocation accounting.
+   */
+  public static long getAllocatedBytesOfCurrentThread() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+      return -1;
+    }
+    com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+    if (!sunBean.isThreadAllocatedMemorySupported() || !sunBean.isThreadAllocatedMemoryEnabled()) {
+      return -1;
+    }
+    return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
 }
@@ -13,9 +13,11 @@ package boomerang;
 
 import boomerang.BoomerangOptions.ArrayStrategy;
 import boomerang.callgraph.BackwardsObservableICFG;
+import boomerang.callgraph.DispatchCache;
 import boomerang.callgraph.ObservableDynamicICFG;
 import boomerang.callgraph.ObservableICFG;
 import boomerang.callgraph.ObservableStaticICFG;
+import boomerang.callgraph.ReceiverPointsToCache;
 import boomerang.controlflowgraph.DynamicCFG;
 import boomerang.controlflowgraph.ObservableControlFlowGraph;
 import boomerang.controlflowgraph.PredecessorListener;
@@ -29,8 +31,10 @@ import boomerang.poi.AbstractPOI;
 import boomerang.poi.CopyAccessPathChain;
 import boomerang.poi.ExecuteImportFieldStmtPOI;
 import boomerang.poi.PointOfIndirection;
+import boomerang.results.AbstractBoomerangResults;
 import boomerang.results.BackwardBoomerangResults;
 import boomerang.results.ForwardBoomerangResults;
+import boomerang.results.ResultVisitor;
 import boomerang.scene.AllocVal;
 import boomerang.scene.CallGraph;
 import boomerang.scene.ControlFlowGraph;
@@ -52,13 +56,17 @@ import boomerang.util.DefaultValueMap;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Table;
 import com.google.common.collect.Table.Cell;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
@@ -106,12 +114,40 @@ public abstract class WeightedBoomerang<W extends Weight> {
           solver = createForwardSolver(key);
 
           stats.registerSolver(key, solver);
-          solver.getCallAutomaton().registerListener((t, w, aut) -> checkTimeout());
-          solver.getFieldAutomaton().registerListener((t, w, aut) -> checkTimeout());
           onCreateSubSolver(key, solver);
           return solver;
         }
+
+        @Override
+        public ForwardBoomerangSolver<W> getOrCreate(ForwardQuery key) {
+          if (options.forwardSolverCacheSize() > 0) {
+            solverAccessOrder.put(key, Boolean.TRUE);
+            if (!containsKey(key) && evictedSolvers.containsKey(key)) {
+              recomputeEvicted(key);
+            }
+          }
+          return super.getOrCreate(key);
+        }
+
+        @Override
+        public ForwardBoomerangSolver<W> get(Object key) {
+          if (options.forwardSolverCacheSize() > 0) {
+            if (containsKey(key)) {
+              // Lookups count as accesses, e.g., the solvers consulted by field write POIs.
+              solverAccessOrder.get(key);
+            } else if (evictedSolvers.containsKey(key)) {
+              return getOrCreate((ForwardQuery) key);
+            }
+          }
+          return super.get(key);
+        }
       };
+  private final LinkedHashMap<ForwardQuery, Boolean> solverAccessOrder =
+      new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<ForwardQuery, Set<Query>> evictedSolvers = new HashMap<>();
+  private int evictedSolverCount;
+  private int recomputedSolverCount;
+  private final Stopwatch recomputationWatch = Stopwatch.createUnstarted();
   private int forwardQueries;
   private int backwardQueries;
   private final QueryGraph<W> queryGraph;
@@ -324,8 +360,31 @@ public abstract class WeightedBoomerang<W extends Weight> {
 
   private BackwardBoomerangSolver<W> backwardSolverIns;
   private boolean solving;
-
+  private CancellationToken cancellationToken = new CancellationToken();
+  private long propagationSteps;
+  private int activeQueries;
+  private int abortedQueries;
+  private long peakMemory;
+  private long allocatedBytesAtStart;
+  private DispatchCache dispatchCache;
+
+  /**
+   * Bytes retained by a rule or a transition, including its share of the states, weights and
+   * listeners referring to it.
+   */
+  private static final long RETAINED_BYTES_PER_ELEMENT = 256;
+
+  /**
+   * Called by the solvers upon each propagation step. To keep the overhead low, the timeout and the
+   * {@link CancellationToken} of the current query are only checked every {@link
+   * CancellationToken#getCheckInterval()} steps.
+   */
   public void checkTimeout() {
+    if (++propagationSteps % cancellationToken.getCheckInterval() != 0) {
+      return;
+    }
+    checkCancellation();
+    checkMemoryBudget();
     if (options.analysisTimeoutMS() > 0) {
       long elapsed = analysisWatch.elapsed(TimeUnit.MILLISECONDS);
       if (elapsed - lastTick > 15000) {
@@ -345,22 +404,293 @@ public abstract class WeightedBoomerang<W extends Weight> {
       }
       if (options.analysisTimeoutMS() < elapsed) {
         if (analysisWatch.isRunning()) analysisWatch.stop();
+        abortedQueries++;
         throw new BoomerangTimeoutException(elapsed, stats);
       }
     }
   }
 
+  private void checkCancellation() {
+    BoomerangCancellationException.Reason reason = null;
+    if (cancellationToken.isCancelled()) {
+      reason = BoomerangCancellationException.Reason.CANCELLED;
+    } else if (cancellationToken.isDeadlineExceeded()) {
+      reason = BoomerangCancellationException.Reason.DEADLINE;
+    } else if (cancellationToken.hasRuleBudget()
+        && cancellationToken.isRuleBudgetExceeded(getNumberOfRules())) {
+      reason = BoomerangCancellationException.Reason.RULE_BUDGET;
+    }
+    if (reason != null) {
+      if (analysisWatch.isRunning()) analysisWatch.stop();
+      abortedQueries++;
+      throw new BoomerangCancellationException(
+          reason, analysisWatch.elapsed(TimeUnit.MILLISECONDS), stats);
+    }
+  }
+
+  /**
+   * Records the peak heap usage and aborts the running query once the {@link
+   * #getRetainedSizeEstimate()} exceeds {@link BoomerangOptions#memoryBudgetMB()}. Unlike the heap
+   * usage of the JVM or the bytes allocated by the solving thread, the estimate neither counts
+   * garbage nor the memory of queries solved in parallel.
+   */
+  private void checkMemoryBudget() {
+    peakMemory = Math.max(peakMemory, Util.getCurrentlyUsedMemory());
+    if (options.memoryBudgetMB() <= 0) {
+      return;
+    }
+    if (getRetainedSizeEstimate() > options.memoryBudgetMB() * 1024L * 1024L) {
+      if (analysisWatch.isRunning()) analysisWatch.stop();
+      abortedQueries++;
+      throw new BoomerangCancellationException(
+          BoomerangCancellationException.Reason.MEMORY_BUDGET,
+          analysisWatch.elapsed(TimeUnit.MILLISECONDS),
+          stats);
+    }
+  }
+
+  private static boolean isMemoryBudgetExceeded(BoomerangTimeoutException e) {
+    return e instanceof BoomerangCancellationException
+        && ((BoomerangCancellationException) e).getReason()
+            == BoomerangCancellationException.Reason.MEMORY_BUDGET;
+  }
+
+  private long getAllocatedBytes() {
+    long allocated = Util.getAllocatedBytesOfCurrentThread();
+    return allocated < 0 ? -1 : allocated - allocatedBytesAtStart;
+  }
+
+  /**
+   * Installs the token of a query that is about to be solved and returns the previously installed
+   * one. Queries issued without a token while another query is running (e.g., by client analyses
+   * from within listeners) inherit the token of the running query.
+   */
+  private CancellationToken enterQuery(CancellationToken token) {
+    if (activeQueries == 0) {
+      evictSolvers();
+      peakMemory = Util.getCurrentlyUsedMemory();
+      allocatedBytesAtStart = Util.getAllocatedBytesOfCurrentThread();
+    }
+    return installToken(token);
+  }
+
+  private CancellationToken installToken(CancellationToken token) {
+    CancellationToken outer = cancellationToken;
+    if (token != null) {
+      cancellationToken = token;
+    } else if (activeQueries == 0) {
+      cancellationToken = new CancellationToken();
+    }
+    activeQueries++;
+    return outer;
+  }
+
+  /**
+   * Shrinks the forward solvers to {@link BoomerangOptions#forwardSolverCacheSize()} by evicting
+   * the least recently consulted ones. Solvers exchange data through the {@link QueryGraph} and
+   * field write POIs, hence a solver is evicted together with all solvers connected to it. As all
+   * backward queries share one solver, a component reaching a backward query evicts all of them:
+   * the shared solver only triggers the forward solvers of the allocations it reaches once.
+   * Eviction happens only between root queries, when no solver is propagating.
+   */
+  private void evictSolvers() {
+    int capacity = options.forwardSolverCacheSize();
+    if (capacity <= 0 || queryToSolvers.size() <= capacity) {
+      return;
+    }
+    Map<AbstractBoomerangSolver<W>, ForwardQuery> solverToQuery = new HashMap<>();
+    for (Entry<ForwardQuery, ForwardBoomerangSolver<W>> e : queryToSolvers.entrySet()) {
+      solverToQuery.put(e.getValue(), e.getKey());
+    }
+    Multimap<Query, ForwardQuery> poiDependencies = HashMultimap.create();
+    for (SolverPair pair : poiListeners.keySet()) {
+      ForwardQuery flow = solverToQuery.get(pair.flowSolver);
+      ForwardQuery base = solverToQuery.get(pair.baseSolver);
+      if (flow != null && base != null) {
+        poiDependencies.put(flow, base);
+        poiDependencies.put(base, flow);
+      }
+    }
+    for (ForwardQuery lru : Lists.newArrayList(solverAccessOrder.keySet())) {
+      if (queryToSolvers.size() <= capacity) {
+        break;
+      }
+      if (!queryToSolvers.containsKey(lru)) {
+        solverAccessOrder.remove(lru);
+        continue;
+      }
+      Set<Query> component = Sets.newHashSet(lru);
+      LinkedList<Query> worklist = Lists.newLinkedList(component);
+      while (!worklist.isEmpty()) {
+        Query q = worklist.poll();
+        Set<Query> connected = queryGraph.getAdjacentQueries(q);
+        connected.addAll(poiDependencies.get(q));
+        if (q instanceof BackwardQuery) {
+          connected.addAll(queryToBackwardSolvers.keySet());
+        }
+        for (Query c : connected) {
+          if ((queryToSolvers.containsKey(c) || queryToBackwardSolvers.containsKey(c))
+              && component.add(c)) {
+            worklist.add(c);
+          }
+        }
+      }
+      Set<Query> roots = queryGraph.remove(component);
+      Set<AbstractBoomerangSolver<W>> dropped = Sets.newHashSet();
+      for (Query q : component) {
+        if (q instanceof ForwardQuery) {
+          ForwardBoomerangSolver<W> solver = queryToSolvers.remove(q);
+          stats.unregisterSolver(q);
+          dropped.add(solver);
+          solverAccessOrder.remove(q);
+          evictedSolvers.put((ForwardQuery) q, roots);
+          evictedSolverCount++;
+        } else if (backwardSolverIns != null) {
+          dropped.add(backwardSolverIns);
+          backwardSolverIns = null;
+          queryToBackwardSolvers.clear();
+          rootQuery = null;
+          backwardCallSummaries.removeSummaryAutomata(aut -> true);
+          backwardFieldSummaries.removeSummaryAutomata(aut -> true);
+        }
+      }
+      for (AbstractBoomerangSolver<W> solver : dropped) {
+        solver.unregisterAllListeners();
+      }
+      poiListeners
+          .keySet()
+          .removeIf(p -> dropped.contains(p.flowSolver) || dropped.contains(p.baseSolver));
+      activatedPoi
+          .keySet()
+          .removeIf(p -> dropped.contains(p.flowSolver) || dropped.contains(p.baseSolver));
+      for (FieldWritePOI poi : fieldWrites.values()) {
+        poi.removeAllocations(component);
+      }
+      // The nested automata of the summaries carry listeners of the solvers that created them.
+      forwardCallSummaries.removeSummaryAutomata(aut -> true);
+      forwardFieldSummaries.removeSummaryAutomata(aut -> true);
+    }
+    LOGGER.debug("Evicted solvers, {} forward solvers remain", queryToSolvers.size());
+  }
+
+  /**
+   * Re-creates an evicted solver by solving the roots it was evicted with again, or the query
+   * itself if it was reached from a query that is not a root. The recomputation runs like a nested
+   * query: it inherits the token of the running query, or gets a fresh one if no query is running,
+   * and counts towards the analysis time. The component is no longer marked evicted once the
+   * recomputation starts, hence lookups from within the recomputation do not recompute it again.
+   */
+  private void recomputeEvicted(ForwardQuery query) {
+    Set<Query> roots = evictedSolvers.get(query);
+    evictedSolvers.values().removeIf(r -> r == roots);
+    CancellationToken outerToken = installToken(null);
+    boolean timing = !analysisWatch.isRunning();
+    if (timing) {
+      analysisWatch.start();
+    }
+    boolean running = recomputationWatch.isRunning();
+    if (!running) {
+      recomputationWatch.start();
+    }
+    int before = queryToSolvers.size();
+    try {
+      for (Query root : roots) {
+        queryGraph.addRoot(root);
+        if (root instanceof ForwardQuery) {
+          forwardSolve((ForwardQuery) root);
+        } else {
+          backwardSolve((BackwardQuery) root);
+        }
+      }
+      if (!queryToSolvers.containsKey(query)) {
+        forwardSolve(query);
+      }
+    } finally {
+      recomputedSolverCount += queryToSolvers.size() - before;
+      if (!running) {
+        recomputationWatch.stop();
+      }
+      if (timing && analysisWatch.isRunning()) {
+        analysisWatch.stop();
+      }
+      exitQuery(outerToken);
+    }
+  }
+
+  public int getEvictedSolverCount() {
+    return evictedSolverCount;
+  }
+
+  public int getRecomputedSolverCount() {
+    return recomputedSolverCount;
+  }
+
+  public Stopwatch getRecomputationTime() {
+    return recomputationWatch;
+  }
+
+  /** @return True while a query runs that was issued from within another query. */
+  public boolean isSolvingNestedQuery() {
+    return activeQueries > 1;
+  }
+
+  /**
+   * @return The number of queries aborted by a timeout, a cancellation or the memory budget. The
+   *     state of the solvers is incomplete after an abort.
+   */
+  public int getAbortedQueryCount() {
+    return abortedQueries;
+  }
+
+  private void exitQuery(CancellationToken outer) {
+    activeQueries--;
+    cancellationToken = outer;
+  }
+
+  /**
+   * @return An estimate in bytes of the memory retained by the solvers of this instance, derived
+   *     from the number of their rules and automaton transitions. It covers the solvers of earlier
+   *     queries that were not evicted.
+   */
+  public long getRetainedSizeEstimate() {
+    long transitions = 0;
+    for (ForwardBoomerangSolver<W> solver : queryToSolvers.values()) {
+      transitions +=
+          solver.getCallAutomaton().getNumberOfTransitions()
+              + solver.getFieldAutomaton().getNumberOfTransitions();
+    }
+    if (backwardSolverIns != null) {
+      transitions +=
+          backwardSolverIns.getCallAutomaton().getNumberOfTransitions()
+              + backwardSolverIns.getFieldAutomaton().getNumberOfTransitions();
+    }
+    return (getNumberOfRules() + transitions) * RETAINED_BYTES_PER_ELEMENT;
+  }
+
+  private long getNumberOfRules() {
+    long rules = 0;
+    for (ForwardBoomerangSolver<W> solver : queryToSolvers.values()) {
+      rules += solver.getCallPDS().getNumberOfRules() + solver.getFieldPDS().getNumberOfRules();
+    }
+    if (backwardSolverIns != null) {
+      rules +=
+          backwardSolverIns.getCallPDS().getNumberOfRules()
+              + backwardSolverIns.getFieldPDS().getNumberOfRules();
+    }
+    return rules;
+  }
+
   private ObservableICFG<Statement, Method> bwicfg;
   private EmptyCalleeFlow forwardEmptyCalleeFlow = new ForwardEmptyCalleeFlow();
   private EmptyCalleeFlow backwardEmptyCalleeFlow = new BackwardEmptyCalleeFlow();
 
-  private NestedWeightedPAutomatons<Edge, INode<Val>, W> backwardCallSummaries =
-      new SummaryNestedWeightedPAutomatons<>();
-  private NestedWeightedPAutomatons<Field, INode<Node<Edge, Val>>, W> backwardFieldSummaries =
+  private SummaryNestedWeightedPAutomatons<Edge, INode<Val>, W> backwardCallSummaries =
       new SummaryNestedWeightedPAutomatons<>();
-  private NestedWeightedPAutomatons<Edge, INode<Val>, W> forwardCallSummaries =
+  private SummaryNestedWeightedPAutomatons<Field, INode<Node<Edge, Val>>, W>
+      backwardFieldSummaries = new SummaryNestedWeightedPAutomatons<>();
+  private SummaryNestedWeightedPAutomatons<Edge, INode<Val>, W> forwardCallSummaries =
       new SummaryNestedWeightedPAutomatons<>();
-  private NestedWeightedPAutomatons<Field, INode<Node<Edge, Val>>, W> forwardFieldSummaries =
+  private SummaryNestedWeightedPAutomatons<Field, INode<Node<Edge, Val>>, W> forwardFieldSummaries =
       new SummaryNestedWeightedPAutomatons<>();
   private DefaultValueMap<FieldWritePOI, FieldWritePOI> fieldWrites =
       new DefaultValueMap<FieldWritePOI, FieldWritePOI>() {
@@ -619,6 +949,170 @@ public abstract class WeightedBoomerang<W extends Weight> {
     this.fieldWrites.clear();
   }
 
+  /**
+   * Invalidates all solver state that depends on one of the changed methods. A solver depends on a
+   * method if one of its call rules is labelled by a control-flow edge of the method. Solvers that
+   * exchanged data with an invalidated solver, either as parent or child in the {@link QueryGraph}
+   * or via a field write {@link PointOfIndirection}, are invalidated as well. As all backward
+   * queries share one solver, they are invalidated together. The call and field summaries may carry
+   * listeners of any solver that used them, hence all summaries of a direction are removed once a
+   * solver of that direction is dropped. The precomputed call graph is expected to already reflect
+   * the changes, the control-flow graph and the call graph discovered by this solver forget what
+   * they recorded for the changed methods.
+   *
+   * @return The root queries that must be solved again.
+   */
+  public Set<Query> invalidate(Collection<Method> changedMethods) {
+    Set<Method> changed = Sets.newHashSet(changedMethods);
+    Set<Query> affected = Sets.newHashSet();
+    for (Entry<ForwardQuery, ForwardBoomerangSolver<W>> e : queryToSolvers.entrySet()) {
+      if (dependsOn(e.getValue(), changed)) {
+        affected.add(e.getKey());
+      }
+    }
+    if (backwardSolverIns != null && dependsOn(backwardSolverIns, changed)) {
+      affected.addAll(queryToBackwardSolvers.keySet());
+    }
+
+    Map<AbstractBoomerangSolver<W>, Query> solverToQuery = new HashMap<>();
+    for (Entry<ForwardQuery, ForwardBoomerangSolver<W>> e : queryToSolvers.entrySet()) {
+      solverToQuery.put(e.getValue(), e.getKey());
+    }
+    Multimap<Query, Query> poiDependencies = HashMultimap.create();
+    for (SolverPair pair : poiListeners.keySet()) {
+      Query flow = solverToQuery.get(pair.flowSolver);
+      Query base = solverToQuery.get(pair.baseSolver);
+      if (flow != null && base != null) {
+        poiDependencies.put(flow, base);
+        poiDependencies.put(base, flow);
+      }
+    }
+    LinkedList<Query> worklist = Lists.newLinkedList(affected);
+    while (!worklist.isEmpty()) {
+      Query q = worklist.poll();
+      Set<Query> dependencies = queryGraph.getAdjacentQueries(q);
+      dependencies.addAll(poiDependencies.get(q));
+      if (q instanceof BackwardQuery) {
+        dependencies.addAll(queryToBackwardSolvers.keySet());
+      }
+      for (Query d : dependencies) {
+        if (affected.add(d)) {
+          worklist.add(d);
+        }
+      }
+    }
+
+    Set<AbstractBoomerangSolver<W>> dropped = Sets.newHashSet();
+    boolean droppedForward = false;
+    boolean droppedBackward = false;
+    for (Query q : affected) {
+      if (q instanceof ForwardQuery) {
+        ForwardBoomerangSolver<W> solver = queryToSolvers.remove(q);
+        if (solver != null) {
+          stats.unregisterSolver(q);
+          dropped.add(solver);
+          solverAccessOrder.remove(q);
+          droppedForward = true;
+        }
+      } else if (backwardSolverIns != null) {
+        droppedBackward = true;
+        dropped.add(backwardSolverIns);
+        backwardSolverIns = null;
+        queryToBackwardSolvers.clear();
+        rootQuery = null;
+      }
+    }
+    for (AbstractBoomerangSolver<W> solver : dropped) {
+      solver.unregisterAllListeners();
+    }
+    poiListeners
+        .keySet()
+        .removeIf(p -> dropped.contains(p.flowSolver) || dropped.contains(p.baseSolver));
+    activatedPoi
+        .keySet()
+        .removeIf(p -> dropped.contains(p.flowSolver) || dropped.contains(p.baseSolver));
+    fieldWrites.keySet().removeIf(poi -> changed.contains(poi.getCfgEdge().getMethod()));
+    for (FieldWritePOI poi : fieldWrites.values()) {
+      poi.removeAllocations(affected);
+    }
+    // The nested automata of the summaries carry listeners of the solvers that used them, a summary
+    // kept for a dropped solver would keep propagating into it.
+    final boolean forward = droppedForward;
+    final boolean backward = droppedBackward;
+    forwardCallSummaries.removeSummaryAutomata(
+        aut -> forward || callAutomatonDependsOn(aut, changed));
+    backwardCallSummaries.removeSummaryAutomata(
+        aut -> backward || callAutomatonDependsOn(aut, changed));
+    forwardFieldSummaries.removeSummaryAutomata(
+        aut -> forward || fieldAutomatonDependsOn(aut, changed));
+    backwardFieldSummaries.removeSummaryAutomata(
+        aut -> backward || fieldAutomatonDependsOn(aut, changed));
+    visitedMethods.removeAll(changed);
+    for (Method m : changed) {
+      cfg.invalidate(m);
+      icfg.invalidate(m);
+    }
+    Set<Query> roots = queryGraph.remove(affected);
+    LOGGER.debug(
+        "Invalidated {} queries for {} changed methods, {} roots to re-solve",
+        affected.size(),
+        changed.size(),
+        roots.size());
+    return roots;
+  }
+
+  /**
+   * Invalidates the state depending on the changed methods and solves the affected root queries
+   * again, reusing the state of all other solvers.
+   *
+   * @return The new results of the re-solved root queries.
+   */
+  public Map<Query, AbstractBoomerangResults<W>> reanalyze(Collection<Method> changedMethods) {
+    if (!options.allowMultipleQueries()) {
+      throw new RuntimeException(
+          "Incremental re-analysis requires the option allowMultipleQueries to be enabled.");
+    }
+    Map<Query, AbstractBoomerangResults<W>> results = new HashMap<>();
+    for (Query root : invalidate(changedMethods)) {
+      if (root instanceof ForwardQuery) {
+        results.put(root, solve((ForwardQuery) root));
+      } else {
+        results.put(root, solve((BackwardQuery) root));
+      }
+    }
+    return results;
+  }
+
+  private boolean dependsOn(AbstractBoomerangSolver<W> solver, Set<Method> changed) {
+    for (Rule<Edge, INode<Val>, W> rule : solver.getCallPDS().getAllRules()) {
+      if (changed.contains(rule.getL1().getMethod())
+          || (rule.getL2() != null && changed.contains(rule.getL2().getMethod()))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean callAutomatonDependsOn(
+      WeightedPAutomaton<Edge, INode<Val>, W> aut, Set<Method> changed) {
+    for (Transition<Edge, INode<Val>> t : aut.getTransitions()) {
+      if (changed.contains(t.getLabel().getMethod())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean fieldAutomatonDependsOn(
+      WeightedPAutomaton<Field, INode<Node<Edge, Val>>, W> aut, Set<Method> changed) {
+    for (Transition<Field, INode<Node<Edge, Val>>> t : aut.getTransitions()) {
+      if (changed.contains(t.getStart().fact().stmt().getMethod())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   public DefaultValueMap<BackwardQuery, BackwardBoomerangSolver<W>> getBackwardSolvers() {
     return queryToBackwardSolvers;
   }
@@ -882,15 +1376,21 @@ public abstract class WeightedBoomerang<W extends Weight> {
   }
 
   public ForwardBoomerangResults<W> solve(ForwardQuery query) {
+    return solve(query, (CancellationToken) null);
+  }
+
+  public ForwardBoomerangResults<W> solve(ForwardQuery query, CancellationToken token) {
     if (!options.allowMultipleQueries() && solving) {
       throw new RuntimeException(
           "One cannot re-use the same Boomerang solver for more than one query, unless option allowMultipleQueries is enabled. If allowMultipleQueries is enabled, ensure to call unregisterAllListeners() on this instance upon termination of all queries.");
     }
     solving = true;
+    CancellationToken outerToken = enterQuery(token);
     if (!analysisWatch.isRunning()) {
       analysisWatch.start();
     }
     boolean timedout = false;
+    boolean memoryBudgetExceeded = false;
     try {
       queryGraph.addRoot(query);
       LOGGER.trace("Starting forward analysis of: {}", query);
@@ -904,6 +1404,7 @@ public abstract class WeightedBoomerang<W extends Weight> {
       icfg.computeFallback();
     } catch (BoomerangTimeoutException e) {
       timedout = true;
+      memoryBudgetExceeded = isMemoryBudgetExceeded(e);
       LOGGER.trace(
           "Timeout ({}) of query: {}, visited methods {}",
           analysisWatch,
@@ -919,14 +1420,18 @@ public abstract class WeightedBoomerang<W extends Weight> {
     if (analysisWatch.isRunning()) {
       analysisWatch.stop();
     }
+    exitQuery(outerToken);
     return new ForwardBoomerangResults<W>(
         query,
         icfg(),
         cfg(),
         timedout,
+        memoryBudgetExceeded,
         this.queryToSolvers,
         getStats(),
         analysisWatch,
+        Math.max(peakMemory, Util.getCurrentlyUsedMemory()),
+        getAllocatedBytes(),
         visitedMethods,
         options.trackDataFlowPath(),
         options.prunePathConditions(),
@@ -937,23 +1442,37 @@ public abstract class WeightedBoomerang<W extends Weight> {
     return solve(query, true);
   }
 
+  public BackwardBoomerangResults<W> solve(BackwardQuery query, CancellationToken token) {
+    return solve(query, true, token);
+  }
+
   public BackwardBoomerangResults<W> solve(BackwardQuery query, boolean timing) {
+    return solve(query, timing, null);
+  }
+
+  private BackwardBoomerangResults<W> solve(
+      BackwardQuery query, boolean timing, CancellationToken token) {
     if (!options.allowMultipleQueries() && solving) {
       throw new RuntimeException(
           "One cannot re-use the same Boomerang solver for more than one query, unless option allowMultipleQueries is enabled. If allowMultipleQueries is enabled, ensure to call unregisterAllListeners() on this instance upon termination of all queries.");
     }
     solving = true;
+    CancellationToken outerToken = enterQuery(token);
     if (timing && !analysisWatch.isRunning()) {
       analysisWatch.start();
     }
     boolean timedout = false;
+    boolean memoryBudgetExceeded = false;
     try {
       queryGraph.addRoot(query);
       LOGGER.trace("Starting backward analysis of: {}", query);
       backwardSolve(query);
     } catch (BoomerangTimeoutException e) {
       timedout = true;
+      memoryBudgetExceeded = isMemoryBudgetExceeded(e);
       LOGGER.info("Timeout ({}) of query: {} ", analysisWatch, query);
+    } finally {
+      exitQuery(outerToken);
     }
     debugOutput();
     // printAllBackwardCallAutomatonFlow();
@@ -964,7 +1483,86 @@ public abstract class WeightedBoomerang<W extends Weight> {
       analysisWatch.stop();
     }
     return new BackwardBoomerangResults<W>(
-        query, timedout, this.queryToSolvers, backwardSolverIns, getStats(), analysisWatch);
+        query,
+        timedout,
+        memoryBudgetExceeded,
+        this.queryToSolvers,
+        backwardSolverIns,
+        getStats(),
+        analysisWatch,
+        Math.max(peakMemory, Util.getCurrentlyUsedMemory()),
+        getAllocatedBytes());
+  }
+
+  /**
+   * Solves a batch of backward queries within one analysis run, as a loop of {@link
+   * #solve(BackwardQuery)} calls on a solver that allows multiple queries would. All queries
+   * propagate through the one backward solver of this instance and share its summaries and the
+   * forward solvers of the allocation sites discovered by earlier queries of the batch. Duplicate
+   * queries are solved once, and queries of the same method are solved back to back. The batch runs
+   * under a single time budget and token instead of one per query.
+   *
+   * @return The results of each query, in the iteration order of the given queries. If the batch
+   *     times out or is cancelled, the results of all queries not completed by then are flagged as
+   *     timed out.
+   */
+  public Map<BackwardQuery, BackwardBoomerangResults<W>> solve(Collection<BackwardQuery> queries) {
+    if (!options.allowMultipleQueries() && solving) {
+      throw new RuntimeException(
+          "One cannot re-use the same Boomerang solver for more than one query, unless option allowMultipleQueries is enabled. If allowMultipleQueries is enabled, ensure to call unregisterAllListeners() on this instance upon termination of all queries.");
+    }
+    solving = true;
+    CancellationToken outerToken = enterQuery(null);
+    if (!analysisWatch.isRunning()) {
+      analysisWatch.start();
+    }
+    Set<BackwardQuery> distinct = Sets.newLinkedHashSet(queries);
+    ListMultimap<Method, BackwardQuery> byMethod =
+        Multimaps.index(distinct, q -> q.cfgEdge().getMethod());
+    Set<BackwardQuery> completed = Sets.newHashSet();
+    boolean memoryBudgetExceeded = false;
+    try {
+      for (BackwardQuery query : byMethod.values()) {
+        queryGraph.addRoot(query);
+        LOGGER.trace("Starting backward analysis of: {}", query);
+        backwardSolve(query);
+        completed.add(query);
+      }
+    } catch (BoomerangTimeoutException e) {
+      memoryBudgetExceeded = isMemoryBudgetExceeded(e);
+      LOGGER.info(
+          "Timeout ({}) of batch after {}/{} queries",
+          analysisWatch,
+          completed.size(),
+          distinct.size());
+    } finally {
+      exitQuery(outerToken);
+    }
+    debugOutput();
+    if (!options.allowMultipleQueries()) {
+      unregisterAllListeners();
+    }
+    if (analysisWatch.isRunning()) {
+      analysisWatch.stop();
+    }
+    long maxMemory = Math.max(peakMemory, Util.getCurrentlyUsedMemory());
+    long allocatedMemory = getAllocatedBytes();
+    Map<BackwardQuery, BackwardBoomerangResults<W>> results = new LinkedHashMap<>();
+    for (BackwardQuery query : distinct) {
+      results.put(
+          query,
+          new BackwardBoomerangResults<W>(
+              query,
+              !completed.contains(query),
+              memoryBudgetExceeded && !completed.contains(query),
+              this.queryToSolvers,
+              backwardSolverIns,
+              getStats(),
+              analysisWatch,
+              maxMemory,
+              allocatedMemory));
+    }
+    return results;
   }
 
   public void debugOutput() {
@@ -1231,6 +1829,26 @@ public abstract class WeightedBoomerang<W extends Weight> {
     }
   }
 
+  /**
+   * Passes the statements and values reached by the forward query to the visitor while the query is
+   * being solved. The visitor receives the weight of each call automaton transition as it is added,
+   * which is not yet combined into the final weight reported by {@link
+   * ForwardBoomerangResults#visitStatementValWeights(ResultVisitor)}. Register before solving.
+   */
+  public void registerResultVisitor(ForwardQuery query, ResultVisitor<W> visitor) {
+    Edge epsilon = new Edge(Statement.epsilon(), Statement.epsilon());
+    queryToSolvers
+        .getOrCreate(query)
+        .getCallAutomaton()
+        .registerListener(
+            (t, w, aut) -> {
+              if (t.getLabel().equals(epsilon)) return;
+              if (t.getStart().fact().isLocal()
+                  && !t.getLabel().getMethod().equals(t.getStart().fact().m())) return;
+              visitor.visit(t.getLabel(), t.getStart().fact(), w);
+            });
+  }
+
   public void registerSolverCreationListener(SolverCreationListener<W> l) {
     if (solverCreationListeners.add(l)) {
       for (Entry<ForwardQuery, ForwardBoomerangSolver<W>> e :
@@ -1260,6 +1878,33 @@ public abstract class WeightedBoomerang<W extends Weight> {
     return this.options;
   }
 
+  public ReceiverPointsToCache getReceiverPointsToCache() {
+    return options.getReceiverPointsToCache();
+  }
+
+  /** @return The dispatch cache of the options, or else the own cache of this solver. */
+  public DispatchCache getDispatchCache() {
+    if (dispatchCache == null) {
+      DispatchCache shared = options.getDispatchCache();
+      dispatchCache = shared != null ? shared : new DispatchCache();
+    }
+    return dispatchCache;
+  }
+
+  /**
+   * Starts the forward solver of an allocation site that a backward query of an earlier solver
+   * found, as this solver's backward query would on finding it, and lets it return unbalanced to
+   * the call sites that backward query allowed. Used for the receivers taken from the {@link
+   * ReceiverPointsToCache}.
+   */
+  public void solveAllocationSite(
+      ForwardQuery allocationSite, Multimap<Method, Edge> unbalancedReturns) {
+    AbstractBoomerangSolver<W> solver = forwardSolve(allocationSite);
+    for (Entry<Method, Edge> e : unbalancedReturns.entries()) {
+      solver.allowUnbalanced(e.getKey(), e.getValue());
+    }
+  }
+
   public CallGraph getCallGraph() {
     return this.callGraph;
   }
@@ -11,54 +11,224 @@
  */
 package boomerang;
 
+import boomerang.QueryService.SolverFactory;
+import boomerang.results.ForwardBoomerangResults;
+import boomerang.scene.AllocVal;
 import boomerang.scene.AnalysisScope;
 import boomerang.scene.CallGraph;
 import boomerang.scene.ControlFlowGraph.Edge;
 import boomerang.scene.DataFlowScope;
 import boomerang.scene.Statement;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import wpds.impl.Weight;
 
 public abstract class WholeProgramBoomerang<W extends Weight> extends WeightedBoomerang<W> {
-  private int reachableMethodCount;
-  private int allocationSites;
+  private static final Logger LOGGER = LoggerFactory.getLogger(WholeProgramBoomerang.class);
   private CallGraph callGraph;
+  private DataFlowScope scope;
+  private ProgressListener<W> progressListener = new LoggingProgressListener<>();
+
+  /**
+   * Receives the progress of a whole-program analysis. Per-seed results are reported in a
+   * deterministic order, namely the order of the seeds' string representations, and never
+   * concurrently.
+   */
+  public interface ProgressListener<W extends Weight> {
+    default void onStart(int seeds) {}
+
+    default void onSeedFinished(ForwardQuery seed, ForwardBoomerangResults<W> results) {}
+
+    default void onProgress(int finishedSeeds, int totalSeeds, double seedsPerSecond) {}
+
+    default void onFinished(int seeds, long elapsedMillis) {}
+  }
 
   public WholeProgramBoomerang(CallGraph cg, DataFlowScope scope, BoomerangOptions opts) {
     super(cg, scope, opts);
     this.callGraph = cg;
+    this.scope = scope;
   }
 
   public WholeProgramBoomerang(CallGraph cg, DataFlowScope scope) {
     this(cg, scope, new DefaultBoomerangOptions());
   }
 
+  public void setProgressListener(ProgressListener<W> progressListener) {
+    this.progressListener = progressListener;
+  }
+
+  /**
+   * Solves all seeds one after another on this solver. The seeds share the solver state, such that
+   * a seed may also report flows of objects propagated by the solvers of earlier seeds.
+   */
   public void wholeProgramAnalysis() {
-    long before = System.currentTimeMillis();
-    AnalysisScope scope =
+    Stopwatch watch = Stopwatch.createStarted();
+    List<ForwardQuery> seeds = computeSeeds();
+    progressListener.onStart(seeds.size());
+    int finished = 0;
+    for (ForwardQuery s : seeds) {
+      ForwardBoomerangResults<W> results = solve(s);
+      progressListener.onSeedFinished(s, results);
+      progressListener.onProgress(++finished, seeds.size(), throughput(finished, watch));
+    }
+    progressListener.onFinished(seeds.size(), watch.elapsed(TimeUnit.MILLISECONDS));
+    LOGGER.info("Total solvers: {}", getSolvers().size());
+    LOGGER.info("{}", getStats());
+  }
+
+  /**
+   * Solves all seeds in parallel on a work-stealing {@link ForkJoinPool}. Each seed is solved by a
+   * fresh solver created by the factory, while the call graph and data-flow scope are shared.
+   * Unlike {@link #wholeProgramAnalysis()}, the results of a seed are hence the ones of solving it
+   * alone, and this solver's own state and stats remain untouched. The results of seeds that
+   * complete ahead of an earlier seed are buffered until they can be handed to the {@link
+   * ProgressListener} in the same order as in {@link #wholeProgramAnalysis()}, and are not retained
+   * afterwards. At most maxInFlightSeeds seeds are solved or have their results buffered at any
+   * time, which bounds the memory held by the results.
+   */
+  public void wholeProgramAnalysis(
+      SolverFactory<W> solverFactory, int parallelism, int maxInFlightSeeds) {
+    if (maxInFlightSeeds <= 0) {
+      throw new IllegalArgumentException("maxInFlightSeeds must be positive");
+    }
+    Stopwatch watch = Stopwatch.createStarted();
+    List<ForwardQuery> seeds = computeSeeds();
+    progressListener.onStart(seeds.size());
+    QueryService.prepareSharedScope(callGraph);
+    OrderedDelivery delivery = new OrderedDelivery(seeds, maxInFlightSeeds, watch);
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      for (int i = 0; i < seeds.size(); i++) {
+        delivery.acquire();
+        final int index = i;
+        pool.execute(
+            () -> {
+              ForwardBoomerangResults<W> results = null;
+              try {
+                results = solverFactory.create(callGraph, scope).solve(seeds.get(index));
+              } catch (Throwable e) {
+                LOGGER.error("Solving seed {} crashed", seeds.get(index), e);
+              } finally {
+                delivery.finished(index, results);
+              }
+            });
+      }
+      delivery.awaitAll();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted during whole-program analysis", e);
+    } finally {
+      pool.shutdownNow();
+    }
+    progressListener.onFinished(seeds.size(), watch.elapsed(TimeUnit.MILLISECONDS));
+  }
+
+  private List<ForwardQuery> computeSeeds() {
+    AnalysisScope analysisScope =
         new AnalysisScope(callGraph) {
           @Override
           protected Collection<? extends Query> generate(Edge cfgEdge) {
             Statement stmt = cfgEdge.getStart();
             if (stmt.isAssign()) {
               if (stmt.getRightOp().isNewExpr()) {
-                return Collections.singleton(new ForwardQuery(cfgEdge, stmt.getRightOp()));
+                return Collections.singleton(
+                    new ForwardQuery(
+                        cfgEdge, new AllocVal(stmt.getLeftOp(), stmt, stmt.getRightOp())));
               }
             }
             return Collections.emptySet();
           }
         };
-    for (Query s : scope.computeSeeds()) {
-      solve((ForwardQuery) s);
+    List<ForwardQuery> seeds = Lists.newArrayList();
+    for (Query s : analysisScope.computeSeeds()) {
+      seeds.add((ForwardQuery) s);
+    }
+    seeds.sort(Comparator.comparing(Query::toString));
+    return seeds;
+  }
+
+  private static double throughput(int finished, Stopwatch watch) {
+    long elapsed = Math.max(1, watch.elapsed(TimeUnit.MILLISECONDS));
+    return finished * 1000.0 / elapsed;
+  }
+
+  /**
+   * Reports results in seed order. A seed holds its in-flight permit until its results are
+   * reported, such that at most as many results as permits wait for an earlier seed.
+   */
+  private class OrderedDelivery {
+    private final List<ForwardQuery> seeds;
+    private final Semaphore inFlight;
+    private final CountDownLatch reported;
+    private final Stopwatch watch;
+    private final Map<Integer, ForwardBoomerangResults<W>> completed = Maps.newHashMap();
+    private int next;
+
+    private OrderedDelivery(List<ForwardQuery> seeds, int maxInFlightSeeds, Stopwatch watch) {
+      this.seeds = seeds;
+      this.inFlight = new Semaphore(maxInFlightSeeds);
+      this.reported = new CountDownLatch(seeds.size());
+      this.watch = watch;
     }
 
-    long after = System.currentTimeMillis();
-    System.out.println("Analysis Time (in ms):\t" + (after - before));
-    System.out.println("Analyzed methods:\t" + reachableMethodCount);
-    System.out.println("Total solvers:\t" + this.getSolvers().size());
-    System.out.println("Allocation Sites:\t" + allocationSites);
-    System.out.println(options.statsFactory());
+    private void acquire() throws InterruptedException {
+      inFlight.acquire();
+    }
+
+    private synchronized void finished(int index, ForwardBoomerangResults<W> results) {
+      completed.put(index, results);
+      while (completed.containsKey(next)) {
+        ForwardBoomerangResults<W> r = completed.remove(next);
+        if (r != null) {
+          progressListener.onSeedFinished(seeds.get(next), r);
+        }
+        next++;
+        progressListener.onProgress(next, seeds.size(), throughput(next, watch));
+        inFlight.release();
+        reported.countDown();
+      }
+    }
+
+    private void awaitAll() throws InterruptedException {
+      reported.await();
+    }
+  }
+
+  private static class LoggingProgressListener<W extends Weight> implements ProgressListener<W> {
+
+    @Override
+    public void onStart(int seeds) {
+      LOGGER.info("Analysing {} allocation sites", seeds);
+    }
+
+    @Override
+    public void onProgress(int finishedSeeds, int totalSeeds, double seedsPerSecond) {
+      if (LOGGER.isDebugEnabled() && finishedSeeds % 100 == 0) {
+        LOGGER.debug(
+            "Analysed {}/{} allocation sites ({} seeds/s)",
+            finishedSeeds,
+            totalSeeds,
+            String.format("%.1f", seedsPerSecond));
+      }
+    }
+
+    @Override
+    public void onFinished(int seeds, long elapsedMillis) {
+      LOGGER.info("Analysed {} allocation sites in {} ms", seeds, elapsedMillis);
+    }
   }
 
   @Override
@@ -66,4 +66,9 @@ public class BackwardsObservableICFG implements ObservableICFG<Statement, Method
   public void addEdges(Edge e) {
     this.delegate.addEdges(e);
   }
+
+  @Override
+  public void invalidate(Method method) {
+    delegate.invalidate(method);
+  }
 }
@@ -6,6 +6,7 @@ import boomerang.ForwardQuery;
 import boomerang.Query;
 import boomerang.SolverCreationListener;
 import boomerang.WeightedBoomerang;
+import boomerang.callgraph.ReceiverPointsToCache.Receiver;
 import boomerang.results.ExtractAllocationSiteStateListener;
 import boomerang.scene.CallGraph;
 import boomerang.scene.ControlFlowGraph.Edge;
@@ -20,17 +21,21 @@ import boomerang.scene.WrappedClass;
 import boomerang.solver.AbstractBoomerangSolver;
 import boomerang.solver.ForwardBoomerangSolver;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
 import com.google.common.collect.Sets;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import sync.pds.solver.nodes.INode;
-import sync.pds.solver.nodes.Node;
 import wpds.impl.Weight;
 
 public class BoomerangResolver implements ICallerCalleeResolutionStrategy {
@@ -48,16 +53,20 @@ public class BoomerangResolver implements ICallerCalleeResolutionStrategy {
   private static final String THREAD_RUN_SUB_SIGNATURE = "void run()";
 
   private static NoCalleeFoundFallbackOptions FALLBACK_OPTION = NoCalleeFoundFallbackOptions.BYPASS;
-  private static Multimap<DeclaredMethod, WrappedClass> didNotFindMethodLog = HashMultimap.create();
+  private static Multimap<DeclaredMethod, WrappedClass> didNotFindMethodLog =
+      Multimaps.synchronizedSetMultimap(HashMultimap.create());
 
   private CallGraph precomputedCallGraph;
+  private DispatchCache dispatchCache;
   private WeightedBoomerang<? extends Weight> solver;
   private Set<Statement> queriedInvokeExprAndAllocationSitesFound = Sets.newHashSet();
   private Set<Statement> queriedInvokeExpr = Sets.newHashSet();;
+  private Map<Statement, PendingReceiver> pendingReceivers = Maps.newHashMap();
 
   public BoomerangResolver(CallGraph cg, DataFlowScope scope) {
     this.solver = new Boomerang(cg, scope);
     this.precomputedCallGraph = cg;
+    this.dispatchCache = solver.getDispatchCache();
   }
 
   public BoomerangResolver(WeightedBoomerang<? extends Weight> solver, CallGraph initialCallGraph) {
@@ -70,6 +79,7 @@ public class BoomerangResolver implements ICallerCalleeResolutionStrategy {
       CallGraph initialCallGraph) {
     this.solver = solver;
     this.precomputedCallGraph = initialCallGraph;
+    this.dispatchCache = solver.getDispatchCache();
   }
 
   @Override
@@ -95,6 +105,8 @@ public class BoomerangResolver implements ICallerCalleeResolutionStrategy {
       }
     }
     logger.debug("Refined edges {}, fallback to precomputed {}", refined, precomputed);
+    logger.debug("{}", dispatchCache);
+    publishReceivers();
   }
 
   @Override
@@ -132,28 +144,149 @@ public class BoomerangResolver implements ICallerCalleeResolutionStrategy {
     Val value = invokeExpr.getBase();
 
     Collection<Method> res = new ArrayList<>();
+    ReceiverPointsToCache receiverCache = solver.getReceiverPointsToCache();
+    if (receiverCache != null) {
+      Receiver receiver = receiverCache.get(resolvingStmt);
+      if (receiver != null) {
+        if (!receiver.getAllocationSites().isEmpty()) {
+          queriedInvokeExprAndAllocationSitesFound.add(resolvingStmt);
+        }
+        for (ForwardQuery allocationSite : receiver.getAllocationSites()) {
+          solver.solveAllocationSite(allocationSite, receiver.getUnbalancedReturns(allocationSite));
+          res.addAll(getCalleesForType(invokeExpr, allocationSite.getType()));
+        }
+        return res;
+      }
+    }
 
+    PendingReceiver pending = null;
+    if (receiverCache != null) {
+      pending =
+          pendingReceivers.computeIfAbsent(
+              resolvingStmt, s -> new PendingReceiver(solver.getAbortedQueryCount()));
+    }
     // Not using cfg here because we are iterating backward
+    List<IterateSolvers> callbacks = Lists.newArrayList();
     for (Statement pred :
         resolvingStmt.getMethod().getControlFlowGraph().getPredsOf(resolvingStmt)) {
       BackwardQuery query = BackwardQuery.make(new Edge(pred, resolvingStmt), value);
       solver.solve(query, false);
-      res.addAll(forAnyAllocationSiteOfQuery(query, resolvingStmt, pred));
+      if (pending != null) {
+        pending.queries.add(query);
+      }
+      callbacks.add(forAnyAllocationSiteOfQuery(query, resolvingStmt, pred));
+    }
+    for (IterateSolvers callback : callbacks) {
+      res.addAll(callback.resolved());
     }
-
     return res;
   }
 
+  @Override
+  public void invalidate(Method method) {
+    queriedInvokeExpr.removeIf(s -> s.getMethod().equals(method));
+    queriedInvokeExprAndAllocationSitesFound.removeIf(s -> s.getMethod().equals(method));
+    pendingReceivers.keySet().removeIf(s -> s.getMethod().equals(method));
+  }
+
   @SuppressWarnings("rawtypes")
-  private Collection<Method> forAnyAllocationSiteOfQuery(
+  private IterateSolvers forAnyAllocationSiteOfQuery(
       BackwardQuery query, Statement resolvingStmt, Statement callSite) {
     IterateSolvers callback = new IterateSolvers(query, callSite, resolvingStmt);
     solver.registerSolverCreationListener(callback);
-    return callback.results;
+    return callback;
+  }
+
+  /**
+   * Stores the allocation sites found for the receivers of the call sites resolved by this solver
+   * in the {@link ReceiverPointsToCache}. The backward queries of the receivers keep finding
+   * allocation sites until the solver reaches its fixed point, hence the allocation sites are only
+   * complete once the outermost query terminated and the flows unblocked by the fallback are
+   * propagated. Receivers of call sites resolved before an aborted query are discarded.
+   */
+  private void publishReceivers() {
+    ReceiverPointsToCache receiverCache = solver.getReceiverPointsToCache();
+    if (receiverCache == null || solver.isSolvingNestedQuery()) {
+      return;
+    }
+    for (Map.Entry<Statement, PendingReceiver> e : pendingReceivers.entrySet()) {
+      if (e.getValue().abortedQueries == solver.getAbortedQueryCount()) {
+        receiverCache.put(e.getKey(), receiver(solver, e.getValue().queries));
+      }
+    }
+    pendingReceivers.clear();
+  }
+
+  /**
+   * Collects the allocation sites of the queries from all forward solvers, like {@link
+   * boomerang.results.BackwardBoomerangResults#getAllocationSites()}, each with the unbalanced
+   * returns its solver was allowed.
+   */
+  private static <W extends Weight> Receiver receiver(
+      WeightedBoomerang<W> solver, Collection<BackwardQuery> queries) {
+    Map<ForwardQuery, Multimap<Method, Edge>> allocationSites = Maps.newLinkedHashMap();
+    for (Map.Entry<ForwardQuery, ForwardBoomerangSolver<W>> e :
+        Lists.newArrayList(solver.getSolvers().entrySet())) {
+      ForwardBoomerangSolver<W> forwardSolver = e.getValue();
+      for (BackwardQuery query : queries) {
+        forwardSolver
+            .getFieldAutomaton()
+            .registerListener(
+                new ExtractAllocationSiteStateListener<W>(
+                    forwardSolver.createQueryNodeField(e.getKey()), query, e.getKey()) {
+                  @Override
+                  protected void allocationSiteFound(
+                      ForwardQuery allocationSite, BackwardQuery query) {
+                    allocationSites.put(allocationSite, forwardSolver.getUnbalancedReturns());
+                  }
+                });
+      }
+    }
+    return new Receiver(allocationSites);
+  }
+
+  private void addCallees(Statement callSite, Collection<Method> callees) {
+    if (!(solver.icfg() instanceof ObservableDynamicICFG)) {
+      return;
+    }
+    ObservableDynamicICFG icfg = (ObservableDynamicICFG) solver.icfg();
+    for (Method callee : callees) {
+      icfg.addCallIfNotInGraph(callSite, callee);
+    }
+  }
+
+  private Collection<Method> getCalleesForType(InvokeExpr invokeExpr, Type type) {
+    if (type.isRefType()) {
+      return getMethodFromClassOrFromSuperclass(invokeExpr.getMethod(), type.getWrappedClass());
+    } else if (type.isArrayType()) {
+      Type base = type.getArrayBaseType();
+      if (base.isRefType()) {
+        return getMethodFromClassOrFromSuperclass(invokeExpr.getMethod(), base.getWrappedClass());
+      }
+    }
+    return Collections.emptySet();
+  }
+
+  /**
+   * Fills the dispatch cache for the call sites of the reachable methods of the call graph, such
+   * that solvers sharing the cache run in parallel mostly read from it.
+   */
+  public static void precomputeDispatch(CallGraph callGraph, DispatchCache cache) {
+    cache.precompute(callGraph, BoomerangResolver::lookupMethodFromClassOrFromSuperclass);
+  }
+
+  public DispatchCache getDispatchCache() {
+    return dispatchCache;
   }
 
   private Collection<Method> getMethodFromClassOrFromSuperclass(
       DeclaredMethod method, WrappedClass sootClass) {
+    return dispatchCache.getTargets(
+        method, sootClass, BoomerangResolver::lookupMethodFromClassOrFromSuperclass);
+  }
+
+  private static ImmutableSet<Method> lookupMethodFromClassOrFromSuperclass(
+      DeclaredMethod method, WrappedClass sootClass) {
     Set<Method> res = Sets.newHashSet();
     WrappedClass originalClass = sootClass;
     while (sootClass != null) {
@@ -163,25 +296,25 @@ public class BoomerangResolver implements ICallerCalleeResolutionStrategy {
         }
       }
       handlingForThreading(method, sootClass, res);
-      if (!res.isEmpty()) return res;
+      if (!res.isEmpty()) return ImmutableSet.copyOf(res);
       if (sootClass.hasSuperclass()) {
         sootClass = sootClass.getSuperclass();
       } else {
         logDidNotFindMethod(method, originalClass);
-        return res;
+        return ImmutableSet.of();
       }
     }
     logDidNotFindMethod(method, originalClass);
-    return res;
+    return ImmutableSet.of();
   }
 
-  private void logDidNotFindMethod(DeclaredMethod method, WrappedClass originalClass) {
+  private static void logDidNotFindMethod(DeclaredMethod method, WrappedClass originalClass) {
     if (didNotFindMethodLog.put(method, originalClass)) {
       logger.debug("Did not find method {} for class {}", method, originalClass);
     }
   }
 
-  private void handlingForThreading(
+  private static void handlingForThreading(
       DeclaredMethod method, WrappedClass sootClass, Set<Method> res) {
     // throw new RuntimeException("Threading not implemented");
     // if (Scene.v().getFastHierarchy().isSubclass(sootClass,
@@ -197,53 +330,63 @@ public class BoomerangResolver implements ICallerCalleeResolutionStrategy {
     // }
   }
 
+  /** The backward queries issued for the receiver of a call site. */
+  private static class PendingReceiver {
+    private final Set<BackwardQuery> queries = Sets.newLinkedHashSet();
+    private final int abortedQueries;
+
+    private PendingReceiver(int abortedQueries) {
+      this.abortedQueries = abortedQueries;
+    }
+  }
+
   private final class IterateSolvers<W extends Weight> implements SolverCreationListener<W> {
     private final BackwardQuery query;
     private final Statement invokeExpr;
-    private final Collection<Method> results = new ArrayList<>();
+    private Collection<Method> results = new ArrayList<>();
 
     private IterateSolvers(BackwardQuery query, Statement unit, Statement invokeExpr) {
       this.query = query;
       this.invokeExpr = invokeExpr;
     }
 
+    /**
+     * @return The callees of the allocation sites found so far. Callees of allocation sites found
+     *     later are added to the call graph directly.
+     */
+    private Collection<Method> resolved() {
+      Collection<Method> res = results;
+      results = null;
+      return res;
+    }
+
     @Override
     public void onCreatedSolver(Query q, AbstractBoomerangSolver<W> solver) {
       if (solver instanceof ForwardBoomerangSolver) {
         ForwardQuery forwardQuery = (ForwardQuery) q;
-        ForwardBoomerangSolver<W> forwardBoomerangSolver = (ForwardBoomerangSolver<W>) solver;
-        for (INode<Node<Edge, Val>> initialState :
-            forwardBoomerangSolver.getFieldAutomaton().getInitialStates()) {
-          forwardBoomerangSolver
-              .getFieldAutomaton()
-              .registerListener(
-                  new ExtractAllocationSiteStateListener<W>(initialState, query, (ForwardQuery) q) {
-
-                    @Override
-                    protected void allocationSiteFound(
-                        ForwardQuery allocationSite, BackwardQuery query) {
-                      logger.debug("Found AllocationSite '{}'.", forwardQuery);
-                      queriedInvokeExprAndAllocationSitesFound.add(invokeExpr);
-                      Type type = forwardQuery.getType();
-                      if (type.isRefType()) {
-                        for (Method calleeMethod :
-                            getMethodFromClassOrFromSuperclass(
-                                invokeExpr.getInvokeExpr().getMethod(), type.getWrappedClass())) {
-                          results.add(calleeMethod);
-                        }
-                      } else if (type.isArrayType()) {
-                        Type base = type.getArrayBaseType();
-                        if (base.isRefType()) {
-                          for (Method calleeMethod :
-                              getMethodFromClassOrFromSuperclass(
-                                  invokeExpr.getInvokeExpr().getMethod(), base.getWrappedClass())) {
-                            results.add(calleeMethod);
-                          }
-                        }
-                      }
-                    };
-                  });
-        }
+        // A solver is announced before it adds its initial state, hence the state is derived
+        // from the query instead of being taken from the automaton.
+        solver
+            .getFieldAutomaton()
+            .registerListener(
+                new ExtractAllocationSiteStateListener<W>(
+                    solver.createQueryNodeField(forwardQuery), query, forwardQuery) {
+
+                  @Override
+                  protected void allocationSiteFound(
+                      ForwardQuery allocationSite, BackwardQuery query) {
+                    logger.debug("Found AllocationSite '{}'.", forwardQuery);
+                    queriedInvokeExprAndAllocationSitesFound.add(invokeExpr);
+                    Type type = forwardQuery.getType();
+                    Collection<Method> callees =
+                        getCalleesForType(invokeExpr.getInvokeExpr(), type);
+                    if (results != null) {
+                      results.addAll(callees);
+                    } else {
+                      addCallees(invokeExpr, callees);
+                    }
+                  };
+                });
       }
     }
 
@@ -0,0 +1,127 @@
+package boomerang.callgraph;
+
+import boomerang.scene.CallGraph;
+import boomerang.scene.DeclaredMethod;
+import boomerang.scene.Method;
+import boomerang.scene.Statement;
+import boomerang.scene.WrappedClass;
+import com.google.common.collect.ImmutableSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * Caches the targets of a virtual dispatch keyed by the receiver class and the sub-signature of the
+ * declared method. Each solver has its own cache unless its {@link
+ * boomerang.BoomerangOptions#getDispatchCache()} supply one, which is then shared by the resolvers
+ * of all solvers of the analysis. The cache may be accessed concurrently.
+ */
+public class DispatchCache {
+
+  private final Map<Key, ImmutableSet<Method>> targets = new ConcurrentHashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * Returns the targets of method for receivers of the given class, computing them with the lookup
+   * function upon the first request.
+   */
+  public ImmutableSet<Method> getTargets(
+      DeclaredMethod method,
+      WrappedClass receiverClass,
+      BiFunction<DeclaredMethod, WrappedClass, ImmutableSet<Method>> lookup) {
+    if (receiverClass == null) {
+      return lookup.apply(method, null);
+    }
+    Key key = new Key(receiverClass, method.getSubSignature());
+    ImmutableSet<Method> res = targets.get(key);
+    if (res != null) {
+      hits.increment();
+      return res;
+    }
+    misses.increment();
+    return targets.computeIfAbsent(key, k -> lookup.apply(method, receiverClass));
+  }
+
+  /**
+   * Fills the cache for all call sites of the reachable methods of the call graph. The declaring
+   * class of the invoked method and the declaring classes of the precomputed callees serve as
+   * receiver classes.
+   */
+  public void precompute(
+      CallGraph callGraph, BiFunction<DeclaredMethod, WrappedClass, ImmutableSet<Method>> lookup) {
+    for (Method m : callGraph.getReachableMethods()) {
+      for (Statement s : m.getStatements()) {
+        if (!s.containsInvokeExpr()) {
+          continue;
+        }
+        DeclaredMethod declared = s.getInvokeExpr().getMethod();
+        precompute(declared, declared.getDeclaringClass(), lookup);
+        for (CallGraph.Edge e : callGraph.edgesOutOf(s)) {
+          precompute(declared, e.tgt().getDeclaringClass(), lookup);
+        }
+      }
+    }
+  }
+
+  private void precompute(
+      DeclaredMethod method,
+      WrappedClass receiverClass,
+      BiFunction<DeclaredMethod, WrappedClass, ImmutableSet<Method>> lookup) {
+    if (receiverClass != null) {
+      targets.computeIfAbsent(
+          new Key(receiverClass, method.getSubSignature()),
+          k -> lookup.apply(method, receiverClass));
+    }
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public double getHitRate() {
+    long h = getHits();
+    long total = h + getMisses();
+    return total == 0 ? 0 : (double) h / total;
+  }
+
+  public int size() {
+    return targets.size();
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "DispatchCache[%s entries, %s hits, %s misses]", size(), getHits(), getMisses());
+  }
+
+  private static class Key {
+    private final WrappedClass receiverClass;
+    private final String subSignature;
+
+    private Key(WrappedClass receiverClass, String subSignature) {
+      this.receiverClass = receiverClass;
+      this.subSignature = subSignature;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * receiverClass.hashCode() + subSignature.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) return true;
+      if (!(obj instanceof Key)) return false;
+      Key other = (Key) obj;
+      return receiverClass.equals(other.receiverClass)
+          && Objects.equals(subSignature, other.subSignature);
+    }
+  }
+}
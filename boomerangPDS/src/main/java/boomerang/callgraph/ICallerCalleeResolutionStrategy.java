@@ -20,4 +20,7 @@ public interface ICallerCalleeResolutionStrategy {
   Collection<Method> resolveInstanceInvoke(Statement stmt);
 
   Method resolveStaticInvoke(InvokeExpr ie);
+
+  /** Forgets the state kept for the call sites within the method, its body changed. */
+  void invalidate(Method method);
 }
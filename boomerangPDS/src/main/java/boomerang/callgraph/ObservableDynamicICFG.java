@@ -194,4 +194,18 @@ public class ObservableDynamicICFG implements ObservableICFG<Statement, Method>
   public void addEdges(Edge e) {
     demandDrivenCallGraph.addEdge(e);
   }
+
+  @Override
+  public void invalidate(Method method) {
+    CallGraph refreshed = new CallGraph();
+    for (Edge e : demandDrivenCallGraph.getEdges()) {
+      if (!e.src().getMethod().equals(method)) {
+        refreshed.addEdge(e);
+      }
+    }
+    demandDrivenCallGraph = refreshed;
+    calleeListeners.keySet().removeIf(s -> s.getMethod().equals(method));
+    callerListeners.removeAll(method);
+    resolutionStrategy.invalidate(method);
+  }
 }
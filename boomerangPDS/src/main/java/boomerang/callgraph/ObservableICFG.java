@@ -49,4 +49,10 @@ public interface ObservableICFG<N, M> {
   void computeFallback();
 
   void addEdges(Edge e);
+
+  /**
+   * Forgets the callees of the call sites within the method and the listeners observing them, as
+   * the body of the method changed. Callees of call sites in other methods are kept.
+   */
+  void invalidate(M method);
 }
@@ -114,4 +114,9 @@ public class ObservableStaticICFG implements ObservableICFG<Statement, Method> {
   public void addEdges(Edge e) {
     throw new RuntimeException("Unnecessary");
   }
+
+  @Override
+  public void invalidate(Method method) {
+    // The precomputed call graph is expected to reflect the change
+  }
 }
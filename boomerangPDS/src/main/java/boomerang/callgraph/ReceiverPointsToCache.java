@@ -0,0 +1,133 @@
+package boomerang.callgraph;
+
+import boomerang.ForwardQuery;
+import boomerang.scene.ControlFlowGraph.Edge;
+import boomerang.scene.Method;
+import boomerang.scene.Statement;
+import boomerang.scene.Type;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Multimap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Memoises the allocation sites found for the receiver of an instance invoke. The {@link
+ * BoomerangResolver} consults the cache before it issues a backward query for the receiver, such
+ * that solvers sharing one cache query each call site only once. A resolver stores the allocation
+ * sites of a receiver only once the outermost query of its solver reached its fixed point and no
+ * query of the solver was aborted in the meantime, hence a stored entry holds all allocation sites
+ * the solver found for the receiver and not only those found by the time the call site was
+ * resolved.
+ *
+ * <p>A hit skips the backward query of the receiver, but still starts the forward solvers of the
+ * receiver's allocation sites. Each allocation site keeps the call sites its forward solver was
+ * allowed to return to unbalanced, which the skipped backward query would have granted. The cache
+ * can be pre-warmed with the entries of a previous run on the same scene.
+ */
+public class ReceiverPointsToCache {
+
+  private final Map<Statement, Receiver> callSiteToReceiver = new ConcurrentHashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public ReceiverPointsToCache() {}
+
+  /** Creates a cache pre-warmed with the entries of a previous run, see {@link #snapshot()}. */
+  public ReceiverPointsToCache(Map<Statement, Receiver> previousRun) {
+    callSiteToReceiver.putAll(previousRun);
+  }
+
+  /**
+   * @return The allocation sites of the receiver of the call site, or null if the receiver has not
+   *     been resolved yet.
+   */
+  public Receiver get(Statement callSite) {
+    Receiver receiver = callSiteToReceiver.get(callSite);
+    if (receiver == null) {
+      misses.increment();
+    } else {
+      hits.increment();
+    }
+    return receiver;
+  }
+
+  public void put(Statement callSite, Receiver receiver) {
+    callSiteToReceiver.putIfAbsent(callSite, receiver);
+  }
+
+  /** @return An immutable copy of all entries. */
+  public Map<Statement, Receiver> snapshot() {
+    return ImmutableMap.copyOf(callSiteToReceiver);
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public int size() {
+    return callSiteToReceiver.size();
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "ReceiverPointsToCache[%s call sites, %s hits, %s misses]", size(), getHits(), getMisses());
+  }
+
+  /** The allocation sites of a receiver. */
+  public static final class Receiver {
+    private final ImmutableMap<ForwardQuery, ImmutableSetMultimap<Method, Edge>> allocationSites;
+
+    /**
+     * @param allocationSites The allocation sites of the receiver, each with the call sites, by
+     *     callee, its forward solver may return to unbalanced.
+     */
+    public Receiver(Map<ForwardQuery, ? extends Multimap<Method, Edge>> allocationSites) {
+      ImmutableMap.Builder<ForwardQuery, ImmutableSetMultimap<Method, Edge>> builder =
+          ImmutableMap.builder();
+      for (Map.Entry<ForwardQuery, ? extends Multimap<Method, Edge>> e :
+          allocationSites.entrySet()) {
+        builder.put(e.getKey(), ImmutableSetMultimap.copyOf(e.getValue()));
+      }
+      this.allocationSites = builder.build();
+    }
+
+    public ImmutableSet<ForwardQuery> getAllocationSites() {
+      return allocationSites.keySet();
+    }
+
+    public ImmutableSetMultimap<Method, Edge> getUnbalancedReturns(ForwardQuery allocationSite) {
+      return allocationSites.get(allocationSite);
+    }
+
+    public ImmutableSet<Type> getTypes() {
+      ImmutableSet.Builder<Type> types = ImmutableSet.builder();
+      for (ForwardQuery allocationSite : allocationSites.keySet()) {
+        types.add(allocationSite.getType());
+      }
+      return types.build();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Receiver && allocationSites.equals(((Receiver) o).allocationSites);
+    }
+
+    @Override
+    public int hashCode() {
+      return allocationSites.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return allocationSites.keySet().toString();
+    }
+  }
+}
@@ -1,56 +1,172 @@
 package boomerang.controlflowgraph;
 
+import boomerang.scene.Method;
 import boomerang.scene.Statement;
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Multimap;
-import java.util.Collection;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+/**
+ * Control-flow graph that is discovered on-the-fly by {@link #step(Statement, Statement)}. Edges
+ * are stored per method over dense statement ids, each statement keeping a bit set of its
+ * successors and predecessors. Listeners are notified by index, such that stepping does not copy
+ * any collection.
+ */
 public class DynamicCFG implements ObservableControlFlowGraph {
 
-  Multimap<Statement, PredecessorListener> statementToPredecessorListener = HashMultimap.create();
-  Multimap<Statement, SuccessorListener> statementToSuccessorListener = HashMultimap.create();
-
-  Multimap<Statement, Statement> succToPred = HashMultimap.create();
-  Multimap<Statement, Statement> predToSucc = HashMultimap.create();
+  private final Map<Method, MethodGraph> methodToGraph = Maps.newHashMap();
 
   @Override
   public void addPredsOfListener(PredecessorListener l) {
-    if (statementToPredecessorListener.put(l.getCurr(), l)) {
-      Collection<Statement> preds = Lists.newArrayList(succToPred.get(l.getCurr()));
-      for (Statement pred : preds) {
-        l.getPredecessor(pred);
-      }
+    MethodGraph graph = graphOf(l.getCurr());
+    StatementNode node = graph.nodeOf(l.getCurr());
+    if (node.predListeners == null) {
+      node.predListeners = new Listeners<>();
+    }
+    if (!node.predListeners.add(l)) {
+      return;
+    }
+    Adjacency preds = node.preds;
+    int size = preds.size;
+    for (int i = 0; i < size; i++) {
+      l.getPredecessor(graph.statements.get(preds.order[i]));
     }
   }
 
   @Override
   public void addSuccsOfListener(SuccessorListener l) {
-    if (statementToSuccessorListener.put(l.getCurr(), l)) {
-      Collection<Statement> succs = Lists.newArrayList(predToSucc.get(l.getCurr()));
-      for (Statement succ : succs) {
-        l.getSuccessor(succ);
-      }
+    MethodGraph graph = graphOf(l.getCurr());
+    StatementNode node = graph.nodeOf(l.getCurr());
+    if (node.succListeners == null) {
+      node.succListeners = new Listeners<>();
+    }
+    if (!node.succListeners.add(l)) {
+      return;
+    }
+    Adjacency succs = node.succs;
+    int size = succs.size;
+    for (int i = 0; i < size; i++) {
+      l.getSuccessor(graph.statements.get(succs.order[i]));
     }
   }
 
+  /** Records the intraprocedural edge from curr to succ and notifies the registered listeners. */
+  @Override
   public void step(Statement curr, Statement succ) {
-    predToSucc.put(curr, succ);
-    succToPred.put(succ, curr);
-    Collection<SuccessorListener> lsnr = Lists.newArrayList(statementToSuccessorListener.get(curr));
-    for (SuccessorListener l : lsnr) {
-      l.getSuccessor(succ);
+    MethodGraph graph = graphOf(curr);
+    StatementNode from = graph.nodeOf(curr);
+    StatementNode to = graph.nodeOf(succ);
+    if (!from.succs.add(to.id)) {
+      return;
     }
-    Collection<PredecessorListener> lisnr =
-        Lists.newArrayList(statementToPredecessorListener.get(succ));
-    for (PredecessorListener l : lisnr) {
-      l.getPredecessor(curr);
+    to.preds.add(from.id);
+    Listeners<SuccessorListener> succListeners = from.succListeners;
+    if (succListeners != null) {
+      int size = succListeners.order.size();
+      for (int i = 0; i < size; i++) {
+        succListeners.order.get(i).getSuccessor(succ);
+      }
+    }
+    Listeners<PredecessorListener> predListeners = to.predListeners;
+    if (predListeners != null) {
+      int size = predListeners.order.size();
+      for (int i = 0; i < size; i++) {
+        predListeners.order.get(i).getPredecessor(curr);
+      }
     }
   }
 
   @Override
   public void unregisterAllListeners() {
-    statementToPredecessorListener.clear();
-    statementToSuccessorListener.clear();
+    for (MethodGraph graph : methodToGraph.values()) {
+      for (StatementNode node : graph.nodes) {
+        node.predListeners = null;
+        node.succListeners = null;
+      }
+    }
+  }
+
+  @Override
+  public void invalidate(Method method) {
+    methodToGraph.remove(method);
+  }
+
+  private MethodGraph graphOf(Statement s) {
+    return methodToGraph.computeIfAbsent(s.getMethod(), m -> new MethodGraph());
+  }
+
+  /** Assigns dense ids to the statements of one method in the order they are first seen. */
+  private static class MethodGraph {
+    private final Map<Statement, StatementNode> statementToNode = Maps.newHashMap();
+    private final List<Statement> statements = Lists.newArrayList();
+    private final List<StatementNode> nodes = Lists.newArrayList();
+
+    private StatementNode nodeOf(Statement s) {
+      StatementNode node = statementToNode.get(s);
+      if (node == null) {
+        node = new StatementNode(statements.size());
+        statements.add(s);
+        nodes.add(node);
+        statementToNode.put(s, node);
+      }
+      return node;
+    }
+  }
+
+  private static class StatementNode {
+    private final int id;
+    private final Adjacency succs = new Adjacency();
+    private final Adjacency preds = new Adjacency();
+    private Listeners<SuccessorListener> succListeners;
+    private Listeners<PredecessorListener> predListeners;
+
+    private StatementNode(int id) {
+      this.id = id;
+    }
+  }
+
+  /**
+   * Set of listeners. The hash set answers membership, the list keeps the registration order such
+   * that a notification loop bounded by the current size is unaffected by listeners registered
+   * during the notification.
+   */
+  private static class Listeners<L> {
+    private final Set<L> members = Sets.newHashSet();
+    private final List<L> order = Lists.newArrayList();
+
+    private boolean add(L l) {
+      if (!members.add(l)) {
+        return false;
+      }
+      order.add(l);
+      return true;
+    }
+  }
+
+  /**
+   * Set of statement ids. The bit set answers membership, the array keeps the insertion order such
+   * that a notification loop bounded by the current size is unaffected by concurrent additions.
+   */
+  private static class Adjacency {
+    private final BitSet members = new BitSet();
+    private int[] order = new int[2];
+    private int size;
+
+    private boolean add(int id) {
+      if (members.get(id)) {
+        return false;
+      }
+      members.set(id);
+      if (size == order.length) {
+        order = Arrays.copyOf(order, size * 2);
+      }
+      order[size++] = id;
+      return true;
+    }
   }
 }
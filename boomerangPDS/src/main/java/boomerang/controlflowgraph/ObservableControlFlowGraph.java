@@ -1,5 +1,6 @@
 package boomerang.controlflowgraph;
 
+import boomerang.scene.Method;
 import boomerang.scene.Statement;
 
 public interface ObservableControlFlowGraph {
@@ -11,4 +12,7 @@ public interface ObservableControlFlowGraph {
   void step(Statement curr, Statement succ);
 
   void unregisterAllListeners();
+
+  /** Forgets the edges of the method and the listeners at its statements, its body changed. */
+  void invalidate(Method method);
 }
@@ -1,5 +1,6 @@
 package boomerang.controlflowgraph;
 
+import boomerang.scene.Method;
 import boomerang.scene.Statement;
 
 public class StaticCFG implements ObservableControlFlowGraph {
@@ -23,4 +24,9 @@ public class StaticCFG implements ObservableControlFlowGraph {
 
   @Override
   public void unregisterAllListeners() {}
+
+  @Override
+  public void invalidate(Method method) {
+    // Edges are read from the method body on each request, nothing is cached
+  }
 }
@@ -16,6 +16,7 @@ import boomerang.Query;
 import boomerang.scene.ControlFlowGraph.Edge;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import java.util.Collection;
 import java.util.Set;
 
 public abstract class PointOfIndirection<Statement, Val, Field> {
@@ -41,5 +42,14 @@ public abstract class PointOfIndirection<Statement, Val, Field> {
     }
   }
 
+  /**
+   * Forgets the given queries such that they are executed again when they are re-added, e.g. after
+   * their solvers were invalidated.
+   */
+  public void removeAllocations(Collection<? extends Query> queries) {
+    actualBaseAllocations.removeAll(queries);
+    flowAllocations.removeAll(queries);
+  }
+
   public abstract Edge getCfgEdge();
 }
@@ -63,6 +63,15 @@ public class AbstractBoomerangResults<W extends Weight> {
 
   public Table<Edge, Val, W> asStatementValWeightTable(ForwardQuery query) {
     final Table<Edge, Val, W> results = HashBasedTable.create();
+    visitStatementValWeights(query, results::put);
+    return results;
+  }
+
+  /**
+   * Passes each statement, value and weight reached by the query to the visitor, without
+   * materialising them in a {@link Table}.
+   */
+  public void visitStatementValWeights(ForwardQuery query, ResultVisitor<W> visitor) {
     Stopwatch sw = Stopwatch.createStarted();
     LOGGER.trace("Computing final weighted results for {}", query);
     WeightedPAutomaton<Edge, INode<Val>, W> callAut =
@@ -74,10 +83,9 @@ public class AbstractBoomerangResults<W extends Weight> {
       if (t.getLabel().equals(new Edge(Statement.epsilon(), Statement.epsilon()))) continue;
       if (t.getStart().fact().isLocal()
           && !t.getLabel().getMethod().equals(t.getStart().fact().m())) continue;
-      results.put(t.getLabel(), t.getStart().fact(), w);
+      visitor.visit(t.getLabel(), t.getStart().fact(), w);
     }
     LOGGER.trace("Computed final weighted results for {} in {}", query, sw);
-    return results;
   }
 
   private static class OpeningCallStackExtracter<W extends Weight>
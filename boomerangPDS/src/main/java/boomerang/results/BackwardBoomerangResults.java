@@ -3,7 +3,6 @@ package boomerang.results;
 import boomerang.BackwardQuery;
 import boomerang.ForwardQuery;
 import boomerang.Query;
-import boomerang.Util;
 import boomerang.scene.ControlFlowGraph.Edge;
 import boomerang.scene.Field;
 import boomerang.scene.Statement;
@@ -33,25 +32,32 @@ public class BackwardBoomerangResults<W extends Weight> extends AbstractBoomeran
   private final BackwardBoomerangSolver<W> backwardSolver;
   private Map<ForwardQuery, Context> allocationSites;
   private final boolean timedout;
+  private final boolean memoryBudgetExceeded;
   private final IBoomerangStats<W> stats;
   private Stopwatch analysisWatch;
-  private long maxMemory;
+  private final long maxMemory;
+  private final long allocatedMemory;
 
   public BackwardBoomerangResults(
       BackwardQuery query,
       boolean timedout,
+      boolean memoryBudgetExceeded,
       DefaultValueMap<ForwardQuery, ForwardBoomerangSolver<W>> queryToSolvers,
       BackwardBoomerangSolver<W> backwardSolver,
       IBoomerangStats<W> stats,
-      Stopwatch analysisWatch) {
+      Stopwatch analysisWatch,
+      long maxMemory,
+      long allocatedMemory) {
     super(queryToSolvers);
     this.query = query;
     this.timedout = timedout;
+    this.memoryBudgetExceeded = memoryBudgetExceeded;
     this.stats = stats;
     this.analysisWatch = analysisWatch;
     this.backwardSolver = backwardSolver;
+    this.maxMemory = maxMemory;
+    this.allocatedMemory = allocatedMemory;
     stats.terminated(query, this);
-    maxMemory = Util.getReallyUsedMemory();
   }
 
   public Map<ForwardQuery, Context> getAllocationSites() {
@@ -63,6 +69,14 @@ public class BackwardBoomerangResults<W extends Weight> extends AbstractBoomeran
     return timedout;
   }
 
+  /**
+   * @return Whether the query was aborted because the solver exceeded {@link
+   *     boomerang.BoomerangOptions#memoryBudgetMB()}. Such results are also flagged as timed out.
+   */
+  public boolean isMemoryBudgetExceeded() {
+    return memoryBudgetExceeded;
+  }
+
   public IBoomerangStats<W> getStats() {
     return stats;
   }
@@ -173,7 +187,19 @@ public class BackwardBoomerangResults<W extends Weight> extends AbstractBoomeran
     return dataFlowPath;
   }
 
+  /**
+   * @return The peak heap usage in bytes of the JVM observed while the query was solved, including
+   *     the memory of queries solved in parallel.
+   */
   public long getMaxMemory() {
     return maxMemory;
   }
+
+  /**
+   * @return The bytes allocated by the solving thread during the query, or -1 if the JVM does not
+   *     support per-thread allocation accounting.
+   */
+  public long getAllocatedMemory() {
+    return allocatedMemory;
+  }
 }
@@ -1,7 +1,6 @@
 package boomerang.results;
 
 import boomerang.ForwardQuery;
-import boomerang.Util;
 import boomerang.callgraph.CallerListener;
 import boomerang.callgraph.ObservableICFG;
 import boomerang.controlflowgraph.ObservableControlFlowGraph;
@@ -27,6 +26,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Table;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -45,9 +45,11 @@ public class ForwardBoomerangResults<W extends Weight> extends AbstractBoomerang
 
   private final ForwardQuery query;
   private final boolean timedout;
+  private final boolean memoryBudgetExceeded;
   private final IBoomerangStats<W> stats;
   private Stopwatch analysisWatch;
-  private long maxMemory;
+  private final long maxMemory;
+  private final long allocatedMemory;
   private ObservableICFG<Statement, Method> icfg;
   private Set<Method> visitedMethods;
   private final boolean trackDataFlowPath;
@@ -60,9 +62,12 @@ public class ForwardBoomerangResults<W extends Weight> extends AbstractBoomerang
       ObservableICFG<Statement, Method> icfg,
       ObservableControlFlowGraph cfg,
       boolean timedout,
+      boolean memoryBudgetExceeded,
       DefaultValueMap<ForwardQuery, ForwardBoomerangSolver<W>> queryToSolvers,
       IBoomerangStats<W> stats,
       Stopwatch analysisWatch,
+      long maxMemory,
+      long allocatedMemory,
       Set<Method> visitedMethods,
       boolean trackDataFlowPath,
       boolean pruneContradictoryDataFlowPath,
@@ -72,14 +77,16 @@ public class ForwardBoomerangResults<W extends Weight> extends AbstractBoomerang
     this.icfg = icfg;
     this.cfg = cfg;
     this.timedout = timedout;
+    this.memoryBudgetExceeded = memoryBudgetExceeded;
     this.stats = stats;
     this.analysisWatch = analysisWatch;
     this.visitedMethods = visitedMethods;
     this.trackDataFlowPath = trackDataFlowPath;
     this.pruneContradictoryDataFlowPath = pruneContradictoryDataFlowPath;
     this.pruneImplictFlows = pruneImplictFlows;
+    this.maxMemory = maxMemory;
+    this.allocatedMemory = allocatedMemory;
     stats.terminated(query, this);
-    this.maxMemory = Util.getReallyUsedMemory();
   }
 
   public Stopwatch getAnalysisWatch() {
@@ -90,23 +97,46 @@ public class ForwardBoomerangResults<W extends Weight> extends AbstractBoomerang
     return timedout;
   }
 
+  /**
+   * @return Whether the query was aborted because the solver exceeded {@link
+   *     boomerang.BoomerangOptions#memoryBudgetMB()}. Such results are also flagged as timed out.
+   */
+  public boolean isMemoryBudgetExceeded() {
+    return memoryBudgetExceeded;
+  }
+
   public Table<Edge, Val, W> getObjectDestructingStatements() {
+    Table<Edge, Val, W> destructingStatement = HashBasedTable.create();
+    visitObjectDestructingStatements(destructingStatement::put);
+    return destructingStatement;
+  }
+
+  /**
+   * Streaming variant of {@link #getObjectDestructingStatements()}. Only the results at the exit
+   * statements of the reached methods are kept in memory. A statement that is the last usage for
+   * several exits is passed to the visitor once per exit.
+   */
+  public void visitObjectDestructingStatements(ResultVisitor<W> visitor) {
     AbstractBoomerangSolver<W> solver = queryToSolvers.get(query);
     if (solver == null) {
-      return HashBasedTable.create();
+      return;
     }
-    Table<Edge, Val, W> res = asStatementValWeightTable();
     Set<Method> visitedMethods = Sets.newHashSet();
-    for (Edge s : res.rowKeySet()) {
-      visitedMethods.add(s.getMethod());
-    }
+    Map<Edge, Map<Val, W>> exitRows = Maps.newHashMap();
+    visitStatementValWeights(
+        (edge, val, w) -> {
+          visitedMethods.add(edge.getMethod());
+          if (icfg.isExitStmt(edge.getTarget())) {
+            exitRows.computeIfAbsent(edge, e -> Maps.newLinkedHashMap()).put(val, w);
+          }
+        });
     ForwardBoomerangSolver<W> forwardSolver = queryToSolvers.get(query);
-    Table<Edge, Val, W> destructingStatement = HashBasedTable.create();
     for (Method flowReaches : visitedMethods) {
       for (Statement exitStmt : icfg.getEndPointsOf(flowReaches)) {
         for (Statement predOfExit :
             exitStmt.getMethod().getControlFlowGraph().getPredsOf(exitStmt)) {
           Edge exitEdge = new Edge(predOfExit, exitStmt);
+          Map<Val, W> row = exitRows.getOrDefault(exitEdge, Collections.emptyMap());
           Set<State> escapes = Sets.newHashSet();
           icfg.addCallerListener(
               new CallerListener<Statement, Method>() {
@@ -119,7 +149,7 @@ public class ForwardBoomerangResults<W extends Weight> extends AbstractBoomerang
                 public void onCallerAdded(Statement callSite, Method m) {
                   Method callee = callSite.getMethod();
                   if (visitedMethods.contains(callee)) {
-                    for (Entry<Val, W> valAndW : res.row(exitEdge).entrySet()) {
+                    for (Entry<Val, W> valAndW : row.entrySet()) {
                       escapes.addAll(
                           forwardSolver.computeReturnFlow(flowReaches, exitStmt, valAndW.getKey()));
                     }
@@ -128,24 +158,26 @@ public class ForwardBoomerangResults<W extends Weight> extends AbstractBoomerang
               });
 
           if (escapes.isEmpty()) {
-            Map<Val, W> row = res.row(exitEdge);
-            findLastUsage(exitEdge, row, destructingStatement, forwardSolver);
+            findLastUsage(exitEdge, row, visitor, forwardSolver);
           }
         }
       }
     }
-
-    return destructingStatement;
   }
 
   public Table<Edge, Val, W> asStatementValWeightTable() {
     return asStatementValWeightTable(query);
   }
 
+  /** Streaming variant of {@link #asStatementValWeightTable()}. */
+  public void visitStatementValWeights(ResultVisitor<W> visitor) {
+    visitStatementValWeights(query, visitor);
+  }
+
   private void findLastUsage(
       Edge exitStmt,
       Map<Val, W> row,
-      Table<Edge, Val, W> destructingStatement,
+      ResultVisitor<W> destructingStatement,
       ForwardBoomerangSolver<W> forwardSolver) {
     LinkedList<Edge> worklist = Lists.newLinkedList();
     worklist.add(exitStmt);
@@ -158,7 +190,7 @@ public class ForwardBoomerangResults<W extends Weight> extends AbstractBoomerang
       boolean valueUsedInStmt = false;
       for (Entry<Val, W> e : row.entrySet()) {
         if (curr.getTarget().uses(e.getKey())) {
-          destructingStatement.put(curr, e.getKey(), e.getValue());
+          destructingStatement.visit(curr, e.getKey(), e.getValue());
           valueUsedInStmt = true;
         }
       }
@@ -388,7 +420,19 @@ public class ForwardBoomerangResults<W extends Weight> extends AbstractBoomerang
     return visitedMethods;
   }
 
+  /**
+   * @return The peak heap usage in bytes of the JVM observed while the query was solved, including
+   *     the memory of queries solved in parallel.
+   */
   public long getMaxMemory() {
     return maxMemory;
   }
+
+  /**
+   * @return The bytes allocated by the solving thread during the query, or -1 if the JVM does not
+   *     support per-thread allocation accounting.
+   */
+  public long getAllocatedMemory() {
+    return allocatedMemory;
+  }
 }
@@ -0,0 +1,451 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package boomerang.results;
+
+import boomerang.BackwardQuery;
+import boomerang.BoomerangOptions;
+import boomerang.ForwardQuery;
+import boomerang.Query;
+import boomerang.scene.CallGraph;
+import boomerang.scene.ControlFlowGraph.Edge;
+import boomerang.scene.Method;
+import boomerang.scene.Statement;
+import boomerang.scene.Val;
+import boomerang.util.AccessPath;
+import com.google.common.collect.Collections2;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.collect.Table.Cell;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import wpds.impl.Weight;
+
+/**
+ * A result cache for Boomerang queries that survives across runs of the analysis. Entries are keyed
+ * by the query (method, statement and variable) and a fingerprint of the {@link BoomerangOptions}.
+ * Each entry records the methods the solver of the query visited, together with a hash of these
+ * methods. The hash of a method covers its body and the call graph edges into and out of it, hence
+ * a change to the body of a visited method, a new override called from it or a new caller of it
+ * invalidates the entry, while entries of queries that never reached the changed code are kept.
+ * Invalidated entries are dropped when the cache is loaded or {@link #refresh()}ed.
+ *
+ * <p>As the underlying scene objects cannot be persisted, cached results are stored in their
+ * textual representation. The cache may be shared by queries running in parallel, e.g., by the
+ * {@link boomerang.QueryService}.
+ */
+public class PersistentQueryResultCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PersistentQueryResultCache.class);
+  private static final int MAGIC = 0x42514331;
+  private static final int VERSION = 3;
+
+  private final File file;
+  private final CallGraph callGraph;
+  private final String optionsFingerprint;
+  private final Map<Method, String> methodHashes = new ConcurrentHashMap<>();
+  private volatile Map<String, Method> methodsBySignature;
+  private final Map<String, CachedQueryResult> entries = new ConcurrentHashMap<>();
+  private final AtomicInteger hits = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+  private final AtomicInteger invalidations = new AtomicInteger();
+
+  public PersistentQueryResultCache(File file, CallGraph callGraph, BoomerangOptions options) {
+    this.file = file;
+    this.callGraph = callGraph;
+    this.optionsFingerprint = fingerprint(options);
+    if (file.exists()) {
+      try {
+        load();
+      } catch (IOException e) {
+        LOGGER.warn("Could not read query result cache {}, starting empty", file, e);
+        entries.clear();
+      }
+    }
+  }
+
+  /**
+   * Computes a stable fingerprint of all options that return a primitive, a string or an enum
+   * value. Options returning objects (e.g. the stats factory) do not influence the results.
+   */
+  public static String fingerprint(BoomerangOptions options) {
+    List<java.lang.reflect.Method> getters =
+        Lists.newArrayList(BoomerangOptions.class.getMethods());
+    getters.sort(Comparator.comparing(java.lang.reflect.Method::getName));
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putString(options.getClass().getName(), StandardCharsets.UTF_8);
+    for (java.lang.reflect.Method getter : getters) {
+      Class<?> type = getter.getReturnType();
+      if (getter.getParameterCount() != 0
+          || !(type.isPrimitive() || type.isEnum() || type.equals(String.class))
+          || type.equals(Void.TYPE)) {
+        continue;
+      }
+      try {
+        hasher.putString(getter.getName() + "=" + getter.invoke(options), StandardCharsets.UTF_8);
+      } catch (ReflectiveOperationException e) {
+        throw new RuntimeException("Could not read option " + getter.getName(), e);
+      }
+    }
+    return hasher.hash().toString().substring(0, 16);
+  }
+
+  /**
+   * Hashes the method's body, whether it is an entry point, the call graph edges out of each of its
+   * statements and the call sites calling it. Edges are visited in the order of their textual
+   * representation, such that the hash does not depend on the order the call graph was built in.
+   */
+  public static String methodHash(CallGraph callGraph, Method method) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putString(method.toString(), StandardCharsets.UTF_8);
+    hasher.putBoolean(callGraph.getEntryPoints().contains(method));
+    for (Statement s : method.getStatements()) {
+      hasher.putString(s.toString(), StandardCharsets.UTF_8);
+      hasher.putInt(s.getStartLineNumber());
+      for (String callee : sorted(Collections2.transform(callGraph.edgesOutOf(s), e -> e.tgt()))) {
+        hasher.putString(callee, StandardCharsets.UTF_8);
+      }
+    }
+    for (String caller :
+        sorted(
+            Collections2.transform(
+                callGraph.edgesInto(method), e -> e.src().getMethod() + " " + e.src()))) {
+      hasher.putString(caller, StandardCharsets.UTF_8);
+    }
+    return hasher.hash().toString().substring(0, 16);
+  }
+
+  private static List<String> sorted(Collection<?> objects) {
+    List<String> res = Lists.newArrayList();
+    for (Object o : objects) {
+      res.add(o.toString());
+    }
+    Collections.sort(res);
+    return res;
+  }
+
+  public Optional<CachedQueryResult> lookup(Query query) {
+    CachedQueryResult entry = entries.get(key(query));
+    if (entry == null) {
+      misses.incrementAndGet();
+      return Optional.empty();
+    }
+    hits.incrementAndGet();
+    return Optional.of(entry);
+  }
+
+  /**
+   * Stores the results of the query, unless it timed out, and returns their cached form. The
+   * visited methods are the ones of the solver that computed the results, see {@link
+   * boomerang.WeightedBoomerang#getVisitedMethods()}.
+   */
+  public <W extends Weight> CachedQueryResult store(
+      BackwardQuery query, BackwardBoomerangResults<W> results, Collection<Method> visitedMethods) {
+    Set<String> allocationSites = Sets.newTreeSet();
+    for (ForwardQuery allocationSite : results.getAllocationSites().keySet()) {
+      allocationSites.add(allocationSite.toString());
+    }
+    Set<String> aliases = Sets.newTreeSet();
+    for (AccessPath alias : results.getAllAliases()) {
+      aliases.add(alias.toString());
+    }
+    CachedQueryResult res =
+        dependingOn(
+            query, visitedMethods, allocationSites, aliases, Collections.<List<String>>emptyList());
+    if (!results.isTimedout()) {
+      entries.put(key(query), res);
+    }
+    return res;
+  }
+
+  /** See {@link #store(BackwardQuery, BackwardBoomerangResults, Collection)}. */
+  public <W extends Weight> CachedQueryResult store(
+      ForwardQuery query, ForwardBoomerangResults<W> results, Collection<Method> visitedMethods) {
+    List<List<String>> table = Lists.newArrayList();
+    for (Cell<Edge, Val, W> cell : results.asStatementValWeightTable().cellSet()) {
+      table.add(
+          Arrays.asList(
+              cell.getRowKey().toString(),
+              cell.getColumnKey().toString(),
+              cell.getValue().toString()));
+    }
+    table.sort(Comparator.comparing(List::toString));
+    CachedQueryResult res =
+        dependingOn(
+            query,
+            visitedMethods,
+            Collections.<String>emptySet(),
+            Collections.<String>emptySet(),
+            table);
+    if (!results.isTimedout()) {
+      entries.put(key(query), res);
+    }
+    return res;
+  }
+
+  private CachedQueryResult dependingOn(
+      Query query,
+      Collection<Method> visitedMethods,
+      Set<String> allocationSites,
+      Set<String> aliases,
+      List<List<String>> statementValWeights) {
+    Map<String, Method> dependencies = Maps.newTreeMap();
+    dependencies.put(query.cfgEdge().getMethod().toString(), query.cfgEdge().getMethod());
+    for (Method m : visitedMethods) {
+      dependencies.put(m.toString(), m);
+    }
+    Hasher hasher = Hashing.sha256().newHasher();
+    for (Method m : dependencies.values()) {
+      hasher.putString(methodHashes.computeIfAbsent(m, this::methodHash), StandardCharsets.UTF_8);
+    }
+    return new CachedQueryResult(
+        dependencies.keySet(),
+        hasher.hash().toString().substring(0, 16),
+        allocationSites,
+        aliases,
+        statementValWeights);
+  }
+
+  /**
+   * @return The current hash of the methods, or null if one of them is not reachable any longer.
+   */
+  private String dependencyHash(Set<String> dependencies) {
+    Map<String, Method> methods = methodsBySignature;
+    if (methods == null) {
+      methods = Maps.newHashMap();
+      for (Method m : callGraph.getReachableMethods()) {
+        methods.put(m.toString(), m);
+      }
+      methodsBySignature = methods;
+    }
+    Hasher hasher = Hashing.sha256().newHasher();
+    for (String signature : dependencies) {
+      Method m = methods.get(signature);
+      if (m == null) {
+        return null;
+      }
+      hasher.putString(methodHashes.computeIfAbsent(m, this::methodHash), StandardCharsets.UTF_8);
+    }
+    return hasher.hash().toString().substring(0, 16);
+  }
+
+  private String methodHash(Method method) {
+    return methodHash(callGraph, method);
+  }
+
+  /**
+   * Rehashes the methods from the call graph, e.g., after method bodies were changed in place or
+   * the call graph grew, and drops the entries that depend on a changed method.
+   */
+  public synchronized void refresh() {
+    methodHashes.clear();
+    methodsBySignature = null;
+    dropStaleEntries();
+  }
+
+  private void dropStaleEntries() {
+    int before = entries.size();
+    entries
+        .values()
+        .removeIf(entry -> !entry.dependencyHash.equals(dependencyHash(entry.dependencies)));
+    invalidations.addAndGet(before - entries.size());
+  }
+
+  private String key(Query query) {
+    Edge edge = query.cfgEdge();
+    Method method = edge.getMethod();
+    return optionsFingerprint
+        + "|"
+        + query.getClass().getSimpleName()
+        + "|"
+        + method
+        + "|"
+        + method.getStatements().indexOf(edge.getStart())
+        + "|"
+        + edge
+        + "|"
+        + query.var();
+  }
+
+  public synchronized void save() throws IOException {
+    List<Entry<String, CachedQueryResult>> snapshot = Lists.newArrayList(entries.entrySet());
+    File tmp = new File(file.getPath() + ".tmp");
+    if (file.getParentFile() != null) {
+      Files.createDirectories(file.getParentFile().toPath());
+    }
+    try (DataOutputStream out =
+        new DataOutputStream(
+            new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(tmp.toPath()))))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(snapshot.size());
+      for (Entry<String, CachedQueryResult> e : snapshot) {
+        writeString(out, e.getKey());
+        CachedQueryResult entry = e.getValue();
+        writeStrings(out, entry.getDependencies());
+        writeString(out, entry.dependencyHash);
+        writeStrings(out, entry.getAllocationSites());
+        writeStrings(out, entry.getAliases());
+        out.writeInt(entry.getStatementValWeights().size());
+        for (List<String> row : entry.getStatementValWeights()) {
+          writeStrings(out, row);
+        }
+      }
+    }
+    Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    LOGGER.debug("Stored {} query results in {}", snapshot.size(), file);
+  }
+
+  private void load() throws IOException {
+    try (DataInputStream in =
+        new DataInputStream(
+            new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file.toPath()))))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        LOGGER.debug("Ignoring query result cache {} of unknown format", file);
+        return;
+      }
+      int size = in.readInt();
+      for (int i = 0; i < size; i++) {
+        String key = readString(in);
+        Set<String> dependencies = Sets.newTreeSet(readStrings(in));
+        String dependencyHash = readString(in);
+        Set<String> allocationSites = Sets.newTreeSet(readStrings(in));
+        Set<String> aliases = Sets.newTreeSet(readStrings(in));
+        int rows = in.readInt();
+        List<List<String>> table = Lists.newArrayListWithCapacity(rows);
+        for (int j = 0; j < rows; j++) {
+          table.add(readStrings(in));
+        }
+        entries.put(
+            key,
+            new CachedQueryResult(dependencies, dependencyHash, allocationSites, aliases, table));
+      }
+    }
+    dropStaleEntries();
+    LOGGER.debug("Loaded {} query results from {}", entries.size(), file);
+  }
+
+  private static void writeStrings(DataOutputStream out, Collection<String> strings)
+      throws IOException {
+    out.writeInt(strings.size());
+    for (String s : strings) {
+      writeString(out, s);
+    }
+  }
+
+  /** Writes the string as int length and UTF-8 bytes, writeUTF is limited to 64KB. */
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static List<String> readStrings(DataInputStream in) throws IOException {
+    int size = in.readInt();
+    List<String> res = Lists.newArrayListWithCapacity(size);
+    for (int i = 0; i < size; i++) {
+      res.add(readString(in));
+    }
+    return res;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public int getHits() {
+    return hits.get();
+  }
+
+  public int getMisses() {
+    return misses.get();
+  }
+
+  /** The number of entries dropped because a method they depend on changed. */
+  public int getInvalidations() {
+    return invalidations.get();
+  }
+
+  /** The textual, persisted representation of the results of a single query. */
+  public static class CachedQueryResult {
+    private final Set<String> dependencies;
+    private final String dependencyHash;
+    private final Set<String> allocationSites;
+    private final Set<String> aliases;
+    private final List<List<String>> statementValWeights;
+
+    CachedQueryResult(
+        Set<String> dependencies,
+        String dependencyHash,
+        Set<String> allocationSites,
+        Set<String> aliases,
+        List<List<String>> statementValWeights) {
+      this.dependencies = dependencies;
+      this.dependencyHash = dependencyHash;
+      this.allocationSites = allocationSites;
+      this.aliases = aliases;
+      this.statementValWeights = statementValWeights;
+    }
+
+    /** The methods visited while solving the query, the entry is invalidated if one changes. */
+    public Set<String> getDependencies() {
+      return dependencies;
+    }
+
+    /** Allocation sites found by a backward query, see {@link BackwardBoomerangResults}. */
+    public Set<String> getAllocationSites() {
+      return allocationSites;
+    }
+
+    /** Aliases found by a backward query, see {@link BackwardBoomerangResults#getAllAliases()}. */
+    public Set<String> getAliases() {
+      return aliases;
+    }
+
+    /**
+     * (statement, value, weight) rows of a forward query, see {@link
+     * ForwardBoomerangResults#asStatementValWeightTable()}.
+     */
+    public List<List<String>> getStatementValWeights() {
+      return statementValWeights;
+    }
+  }
+}
@@ -0,0 +1,11 @@
+package boomerang.results;
+
+import boomerang.scene.ControlFlowGraph.Edge;
+import boomerang.scene.Val;
+import wpds.impl.Weight;
+
+/** Receives the (edge, value, weight) triples of a forward query one at a time. */
+public interface ResultVisitor<W extends Weight> {
+
+  void visit(Edge edge, Val val, W weight);
+}
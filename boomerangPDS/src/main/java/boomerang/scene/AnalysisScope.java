@@ -5,9 +5,16 @@ import boomerang.scene.CallGraph.Edge;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import java.util.ArrayDeque;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -21,51 +28,121 @@ public abstract class AnalysisScope {
     this.cg = cg;
   }
 
-  private final Set<Query> seeds = Sets.newHashSet();
+  private final Set<Query> seeds = Collections.synchronizedSet(Sets.newHashSet());
 
-  private Collection<Method> processed = Sets.newHashSet();
-  private int statementCount;
+  private Set<Method> processed = Collections.synchronizedSet(Sets.newHashSet());
+  private AtomicInteger statementCount = new AtomicInteger();
 
   public void setScanLibraryClasses(boolean enabled) {
     scanLibraryClasses = enabled;
   }
 
   public Collection<Query> computeSeeds() {
+    computeSeeds(null);
+    return seeds;
+  }
+
+  /**
+   * Discovers the seeds like {@link #computeSeeds()}, but hands each seed to the consumer as soon
+   * as it is found, such that the analysis of the first seeds overlaps with the discovery of the
+   * remaining ones. Every seed is passed to the consumer once, a null consumer is ignored.
+   */
+  public void computeSeeds(Consumer<? super Query> consumer) {
     Collection<Method> entryPoints = cg.getEntryPoints();
     LOGGER.info("Computing seeds starting at {} entry method(s).", entryPoints.size());
 
     Stopwatch watch = Stopwatch.createStarted();
-    LinkedList<Method> worklist = Lists.newLinkedList();
-    worklist.addAll(entryPoints);
+    ArrayDeque<Method> worklist = new ArrayDeque<>(entryPoints);
     while (!worklist.isEmpty()) {
       Method m = worklist.pop();
       if (!processed.add(m)) {
         continue;
       }
-      LOGGER.trace("Processing {}", m);
-      for (Statement u : m.getStatements()) {
-        statementCount++;
-        if (u.containsInvokeExpr()) {
-          Collection<Edge> edgesOutOf = cg.edgesOutOf(u);
-          for (Edge e : edgesOutOf) {
-            Method tgt = e.tgt();
-            if (!scanLibraryClasses && !tgt.getDeclaringClass().isApplicationClass()) continue;
-
-            if (!processed.contains(tgt)) {
-              worklist.add(tgt);
-            }
-          }
-        }
-        for (Statement succ : u.getMethod().getControlFlowGraph().getSuccsOf(u)) {
-          seeds.addAll(generate(new ControlFlowGraph.Edge(u, succ)));
+      for (Method callee : scan(m, consumer)) {
+        if (!processed.contains(callee)) {
+          worklist.add(callee);
         }
       }
     }
     LOGGER.info("Found {} seeds in {} in {} LOC .", seeds.size(), watch, statementCount);
+  }
 
+  /**
+   * Discovers the seeds like {@link #computeSeeds()}, scanning the methods of each call depth in
+   * parallel. Requires {@link #generate(ControlFlowGraph.Edge)} to be thread-safe.
+   */
+  public Collection<Query> computeSeedsInParallel(int parallelism) {
+    computeSeedsInParallel(parallelism, null);
     return seeds;
   }
 
+  /**
+   * Parallel and streaming variant of {@link #computeSeeds()}. The consumer is called concurrently
+   * from the worker threads and must be thread-safe, as must be {@link
+   * #generate(ControlFlowGraph.Edge)}.
+   */
+  public void computeSeedsInParallel(int parallelism, Consumer<? super Query> consumer) {
+    Collection<Method> entryPoints = cg.getEntryPoints();
+    LOGGER.info(
+        "Computing seeds starting at {} entry method(s) with {} threads.",
+        entryPoints.size(),
+        parallelism);
+
+    Stopwatch watch = Stopwatch.createStarted();
+    List<Method> frontier =
+        entryPoints.stream().filter(processed::add).collect(Collectors.toList());
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      while (!frontier.isEmpty()) {
+        List<Method> current = frontier;
+        frontier =
+            pool.submit(
+                    () ->
+                        current
+                            .parallelStream()
+                            .flatMap(m -> scan(m, consumer).stream())
+                            .filter(processed::add)
+                            .collect(Collectors.toList()))
+                .get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted during seed discovery", e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException("Seed discovery failed", e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+    LOGGER.info("Found {} seeds in {} in {} LOC .", seeds.size(), watch, statementCount);
+  }
+
+  /** Generates the seeds of method m and returns the callees that remain to be scanned. */
+  private Collection<Method> scan(Method m, Consumer<? super Query> consumer) {
+    LOGGER.trace("Processing {}", m);
+    List<Method> callees = Lists.newArrayList();
+    for (Statement u : m.getStatements()) {
+      statementCount.incrementAndGet();
+      if (u.containsInvokeExpr()) {
+        for (Edge e : cg.edgesOutOf(u)) {
+          Method tgt = e.tgt();
+          if (!scanLibraryClasses && !tgt.getDeclaringClass().isApplicationClass()) continue;
+
+          if (!processed.contains(tgt)) {
+            callees.add(tgt);
+          }
+        }
+      }
+      for (Statement succ : u.getMethod().getControlFlowGraph().getSuccsOf(u)) {
+        for (Query seed : generate(new ControlFlowGraph.Edge(u, succ))) {
+          if (seeds.add(seed) && consumer != null) {
+            consumer.accept(seed);
+          }
+        }
+      }
+    }
+    return callees;
+  }
+
   protected boolean analyseClassInitializers() {
     return false;
   }
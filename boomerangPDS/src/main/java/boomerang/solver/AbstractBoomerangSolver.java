@@ -38,6 +38,7 @@ import com.google.common.collect.Sets;
 import com.google.common.collect.Table;
 import java.util.AbstractMap;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -281,6 +282,15 @@ public abstract class AbstractBoomerangSolver<W extends Weight>
     }
   }
 
+  /** @return The call sites, by callee, this solver was allowed to return to unbalanced. */
+  public Multimap<Method, Edge> getUnbalancedReturns() {
+    Multimap<Method, Edge> res = HashMultimap.create();
+    for (Map.Entry<Method, UnbalancedDataFlowListener> e : unbalancedDataFlowListeners.entries()) {
+      res.put(e.getKey(), e.getValue().getCallSiteEdge());
+    }
+    return res;
+  }
+
   protected abstract void propagateUnbalancedToCallSite(
       Edge callSiteEdge, Transition<ControlFlowGraph.Edge, INode<Val>> transInCallee);
 
@@ -506,50 +516,67 @@ public abstract class AbstractBoomerangSolver<W extends Weight>
     return false;
   }
 
+  /**
+   * Returns the access paths holding after the given statement. The results are looked up in the
+   * per-statement transition index, such that only the transitions at the statement are visited.
+   */
   public Map<RegExAccessPath, W> getResultsAt(final Statement stmt) {
     final Map<RegExAccessPath, W> results = Maps.newHashMap();
-    fieldAutomaton.registerListener(
-        (t, w, aut) -> {
-          if (t.getStart() instanceof GeneratedState) {
-            return;
-          }
-          if (t.getStart().fact().stmt().equals(stmt)) {
-            for (INode<Node<ControlFlowGraph.Edge, Val>> initState :
-                fieldAutomaton.getInitialStates()) {
-              IRegEx<Field> regEx = fieldAutomaton.toRegEx(t.getStart(), initState);
-
-              results.put(new RegExAccessPath(t.getStart().fact().fact(), regEx), w);
-            }
-          }
-        });
+    for (Statement succ : stmt.getMethod().getControlFlowGraph().getSuccsOf(stmt)) {
+      for (Transition<Field, INode<Node<ControlFlowGraph.Edge, Val>>> t :
+          perStatementFieldTransitions.get(new Edge(stmt, succ))) {
+        if (t.getStart() instanceof GeneratedState) {
+          continue;
+        }
+        W w = fieldAutomaton.getWeightFor(t);
+        for (INode<Node<ControlFlowGraph.Edge, Val>> initState :
+            fieldAutomaton.getInitialStates()) {
+          IRegEx<Field> regEx = fieldAutomaton.toRegEx(t.getStart(), initState);
+          results.put(new RegExAccessPath(t.getStart().fact().fact(), regEx), w);
+        }
+      }
+    }
     return results;
   }
 
+  /**
+   * Returns the access paths per statement of the given method. The field transitions are looked up
+   * in the per-method index and joined with the call transitions of the same statement from the
+   * per-statement index.
+   */
   public Table<Edge, RegExAccessPath, W> getResults(Method m) {
     final Table<Edge, RegExAccessPath, W> results = HashBasedTable.create();
     LOGGER.debug("Start extracting results from {}", this);
-    fieldAutomaton.registerListener(
-        (t, w, aut) -> {
-          if (t.getStart() instanceof GeneratedState) {
-            return;
-          }
-          if (t.getStart().fact().stmt().getStart().getMethod().equals(m)) {
-            for (INode<Node<ControlFlowGraph.Edge, Val>> initState :
-                fieldAutomaton.getInitialStates()) {
-              IRegEx<Field> regEx = fieldAutomaton.toRegEx(t.getStart(), initState);
-              AbstractBoomerangSolver.this.callAutomaton.registerListener(
-                  (callT, w1, aut1) -> {
-                    if (callT.getStart().fact().equals(t.getStart().fact().fact())
-                        && callT.getLabel().equals(t.getStart().fact().stmt())) {
-                      results.put(
-                          t.getStart().fact().stmt(),
-                          new RegExAccessPath(t.getStart().fact().fact(), regEx),
-                          w1);
-                    }
-                  });
-            }
+    for (Transition<Field, INode<Node<ControlFlowGraph.Edge, Val>>> t :
+        Lists.newArrayList(perMethodFieldTransitions.get(m))) {
+      if (t.getStart() instanceof GeneratedState) {
+        continue;
+      }
+      Edge edge = t.getStart().fact().stmt();
+      Val val = t.getStart().fact().fact();
+      if (!edge.getStart().getMethod().equals(m)) {
+        continue;
+      }
+      List<RegExAccessPath> accessPaths = null;
+      for (Entry<Transition<ControlFlowGraph.Edge, INode<Val>>, W> callT :
+          perStatementCallTransitions.row(edge).entrySet()) {
+        if (!callT.getKey().getStart().fact().equals(val)) {
+          continue;
+        }
+        if (accessPaths == null) {
+          // The access paths only depend on the field transition.
+          accessPaths = Lists.newArrayList();
+          for (INode<Node<ControlFlowGraph.Edge, Val>> initState :
+              fieldAutomaton.getInitialStates()) {
+            accessPaths.add(
+                new RegExAccessPath(val, fieldAutomaton.toRegEx(t.getStart(), initState)));
           }
-        });
+        }
+        for (RegExAccessPath accessPath : accessPaths) {
+          results.put(edge, accessPath, callT.getValue());
+        }
+      }
+    }
     LOGGER.debug("End extracted results from {}", this);
     return results;
   }
@@ -429,7 +429,12 @@ public abstract class ForwardBoomerangSolver<W extends Weight> extends AbstractB
   public void computeSuccessor(Node<Edge, Val> node) {
     Edge curr = node.stmt();
     Val value = node.fact();
-    assert !(value instanceof AllocVal);
+    if (value instanceof AllocVal) {
+      // The node (call site, allocation) that anchors unbalanced flows in a caller (see
+      // propagateUnbalancedToCallSite) is no data-flow fact and has no successors. Depending on the
+      // order in which the automata notify their listeners it can become reachable in both.
+      return;
+    }
     Method method = curr.getTarget().getMethod();
     if (method == null) return;
     if (dataFlowScope.isExcluded(method)) {
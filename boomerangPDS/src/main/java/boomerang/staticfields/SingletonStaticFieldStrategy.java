@@ -2,13 +2,12 @@ package boomerang.staticfields;
 
 import boomerang.WeightedBoomerang;
 import boomerang.scene.ControlFlowGraph.Edge;
-import boomerang.scene.Field;
 import boomerang.scene.Statement;
+import boomerang.scene.StaticFieldIndex;
 import boomerang.scene.StaticFieldVal;
 import boomerang.scene.Val;
 import boomerang.solver.BackwardBoomerangSolver;
 import boomerang.solver.ForwardBoomerangSolver;
-import com.google.common.collect.Multimap;
 import java.util.Set;
 import sync.pds.solver.nodes.Node;
 import wpds.impl.Weight;
@@ -16,12 +15,10 @@ import wpds.interfaces.State;
 
 public class SingletonStaticFieldStrategy<W extends Weight> implements StaticFieldStrategy<W> {
 
-  private final Multimap<Field, Statement> fieldStoreStatements;
-  private final Multimap<Field, Statement> fieldLoadStatements;
+  private final StaticFieldIndex staticFieldIndex;
 
   public SingletonStaticFieldStrategy(WeightedBoomerang<W> boomerang) {
-    this.fieldStoreStatements = boomerang.getCallGraph().getFieldStoreStatements();
-    this.fieldLoadStatements = boomerang.getCallGraph().getFieldLoadStatements();
+    this.staticFieldIndex = boomerang.getCallGraph().getStaticFieldIndex();
   }
 
   @Override
@@ -31,7 +28,7 @@ public class SingletonStaticFieldStrategy<W extends Weight> implements StaticFie
       StaticFieldVal staticVal,
       Set<State> out,
       ForwardBoomerangSolver<W> solver) {
-    for (Statement matchingStore : fieldLoadStatements.get(staticVal.field())) {
+    for (Statement matchingStore : staticFieldIndex.getLoads(staticVal.field())) {
       for (Statement succ :
           matchingStore.getMethod().getControlFlowGraph().getSuccsOf(matchingStore)) {
         solver.processNormal(
@@ -48,7 +45,7 @@ public class SingletonStaticFieldStrategy<W extends Weight> implements StaticFie
       StaticFieldVal staticVal,
       Set<State> out,
       BackwardBoomerangSolver<W> solver) {
-    for (Statement matchingStore : fieldStoreStatements.get(staticVal.field())) {
+    for (Statement matchingStore : staticFieldIndex.getStores(staticVal.field())) {
       for (Statement pred :
           matchingStore.getMethod().getControlFlowGraph().getPredsOf(matchingStore)) {
         solver.processNormal(
@@ -164,6 +164,11 @@ public class AdvancedBoomerangStats<W extends Weight> implements IBoomerangStats
     map.put(method, ++i);
   }
 
+  @Override
+  public void unregisterSolver(Query key) {
+    queries.remove(key);
+  }
+
   @Override
   public void registerFieldWritePOI(WeightedBoomerang<W>.FieldWritePOI key) {}
 
@@ -218,6 +218,11 @@ public class CSVBoomerangStatsWriter<W extends Weight> implements IBoomerangStat
     }
   }
 
+  @Override
+  public void unregisterSolver(Query key) {
+    queries.remove(key);
+  }
+
   @Override
   public void registerFieldWritePOI(WeightedBoomerang<W>.FieldWritePOI key) {
     fieldWritePOIs++;
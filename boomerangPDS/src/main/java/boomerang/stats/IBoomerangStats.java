@@ -30,6 +30,12 @@ import wpds.impl.Weight;
 public interface IBoomerangStats<W extends Weight> {
   void registerSolver(Query key, AbstractBoomerangSolver<W> solver);
 
+  /**
+   * Releases the solver of the query after the solver was dropped. A solver registered for the
+   * query later on is tracked anew.
+   */
+  void unregisterSolver(Query key);
+
   void registerFieldWritePOI(WeightedBoomerang<W>.FieldWritePOI key);
 
   Set<Method> getCallVisitedMethods();
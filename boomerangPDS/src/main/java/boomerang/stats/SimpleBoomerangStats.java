@@ -65,6 +65,11 @@ public class SimpleBoomerangStats<W extends Weight> implements IBoomerangStats<W
             (t, w, aut) -> fieldVisitedMethods.add(t.getStart().fact().stmt().getMethod()));
   }
 
+  @Override
+  public void unregisterSolver(Query key) {
+    queries.remove(key);
+  }
+
   @Override
   public void registerFieldWritePOI(WeightedBoomerang<W>.FieldWritePOI key) {}
 
@@ -0,0 +1,346 @@
+package boomerang.util;
+
+import com.google.common.collect.Iterators;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Immutable hash map with structural sharing, implemented as a hash array mapped trie. {@link
+ * #plus(Object, Object)} returns a new map that shares all nodes with this map except the ones on
+ * the path to the changed key, hence adding k entries to a map of size n takes O(k log n) time and
+ * space and never copies the map. Null keys and values are not supported.
+ */
+public final class PersistentMap<K, V> extends AbstractMap<K, V> {
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+  private static final PersistentMap<?, ?> EMPTY =
+      new PersistentMap<>(new BitmapNode(0, new Object[0]), 0, 0);
+
+  private final Object root;
+  private final int size;
+  /** Sum of the hash codes of the entries, consistent with {@link Map#hashCode()}. */
+  private final int hash;
+
+  private PersistentMap(Object root, int size, int hash) {
+    this.root = root;
+    this.size = size;
+    this.hash = hash;
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <K, V> PersistentMap<K, V> empty() {
+    return (PersistentMap<K, V>) EMPTY;
+  }
+
+  public static <K, V> PersistentMap<K, V> of(K key, V value) {
+    return PersistentMap.<K, V>empty().plus(key, value);
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <K, V> PersistentMap<K, V> copyOf(Map<? extends K, ? extends V> map) {
+    if (map instanceof PersistentMap) {
+      return (PersistentMap<K, V>) map;
+    }
+    return PersistentMap.<K, V>empty().plusAll(map);
+  }
+
+  /** @return A map with the given entry, or this map if it already contains the entry. */
+  public PersistentMap<K, V> plus(K key, V value) {
+    Entry<K, V> e = new Entry<>(Objects.requireNonNull(key), Objects.requireNonNull(value));
+    Change change = new Change();
+    Object newRoot = put(root, e, 0, change);
+    if (newRoot == root) {
+      return this;
+    }
+    int newHash = hash + e.hashCode() - (change.replaced == null ? 0 : change.replaced.hashCode());
+    return new PersistentMap<>(newRoot, change.replaced == null ? size + 1 : size, newHash);
+  }
+
+  /** @return A map with the entries of this map overwritten by the entries of the given map. */
+  public PersistentMap<K, V> plusAll(Map<? extends K, ? extends V> map) {
+    PersistentMap<K, V> res = this;
+    for (Map.Entry<? extends K, ? extends V> e : map.entrySet()) {
+      res = res.plus(e.getKey(), e.getValue());
+    }
+    return res;
+  }
+
+  @Override
+  public V get(Object key) {
+    if (key == null) {
+      return null;
+    }
+    int h = key.hashCode();
+    Object node = root;
+    for (int shift = 0; ; shift += BITS) {
+      if (node instanceof CollisionNode) {
+        Entry<?, ?> e = ((CollisionNode) node).get(key);
+        return e == null ? null : castValue(e);
+      }
+      BitmapNode bitmapNode = (BitmapNode) node;
+      int bit = bit(h, shift);
+      if ((bitmapNode.bitmap & bit) == 0) {
+        return null;
+      }
+      Object slot = bitmapNode.slots[bitmapNode.index(bit)];
+      if (slot instanceof Entry) {
+        Entry<?, ?> e = (Entry<?, ?>) slot;
+        return e.getKey().equals(key) ? castValue(e) : null;
+      }
+      node = slot;
+    }
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public Set<Map.Entry<K, V>> entrySet() {
+    return new AbstractSet<Map.Entry<K, V>>() {
+      @Override
+      public Iterator<Map.Entry<K, V>> iterator() {
+        return new EntryIterator<>(root);
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    }
+    if (o instanceof PersistentMap) {
+      PersistentMap<?, ?> other = (PersistentMap<?, ?>) o;
+      if (size != other.size || hash != other.hash) {
+        return false;
+      }
+    }
+    return super.equals(o);
+  }
+
+  @SuppressWarnings("unchecked")
+  private V castValue(Entry<?, ?> e) {
+    return (V) e.getValue();
+  }
+
+  private static int bit(int hash, int shift) {
+    return 1 << ((hash >>> shift) & MASK);
+  }
+
+  private static Object put(Object node, Entry<?, ?> e, int shift, Change change) {
+    if (node instanceof CollisionNode) {
+      CollisionNode collision = (CollisionNode) node;
+      if (collision.hash == e.hash) {
+        return collision.put(e, change);
+      }
+      // Push the collision node one level down next to the new entry.
+      BitmapNode wrapper = new BitmapNode(bit(collision.hash, shift), new Object[] {collision});
+      return put(wrapper, e, shift, change);
+    }
+    BitmapNode bitmapNode = (BitmapNode) node;
+    int bit = bit(e.hash, shift);
+    int index = bitmapNode.index(bit);
+    if ((bitmapNode.bitmap & bit) == 0) {
+      Object[] slots = new Object[bitmapNode.slots.length + 1];
+      System.arraycopy(bitmapNode.slots, 0, slots, 0, index);
+      slots[index] = e;
+      System.arraycopy(bitmapNode.slots, index, slots, index + 1, bitmapNode.slots.length - index);
+      return new BitmapNode(bitmapNode.bitmap | bit, slots);
+    }
+    Object slot = bitmapNode.slots[index];
+    Object newSlot;
+    if (slot instanceof Entry) {
+      Entry<?, ?> existing = (Entry<?, ?>) slot;
+      if (existing.getKey().equals(e.getKey())) {
+        if (existing.getValue().equals(e.getValue())) {
+          return node;
+        }
+        change.replaced = existing;
+        newSlot = e;
+      } else {
+        newSlot = merge(existing, e, shift + BITS);
+      }
+    } else {
+      newSlot = put(slot, e, shift + BITS, change);
+      if (newSlot == slot) {
+        return node;
+      }
+    }
+    Object[] slots = bitmapNode.slots.clone();
+    slots[index] = newSlot;
+    return new BitmapNode(bitmapNode.bitmap, slots);
+  }
+
+  private static Object merge(Entry<?, ?> e1, Entry<?, ?> e2, int shift) {
+    if (e1.hash == e2.hash) {
+      return new CollisionNode(e1.hash, new Entry<?, ?>[] {e1, e2});
+    }
+    int bit1 = bit(e1.hash, shift);
+    int bit2 = bit(e2.hash, shift);
+    if (bit1 == bit2) {
+      return new BitmapNode(bit1, new Object[] {merge(e1, e2, shift + BITS)});
+    }
+    return new BitmapNode(
+        bit1 | bit2,
+        Integer.compareUnsigned(bit1, bit2) < 0 ? new Object[] {e1, e2} : new Object[] {e2, e1});
+  }
+
+  private static final class Entry<K, V> extends SimpleImmutableEntry<K, V> {
+    private final int hash;
+
+    private Entry(K key, V value) {
+      super(key, value);
+      this.hash = key.hashCode();
+    }
+  }
+
+  /** Inner node, slot i holds the entry or sub node for the i-th set bit of the bitmap. */
+  private static final class BitmapNode {
+    private final int bitmap;
+    private final Object[] slots;
+
+    private BitmapNode(int bitmap, Object[] slots) {
+      this.bitmap = bitmap;
+      this.slots = slots;
+    }
+
+    private int index(int bit) {
+      return Integer.bitCount(bitmap & (bit - 1));
+    }
+  }
+
+  /** Leaf holding the entries whose keys have the same hash code. */
+  private static final class CollisionNode {
+    private final int hash;
+    private final Entry<?, ?>[] entries;
+
+    private CollisionNode(int hash, Entry<?, ?>[] entries) {
+      this.hash = hash;
+      this.entries = entries;
+    }
+
+    private Entry<?, ?> get(Object key) {
+      for (Entry<?, ?> e : entries) {
+        if (e.getKey().equals(key)) {
+          return e;
+        }
+      }
+      return null;
+    }
+
+    private CollisionNode put(Entry<?, ?> e, Change change) {
+      for (int i = 0; i < entries.length; i++) {
+        if (entries[i].getKey().equals(e.getKey())) {
+          if (entries[i].getValue().equals(e.getValue())) {
+            return this;
+          }
+          change.replaced = entries[i];
+          Entry<?, ?>[] res = entries.clone();
+          res[i] = e;
+          return new CollisionNode(hash, res);
+        }
+      }
+      Entry<?, ?>[] res = Arrays.copyOf(entries, entries.length + 1);
+      res[entries.length] = e;
+      return new CollisionNode(hash, res);
+    }
+  }
+
+  private static final class Change {
+    private Entry<?, ?> replaced;
+  }
+
+  /** Depth-first iterator over the entries of a trie. */
+  private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+    private final Object[][] stack = new Object[Integer.SIZE / BITS + 2][];
+    private final int[] positions = new int[stack.length];
+    private int depth;
+    private Iterator<Map.Entry<K, V>> collision = Collections.emptyIterator();
+    private Map.Entry<K, V> next;
+
+    private EntryIterator(Object root) {
+      push(root);
+      advance();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void push(Object node) {
+      if (node instanceof CollisionNode) {
+        collision = Iterators.forArray((Map.Entry<K, V>[]) ((CollisionNode) node).entries);
+        return;
+      }
+      stack[depth] = ((BitmapNode) node).slots;
+      positions[depth] = 0;
+      depth++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void advance() {
+      next = null;
+      while (next == null) {
+        if (collision.hasNext()) {
+          next = collision.next();
+          return;
+        }
+        if (depth == 0) {
+          return;
+        }
+        Object[] slots = stack[depth - 1];
+        if (positions[depth - 1] == slots.length) {
+          depth--;
+          continue;
+        }
+        Object slot = slots[positions[depth - 1]++];
+        if (slot instanceof Entry) {
+          next = (Map.Entry<K, V>) slot;
+        } else {
+          push(slot);
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public Map.Entry<K, V> next() {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      Map.Entry<K, V> res = next;
+      advance();
+      return res;
+    }
+  }
+}
@@ -0,0 +1,58 @@
+package boomerang.util;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+
+/** Immutable hash set with structural sharing, backed by a {@link PersistentMap}. */
+public final class PersistentSet<E> extends AbstractSet<E> {
+  private static final PersistentSet<?> EMPTY = new PersistentSet<>(PersistentMap.empty(), 0);
+
+  private final PersistentMap<E, Boolean> map;
+  /** Sum of the hash codes of the elements, consistent with {@link java.util.Set#hashCode()}. */
+  private final int hash;
+
+  private PersistentSet(PersistentMap<E, Boolean> map, int hash) {
+    this.map = map;
+    this.hash = hash;
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <E> PersistentSet<E> empty() {
+    return (PersistentSet<E>) EMPTY;
+  }
+
+  /** @return A set with the given element, or this set if it already contains the element. */
+  public PersistentSet<E> plus(E e) {
+    PersistentMap<E, Boolean> res = map.plus(e, Boolean.TRUE);
+    return res == map ? this : new PersistentSet<>(res, hash + e.hashCode());
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return map.containsKey(o);
+  }
+
+  @Override
+  public Iterator<E> iterator() {
+    return map.keySet().iterator();
+  }
+
+  @Override
+  public int size() {
+    return map.size();
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o instanceof PersistentSet) {
+      PersistentSet<?> other = (PersistentSet<?>) o;
+      return hash == other.hash && map.equals(other.map);
+    }
+    return super.equals(o);
+  }
+}
@@ -4,8 +4,7 @@ import wpds.impl.Weight;
 
 public class MinDistanceWeight extends Weight {
 
-  private static MinDistanceWeight one;
-  private static MinDistanceWeight zero;
+  private static final MinDistanceWeight one = new MinDistanceWeight("ONE");
 
   private Integer minDistance = -1;
   private String rep;
@@ -40,7 +39,6 @@ public class MinDistanceWeight extends Weight {
   }
 
   public static MinDistanceWeight one() {
-    if (one == null) one = new MinDistanceWeight("ONE");
     return one;
   }
 
@@ -3,45 +3,53 @@ package boomerang.weights;
 import boomerang.scene.Method;
 import boomerang.scene.Statement;
 import boomerang.scene.Val;
-import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
+import boomerang.util.PersistentMap;
+import boomerang.util.PersistentSet;
+import java.util.Collections;
 import java.util.Map;
-import java.util.Set;
 import wpds.impl.Weight;
 
 public class PathConditionWeight extends Weight {
 
-  private static PathConditionWeight one;
-  private Map<Statement, ConditionDomain> ifStatements = Maps.newHashMap();
-  private Map<Val, ConditionDomain> variableToValue = Maps.newHashMap();
-  private Set<Val> returnVals = Sets.newHashSet();
-  private Map<Method, Statement> calleeToCallSite = Maps.newHashMap();
+  private static final PathConditionWeight one = new PathConditionWeight("ONE");
+  private final PersistentMap<Statement, ConditionDomain> ifStatements;
+  private final PersistentMap<Val, ConditionDomain> variableToValue;
+  private final PersistentSet<Val> returnVals;
+  private final PersistentMap<Method, Statement> calleeToCallSite;
   private String rep;
+  private int hashCode;
 
   private PathConditionWeight(String rep) {
+    this(
+        PersistentMap.empty(), PersistentMap.empty(), PersistentSet.empty(), PersistentMap.empty());
     this.rep = rep;
   }
 
   public PathConditionWeight(Statement callSite, Method callee) {
-    this.calleeToCallSite.put(callee, callSite);
+    this(
+        PersistentMap.empty(),
+        PersistentMap.empty(),
+        PersistentSet.empty(),
+        PersistentMap.of(callee, callSite));
   }
 
   public static PathConditionWeight one() {
-    if (one == null) {
-      one = new PathConditionWeight("ONE");
-    }
     return one;
   }
 
   public PathConditionWeight(Val returnVal) {
-    this.returnVals.add(returnVal);
+    this(
+        PersistentMap.empty(),
+        PersistentMap.empty(),
+        PersistentSet.<Val>empty().plus(returnVal),
+        PersistentMap.empty());
   }
 
   private PathConditionWeight(
-      Map<Statement, ConditionDomain> ifStatements,
-      Map<Val, ConditionDomain> variableToValue,
-      Set<Val> returnVals,
-      Map<Method, Statement> calleeToCallSiteMapping) {
+      PersistentMap<Statement, ConditionDomain> ifStatements,
+      PersistentMap<Val, ConditionDomain> variableToValue,
+      PersistentSet<Val> returnVals,
+      PersistentMap<Method, Statement> calleeToCallSiteMapping) {
     this.ifStatements = ifStatements;
     this.variableToValue = variableToValue;
     this.returnVals = returnVals;
@@ -49,11 +57,19 @@ public class PathConditionWeight extends Weight {
   }
 
   public PathConditionWeight(Statement ifStatement, Boolean condition) {
-    ifStatements.put(ifStatement, condition ? ConditionDomain.TRUE : ConditionDomain.FALSE);
+    this(
+        PersistentMap.of(ifStatement, condition ? ConditionDomain.TRUE : ConditionDomain.FALSE),
+        PersistentMap.empty(),
+        PersistentSet.empty(),
+        PersistentMap.empty());
   }
 
   public PathConditionWeight(Val val, ConditionDomain c) {
-    variableToValue.put(val, c);
+    this(
+        PersistentMap.empty(),
+        PersistentMap.of(val, c),
+        PersistentSet.empty(),
+        PersistentMap.empty());
   }
 
   public enum ConditionDomain {
@@ -68,47 +84,14 @@ public class PathConditionWeight extends Weight {
       throw new RuntimeException("Cannot extend to different types of weight!");
     }
     PathConditionWeight other = (PathConditionWeight) o;
-    Map<Statement, ConditionDomain> newIfs = Maps.newHashMap();
-
-    newIfs.putAll(ifStatements);
-    for (Map.Entry<Statement, ConditionDomain> e : other.ifStatements.entrySet()) {
-      if (newIfs.containsKey(e.getKey()) && e.getValue().equals(ConditionDomain.TOP)) {
-        newIfs.put(e.getKey(), ConditionDomain.TOP);
-      } else {
-        newIfs.put(e.getKey(), e.getValue());
-      }
-    }
-
-    Map<Val, ConditionDomain> newVals = Maps.newHashMap();
-
-    newVals.putAll(variableToValue);
-    for (Map.Entry<Val, ConditionDomain> e : other.variableToValue.entrySet()) {
-      if (newVals.containsKey(e.getKey()) && e.getValue().equals(ConditionDomain.TOP)) {
-        newVals.put(e.getKey(), ConditionDomain.TOP);
-      } else {
-        newVals.put(e.getKey(), e.getValue());
-      }
-    }
-
-    // May become a performance bottleneck
-    Map<Val, ConditionDomain> returnToAssignedVariableMap = Maps.newHashMap();
-    if (!returnVals.isEmpty()) {
-      for (Map.Entry<Val, ConditionDomain> v : newVals.entrySet()) {
-        if (returnVals.contains(v.getKey())) {
-          Statement s = calleeToCallSite.get(v.getKey().m());
-          if (s != null) {
-            Val leftOp = s.getLeftOp();
-            returnToAssignedVariableMap.put(leftOp, v.getValue());
-          }
-        }
-      }
-    }
-    newVals.putAll(returnToAssignedVariableMap);
-    Set<Val> newReturnVals = Sets.newHashSet(returnVals);
-    newReturnVals.addAll(other.returnVals);
-    Map<Method, Statement> calleeToCallSiteMapping = Maps.newHashMap(calleeToCallSite);
-    calleeToCallSiteMapping.putAll(other.calleeToCallSite);
-    return new PathConditionWeight(newIfs, newVals, newReturnVals, calleeToCallSiteMapping);
+    PersistentMap<Statement, ConditionDomain> newIfs = overlay(ifStatements, other.ifStatements);
+    PersistentMap<Val, ConditionDomain> newVals = overlay(variableToValue, other.variableToValue);
+    newVals = addReturnToAssignedVariables(newVals);
+    return new PathConditionWeight(
+        newIfs,
+        newVals,
+        union(returnVals, other.returnVals),
+        overlay(calleeToCallSite, other.calleeToCallSite));
   }
 
   @Override
@@ -117,71 +100,91 @@ public class PathConditionWeight extends Weight {
       throw new RuntimeException("Cannot extend to different types of weight!");
     }
     PathConditionWeight other = (PathConditionWeight) o;
-    Map<Statement, ConditionDomain> newIfs = Maps.newHashMap();
-    for (Map.Entry<Statement, ConditionDomain> e : ifStatements.entrySet()) {
-      if (other.ifStatements.containsKey(e.getKey())) {
-        ConditionDomain otherVal = other.ifStatements.get(e.getKey());
-        if (e.getValue().equals(otherVal)) {
-          newIfs.put(e.getKey(), otherVal);
-        } else {
-          newIfs.put(e.getKey(), ConditionDomain.TOP);
-        }
-      } else {
-        newIfs.put(e.getKey(), e.getValue());
-      }
-    }
-    for (Map.Entry<Statement, ConditionDomain> e : other.ifStatements.entrySet()) {
-      if (!ifStatements.containsKey(e.getKey())) {
-        newIfs.put(e.getKey(), e.getValue());
+    PersistentMap<Statement, ConditionDomain> newIfs = join(ifStatements, other.ifStatements);
+    PersistentMap<Val, ConditionDomain> newVals = join(variableToValue, other.variableToValue);
+    newVals = addReturnToAssignedVariables(newVals);
+    return new PathConditionWeight(
+        newIfs,
+        newVals,
+        union(returnVals, other.returnVals),
+        overlay(calleeToCallSite, other.calleeToCallSite));
+  }
+
+  /*
+   * The maps and sets of a weight are persistent and share their structure. The helpers below add
+   * the entries of the smaller operand to the larger one, such that extend and combine take time
+   * proportional to the smaller operand instead of copying both.
+   */
+
+  /** @return The entries of base, overwritten by the entries of other. */
+  private static <K, V> PersistentMap<K, V> overlay(
+      PersistentMap<K, V> base, PersistentMap<K, V> other) {
+    if (base.size() > other.size()) {
+      return base.plusAll(other);
+    }
+    PersistentMap<K, V> res = other;
+    for (Map.Entry<K, V> e : base.entrySet()) {
+      if (!other.containsKey(e.getKey())) {
+        res = res.plus(e.getKey(), e.getValue());
       }
     }
+    return res;
+  }
 
-    Map<Val, ConditionDomain> newVals = Maps.newHashMap();
-    for (Map.Entry<Val, ConditionDomain> e : variableToValue.entrySet()) {
-      if (other.variableToValue.containsKey(e.getKey())) {
-        ConditionDomain otherVal = other.variableToValue.get(e.getKey());
-        if (e.getValue().equals(otherVal)) {
-          newVals.put(e.getKey(), otherVal);
-        } else {
-          newVals.put(e.getKey(), ConditionDomain.TOP);
-        }
-      } else {
-        newVals.put(e.getKey(), e.getValue());
-      }
+  /** @return The union of both maps, keys mapped to different conditions are mapped to TOP. */
+  private static <K> PersistentMap<K, ConditionDomain> join(
+      PersistentMap<K, ConditionDomain> a, PersistentMap<K, ConditionDomain> b) {
+    if (a.size() < b.size()) {
+      return join(b, a);
+    }
+    PersistentMap<K, ConditionDomain> res = a;
+    for (Map.Entry<K, ConditionDomain> e : b.entrySet()) {
+      ConditionDomain aVal = a.get(e.getKey());
+      res =
+          res.plus(
+              e.getKey(),
+              aVal == null || aVal.equals(e.getValue()) ? e.getValue() : ConditionDomain.TOP);
+    }
+    return res;
+  }
+
+  private static <T> PersistentSet<T> union(PersistentSet<T> a, PersistentSet<T> b) {
+    if (a.size() < b.size()) {
+      return union(b, a);
     }
-    for (Map.Entry<Val, ConditionDomain> e : other.variableToValue.entrySet()) {
-      if (!variableToValue.containsKey(e.getKey())) {
-        newVals.put(e.getKey(), e.getValue());
-      }
+    PersistentSet<T> res = a;
+    for (T t : b) {
+      res = res.plus(t);
     }
+    return res;
+  }
 
-    Map<Val, ConditionDomain> returnToAssignedVariableMap = Maps.newHashMap();
-    if (!returnVals.isEmpty()) {
-      for (Map.Entry<Val, ConditionDomain> v : newVals.entrySet()) {
-        if (returnVals.contains(v.getKey())) {
-          Statement s = calleeToCallSite.get(v.getKey().m());
-          if (s != null) {
-            Val leftOp = s.getLeftOp();
-            returnToAssignedVariableMap.put(leftOp, v.getValue());
-          }
+  private PersistentMap<Val, ConditionDomain> addReturnToAssignedVariables(
+      PersistentMap<Val, ConditionDomain> vals) {
+    PersistentMap<Val, ConditionDomain> res = vals;
+    for (Val returnVal : returnVals) {
+      ConditionDomain condition = vals.get(returnVal);
+      if (condition != null) {
+        Statement s = calleeToCallSite.get(returnVal.m());
+        if (s != null) {
+          res = res.plus(s.getLeftOp(), condition);
         }
       }
     }
-    newVals.putAll(returnToAssignedVariableMap);
-    Set<Val> newReturnVals = Sets.newHashSet(returnVals);
-    newReturnVals.addAll(other.returnVals);
-    Map<Method, Statement> calleeToCallSiteMapping = Maps.newHashMap(calleeToCallSite);
-    calleeToCallSiteMapping.putAll(other.calleeToCallSite);
-    return new PathConditionWeight(newIfs, newVals, newReturnVals, calleeToCallSiteMapping);
+    return res;
   }
 
   @Override
   public int hashCode() {
+    if (hashCode != 0) {
+      return hashCode;
+    }
     final int prime = 31;
     int result = 1;
     result = prime * result + ((ifStatements == null) ? 0 : ifStatements.hashCode());
     result = prime * result + ((variableToValue == null) ? 0 : variableToValue.hashCode());
     result = prime * result + ((rep == null) ? 0 : rep.hashCode());
+    hashCode = result;
     return result;
   }
 
@@ -197,6 +200,9 @@ public class PathConditionWeight extends Weight {
       return false;
     }
     PathConditionWeight other = (PathConditionWeight) obj;
+    if (hashCode() != other.hashCode()) {
+      return false;
+    }
     if (ifStatements == null) {
       if (other.ifStatements != null) {
         return false;
@@ -223,11 +229,11 @@ public class PathConditionWeight extends Weight {
   }
 
   public Map<Statement, ConditionDomain> getConditions() {
-    return ifStatements;
+    return Collections.unmodifiableMap(ifStatements);
   }
 
   public Map<Val, ConditionDomain> getEvaluationMap() {
-    return variableToValue;
+    return Collections.unmodifiableMap(variableToValue);
   }
 
   @Override
@@ -0,0 +1,231 @@
+package boomerang.weights;
+
+import boomerang.scene.ControlFlowGraph.Edge;
+import boomerang.scene.Val;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import sync.pds.solver.nodes.Node;
+
+/**
+ * Immutable family of paths, each path a set of statements, stored as a zero-suppressed decision
+ * diagram. Each node chooses between the paths without and the paths with its statement, such that
+ * the paths share their common segments. Nodes are unique, two families are equal iff they are the
+ * same object. Statements are ordered by the time they were first seen, the latest at the top,
+ * hence appending a statement not seen before to all paths adds a single node. The paths are only
+ * enumerated on request by {@link #paths()}.
+ */
+final class PathFamily {
+
+  /** The family without any path. */
+  static final PathFamily NONE = new PathFamily(null, null, null, 0);
+
+  /** The family holding the path without statements. */
+  private static final PathFamily EMPTY_PATH = new PathFamily(null, null, null, 1);
+
+  private static final Interner<PathFamily> NODES = Interners.newWeakInterner();
+
+  private static final Map<Node<Edge, Val>, WeakReference<Variable>> VARIABLES =
+      new WeakHashMap<>();
+
+  private static int nextVariableId;
+
+  private final Variable var;
+  private final PathFamily without;
+  private final PathFamily with;
+  private final int hash;
+
+  private PathFamily(Variable var, PathFamily without, PathFamily with, int hash) {
+    this.var = var;
+    this.without = without;
+    this.with = with;
+    this.hash = hash;
+  }
+
+  /** @return The family holding the single path of the statement. */
+  static PathFamily of(Node<Edge, Val> statement) {
+    return node(variable(statement), NONE, EMPTY_PATH);
+  }
+
+  /** @return The paths of this family and those of the other. */
+  PathFamily union(PathFamily other) {
+    return new Apply().union(this, other);
+  }
+
+  /** @return The paths that join any path of this family with any path of the other. */
+  PathFamily join(PathFamily other) {
+    return new Apply().join(this, other);
+  }
+
+  /**
+   * @return The paths of this family, each with its statements in the order they were first seen.
+   */
+  Set<LinkedHashSet<Node<Edge, Val>>> paths() {
+    Set<LinkedHashSet<Node<Edge, Val>>> res = Sets.newHashSet();
+    collect(this, new ArrayDeque<>(), res);
+    return res;
+  }
+
+  private static void collect(
+      PathFamily family, Deque<Node<Edge, Val>> path, Set<LinkedHashSet<Node<Edge, Val>>> res) {
+    if (family == NONE) {
+      return;
+    }
+    if (family == EMPTY_PATH) {
+      res.add(new LinkedHashSet<>(path));
+      return;
+    }
+    collect(family.without, path, res);
+    path.addFirst(family.var.statement);
+    collect(family.with, path, res);
+    path.removeFirst();
+  }
+
+  private int order() {
+    return var == null ? -1 : var.id;
+  }
+
+  private static PathFamily node(Variable var, PathFamily without, PathFamily with) {
+    if (with == NONE) {
+      return without;
+    }
+    return NODES.intern(new PathFamily(var, without, with, hash(var, without, with)));
+  }
+
+  private static int hash(Variable var, PathFamily without, PathFamily with) {
+    final int prime = 31;
+    int result = var.id;
+    result = prime * result + without.hash;
+    result = prime * result + with.hash;
+    return result;
+  }
+
+  private static synchronized Variable variable(Node<Edge, Val> statement) {
+    WeakReference<Variable> ref = VARIABLES.get(statement);
+    Variable var = ref == null ? null : ref.get();
+    if (var == null) {
+      var = new Variable(statement, nextVariableId++);
+      // An equal key may outlive the variable, the entry must be keyed by the variable's statement.
+      VARIABLES.remove(statement);
+      VARIABLES.put(statement, new WeakReference<>(var));
+    }
+    return var;
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) return true;
+    if (!(obj instanceof PathFamily)) return false;
+    PathFamily other = (PathFamily) obj;
+    // Structural equality of the children, which are unique, for the interner only.
+    return var != null && var == other.var && without == other.without && with == other.with;
+  }
+
+  @Override
+  public String toString() {
+    return paths().toString();
+  }
+
+  /** A statement and its position in the order of the statements. */
+  private static final class Variable {
+    private final Node<Edge, Val> statement;
+    private final int id;
+
+    private Variable(Node<Edge, Val> statement, int id) {
+      this.statement = statement;
+      this.id = id;
+    }
+  }
+
+  /** The memoised operations on two families. */
+  private static final class Apply {
+    private final Map<Operands, PathFamily> unions = Maps.newHashMap();
+    private final Map<Operands, PathFamily> joins = Maps.newHashMap();
+
+    private PathFamily union(PathFamily a, PathFamily b) {
+      if (a == NONE || a == b) {
+        return b;
+      }
+      if (b == NONE) {
+        return a;
+      }
+      if (a.order() < b.order()) {
+        return union(b, a);
+      }
+      Operands key = new Operands(a, b);
+      PathFamily res = unions.get(key);
+      if (res == null) {
+        if (a.order() > b.order()) {
+          res = node(a.var, union(a.without, b), a.with);
+        } else {
+          res = node(a.var, union(a.without, b.without), union(a.with, b.with));
+        }
+        unions.put(key, res);
+      }
+      return res;
+    }
+
+    private PathFamily join(PathFamily a, PathFamily b) {
+      if (a == NONE || b == NONE) {
+        return NONE;
+      }
+      if (a == EMPTY_PATH) {
+        return b;
+      }
+      if (b == EMPTY_PATH) {
+        return a;
+      }
+      if (a.order() < b.order()) {
+        return join(b, a);
+      }
+      Operands key = new Operands(a, b);
+      PathFamily res = joins.get(key);
+      if (res == null) {
+        if (a.order() > b.order()) {
+          res = node(a.var, join(a.without, b), join(a.with, b));
+        } else {
+          PathFamily with =
+              union(union(join(a.with, b.with), join(a.with, b.without)), join(a.without, b.with));
+          res = node(a.var, join(a.without, b.without), with);
+        }
+        joins.put(key, res);
+      }
+      return res;
+    }
+  }
+
+  private static final class Operands {
+    private final PathFamily a;
+    private final PathFamily b;
+
+    private Operands(PathFamily a, PathFamily b) {
+      this.a = a;
+      this.b = b;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * a.hash + b.hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Operands)) return false;
+      Operands other = (Operands) obj;
+      return a == other.a && b == other.b;
+    }
+  }
+}
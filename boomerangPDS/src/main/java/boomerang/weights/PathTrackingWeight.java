@@ -2,8 +2,9 @@ package boomerang.weights;
 
 import boomerang.scene.ControlFlowGraph.Edge;
 import boomerang.scene.Val;
+import boomerang.util.PersistentSet;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
+import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
@@ -12,41 +13,38 @@ import wpds.impl.Weight;
 
 public class PathTrackingWeight extends Weight {
 
-  private static PathTrackingWeight one;
+  private static final PathTrackingWeight one = new PathTrackingWeight("ONE");
   /**
-   * This set keeps track of all statements on a shortest path that use an alias from source to
+   * This path keeps track of all statements on a shortest path that use an alias from source to
    * sink.
    */
-  private LinkedHashSet<Node<Edge, Val>> shortestPathWitness = new LinkedHashSet<>();
+  private final Path shortestPathWitness;
   /**
-   * This set keeps track of all statement along all paths that use an alias from source to sink.
+   * This family keeps track of all statement along all paths that use an alias from source to sink.
+   * Paths share their common segments and are only enumerated when requested by {@link
+   * #getAllPathWitness()}.
    */
-  private Set<LinkedHashSet<Node<Edge, Val>>> allPathWitness = Sets.newHashSet();
+  private final PathFamily allPathWitness;
 
   private String rep;
 
   private PathTrackingWeight(String rep) {
     this.rep = rep;
+    this.shortestPathWitness = Path.EMPTY;
+    this.allPathWitness = PathFamily.NONE;
   }
 
-  private PathTrackingWeight(
-      LinkedHashSet<Node<Edge, Val>> allStatement,
-      Set<LinkedHashSet<Node<Edge, Val>>> allPathWitness) {
-    this.shortestPathWitness = allStatement;
+  private PathTrackingWeight(Path shortestPathWitness, PathFamily allPathWitness) {
+    this.shortestPathWitness = shortestPathWitness;
     this.allPathWitness = allPathWitness;
   }
 
   public PathTrackingWeight(Node<Edge, Val> relevantStatement) {
-    this.shortestPathWitness.add(relevantStatement);
-    LinkedHashSet<Node<Edge, Val>> firstDataFlowPath = new LinkedHashSet<>();
-    firstDataFlowPath.add(relevantStatement);
-    this.allPathWitness.add(firstDataFlowPath);
+    this.shortestPathWitness = Path.EMPTY.append(relevantStatement);
+    this.allPathWitness = PathFamily.of(relevantStatement);
   }
 
   public static PathTrackingWeight one() {
-    if (one == null) {
-      one = new PathTrackingWeight("ONE");
-    }
     return one;
   }
 
@@ -55,35 +53,18 @@ public class PathTrackingWeight extends Weight {
     if (!(o instanceof PathTrackingWeight))
       throw new RuntimeException("Cannot extend to different types of weight!");
     PathTrackingWeight other = (PathTrackingWeight) o;
-    LinkedHashSet<Node<Edge, Val>> newAllStatements = new LinkedHashSet<>();
-    newAllStatements.addAll(shortestPathWitness);
-    newAllStatements.addAll(other.shortestPathWitness);
-
-    Set<LinkedHashSet<Node<Edge, Val>>> newAllPathStatements = new LinkedHashSet<>();
-    for (LinkedHashSet<Node<Edge, Val>> pathPrefix : allPathWitness) {
-      for (LinkedHashSet<Node<Edge, Val>> pathSuffix : other.allPathWitness) {
-        LinkedHashSet<Node<Edge, Val>> combinedPath = Sets.newLinkedHashSet();
-        combinedPath.addAll(pathPrefix);
-        combinedPath.addAll(pathSuffix);
-        newAllPathStatements.add(combinedPath);
-      }
-    }
-    if (allPathWitness.isEmpty()) {
-      for (LinkedHashSet<Node<Edge, Val>> pathSuffix : other.allPathWitness) {
-        LinkedHashSet<Node<Edge, Val>> combinedPath = Sets.newLinkedHashSet();
-        combinedPath.addAll(pathSuffix);
-        newAllPathStatements.add(combinedPath);
-      }
-    }
-    if (other.allPathWitness.isEmpty()) {
-      for (LinkedHashSet<Node<Edge, Val>> pathSuffix : allPathWitness) {
-        LinkedHashSet<Node<Edge, Val>> combinedPath = Sets.newLinkedHashSet();
-        combinedPath.addAll(pathSuffix);
-        newAllPathStatements.add(combinedPath);
-      }
+    Path newShortestPath = shortestPathWitness.appendAll(other.shortestPathWitness);
+
+    PathFamily newAllPathStatements;
+    if (allPathWitness == PathFamily.NONE) {
+      newAllPathStatements = other.allPathWitness;
+    } else if (other.allPathWitness == PathFamily.NONE) {
+      newAllPathStatements = allPathWitness;
+    } else {
+      newAllPathStatements = allPathWitness.join(other.allPathWitness);
     }
 
-    return new PathTrackingWeight(newAllStatements, newAllPathStatements);
+    return new PathTrackingWeight(newShortestPath, newAllPathStatements);
   }
 
   @Override
@@ -91,25 +72,13 @@ public class PathTrackingWeight extends Weight {
     if (!(o instanceof PathTrackingWeight))
       throw new RuntimeException("Cannot extend to different types of weight!");
     PathTrackingWeight other = (PathTrackingWeight) o;
-    Set<LinkedHashSet<Node<Edge, Val>>> newAllPathStatements = new LinkedHashSet<>();
-    for (LinkedHashSet<Node<Edge, Val>> pathPrefix : allPathWitness) {
-      LinkedHashSet<Node<Edge, Val>> combinedPath = Sets.newLinkedHashSet();
-      combinedPath.addAll(pathPrefix);
-      newAllPathStatements.add(combinedPath);
-    }
-    for (LinkedHashSet<Node<Edge, Val>> pathPrefix : other.allPathWitness) {
-      LinkedHashSet<Node<Edge, Val>> combinedPath = Sets.newLinkedHashSet();
-      combinedPath.addAll(pathPrefix);
-      newAllPathStatements.add(combinedPath);
-    }
+    PathFamily newAllPathStatements = allPathWitness.union(other.allPathWitness);
 
     if (shortestPathWitness.size() > other.shortestPathWitness.size()) {
-      return new PathTrackingWeight(
-          new LinkedHashSet<>(other.shortestPathWitness), newAllPathStatements);
+      return new PathTrackingWeight(other.shortestPathWitness, newAllPathStatements);
     }
 
-    return new PathTrackingWeight(
-        new LinkedHashSet<>(this.shortestPathWitness), newAllPathStatements);
+    return new PathTrackingWeight(this.shortestPathWitness, newAllPathStatements);
   }
 
   @Override
@@ -130,9 +99,8 @@ public class PathTrackingWeight extends Weight {
     if (shortestPathWitness == null) {
       if (other.shortestPathWitness != null) return false;
     } else if (!shortestPathWitness.equals(other.shortestPathWitness)) return false;
-    if (allPathWitness == null) {
-      if (other.allPathWitness != null) return false;
-    } else if (!allPathWitness.equals(other.allPathWitness)) return false;
+    // Path families are unique.
+    if (allPathWitness != other.allPathWitness) return false;
     if (rep == null) {
       if (other.rep != null) return false;
     } else if (!rep.equals(other.rep)) return false;
@@ -145,10 +113,84 @@ public class PathTrackingWeight extends Weight {
   }
 
   public List<Node<Edge, Val>> getShortestPathWitness() {
-    return Lists.newArrayList(shortestPathWitness);
+    return Lists.newArrayList(shortestPathWitness.nodes());
   }
 
+  /**
+   * @return All paths, each with its statements in the order they were first seen by any path
+   *     tracking weight.
+   */
   public Set<LinkedHashSet<Node<Edge, Val>>> getAllPathWitness() {
-    return Sets.newHashSet(allPathWitness);
+    return allPathWitness.paths();
+  }
+
+  /**
+   * Immutable path of distinct statements, stored as a list linked towards its first statement.
+   * Appending to a path shares the existing path as prefix instead of copying it, a persistent set
+   * of the statements answers membership. Like the sets it replaces, two paths are equal if they
+   * contain the same statements.
+   */
+  private static final class Path {
+    private static final Path EMPTY = new Path(null, null);
+
+    private final Path prefix;
+    private final Node<Edge, Val> last;
+    private final PersistentSet<Node<Edge, Val>> members;
+
+    private Path(Path prefix, Node<Edge, Val> last) {
+      this.prefix = prefix;
+      this.last = last;
+      this.members = prefix == null ? PersistentSet.empty() : prefix.members.plus(last);
+    }
+
+    private int size() {
+      return members.size();
+    }
+
+    private Path append(Node<Edge, Val> node) {
+      return members.contains(node) ? this : new Path(this, node);
+    }
+
+    private Path appendAll(Path suffix) {
+      if (suffix.size() == 0) {
+        return this;
+      }
+      if (size() == 0) {
+        return suffix;
+      }
+      Path res = this;
+      for (Node<Edge, Val> node : suffix.nodes()) {
+        res = res.append(node);
+      }
+      return res;
+    }
+
+    /** @return The statements of this path in the order they were appended. */
+    @SuppressWarnings("unchecked")
+    private List<Node<Edge, Val>> nodes() {
+      Node<Edge, Val>[] nodes = new Node[size()];
+      int i = nodes.length;
+      for (Path p = this; p.last != null; p = p.prefix) {
+        nodes[--i] = p.last;
+      }
+      return Arrays.asList(nodes);
+    }
+
+    @Override
+    public int hashCode() {
+      return members.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) return true;
+      if (!(obj instanceof Path)) return false;
+      return members.equals(((Path) obj).members);
+    }
+
+    @Override
+    public String toString() {
+      return nodes().toString();
+    }
   }
 }
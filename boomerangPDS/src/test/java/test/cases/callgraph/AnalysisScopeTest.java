@@ -0,0 +1,101 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package test.cases.callgraph;
+
+import boomerang.Query;
+import boomerang.scene.AnalysisScope;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.junit.Assert;
+import org.junit.Test;
+import test.core.BoomerangApiTest;
+import test.core.FirstArgumentOf;
+import test.core.Preanalysis;
+
+/**
+ * Discovers the seeds with each variant of {@link AnalysisScope}. The streaming and the parallel
+ * variants must find the same seeds as {@link AnalysisScope#computeSeeds()} and hand each seed to
+ * the consumer exactly once.
+ */
+public class AnalysisScopeTest extends BoomerangApiTest {
+
+  @Override
+  protected void analyze() {
+    Set<Query> expected = Sets.newHashSet(scope().computeSeeds());
+    Assert.assertTrue(expected.size() > 1);
+
+    List<Query> streamed = Lists.newArrayList();
+    scope().computeSeeds(streamed::add);
+    assertSeeds(expected, streamed);
+
+    for (int parallelism : new int[] {1, 4}) {
+      Assert.assertEquals(expected, Sets.newHashSet(scope().computeSeedsInParallel(parallelism)));
+      Queue<Query> streamedInParallel = new ConcurrentLinkedQueue<>();
+      scope().computeSeedsInParallel(parallelism, streamedInParallel::add);
+      assertSeeds(expected, streamedInParallel);
+    }
+  }
+
+  private AnalysisScope scope() {
+    return new Preanalysis(callGraph, new FirstArgumentOf("queryFor"));
+  }
+
+  private static void assertSeeds(Set<Query> expected, Collection<Query> streamed) {
+    Assert.assertEquals(expected, Sets.newHashSet(streamed));
+    Assert.assertEquals(expected.size(), streamed.size());
+  }
+
+  @Test
+  public void seedsAtEachCallDepth() {
+    Object o = new Object();
+    queryFor(o);
+    left(o);
+    right(o);
+  }
+
+  @Test
+  public void recursiveCalls() {
+    Object o = new Object();
+    recurse(o, 3);
+    queryFor(o);
+  }
+
+  private void left(Object o) {
+    Object l = new Object();
+    queryFor(l);
+    shared(o);
+  }
+
+  private void right(Object o) {
+    shared(o);
+    Object r = new Object();
+    queryFor(r);
+  }
+
+  private void shared(Object o) {
+    queryFor(o);
+    Object s = new Object();
+    recurse(s, 2);
+  }
+
+  private void recurse(Object o, int depth) {
+    if (depth > 0) {
+      recurse(o, depth - 1);
+    }
+    queryFor(o);
+  }
+}
@@ -0,0 +1,134 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package test.cases.callgraph;
+
+import boomerang.Boomerang;
+import boomerang.ForwardQuery;
+import boomerang.scene.CallGraph;
+import boomerang.scene.CallGraph.Edge;
+import boomerang.scene.CompactCallGraph;
+import boomerang.scene.Method;
+import boomerang.scene.Statement;
+import boomerang.scene.jimple.SootCallGraph;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import test.core.BoomerangApiTest;
+import test.core.selfrunning.AllocatedObject;
+
+/**
+ * Copies a call graph that lacks the edges into one method into a {@link CompactCallGraph} and adds
+ * the missing edges afterwards. The grown graph must answer all lookups like the complete call
+ * graph, survive a round trip through a file, and yield the results of the complete call graph.
+ * Compact call graphs built directly from the Soot call graph, and from edges with duplicates, must
+ * equal the complete call graph as well.
+ */
+public class CompactCallGraphTest extends BoomerangApiTest {
+
+  @Override
+  protected void analyze() {
+    List<Edge> intoIdentity = Lists.newArrayList();
+    CallGraph partial = new CallGraph();
+    for (Method entryPoint : callGraph.getEntryPoints()) {
+      partial.addEntryPoint(entryPoint);
+    }
+    for (Edge e : callGraph.getEdges()) {
+      if (e.tgt().getName().equals("identity")) {
+        intoIdentity.add(e);
+      } else {
+        partial.addEdge(e);
+      }
+    }
+    Assert.assertFalse(intoIdentity.isEmpty());
+
+    CompactCallGraph compact = new CompactCallGraph(partial);
+    assertSameGraph(partial, compact);
+    Assert.assertSame(compact.getReachableMethods(), compact.getReachableMethods());
+    compact.getStaticFieldIndex();
+    // Edges may be added while the reachable methods are iterated.
+    boolean added = false;
+    for (Method m : compact.getReachableMethods()) {
+      if (!added) {
+        for (Edge e : intoIdentity) {
+          Assert.assertTrue(compact.addEdge(e));
+          Assert.assertFalse(compact.addEdge(e));
+        }
+        added = true;
+      }
+    }
+    Assert.assertFalse(compact.addEdge(partial.getEdges().iterator().next()));
+    Assert.assertTrue(compact.getStaticFieldIndex().contains(intoIdentity.get(0).tgt()));
+    assertSameGraph(callGraph, compact);
+
+    CompactCallGraph read;
+    try {
+      Path file = Files.createTempFile("callgraph", ".bin");
+      try {
+        compact.write(file);
+        read = SootCallGraph.readCompact(file);
+      } finally {
+        Files.delete(file);
+      }
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    }
+    assertSameGraph(callGraph, read);
+    assertSameGraph(callGraph, SootCallGraph.compact());
+    assertSameGraph(
+        callGraph,
+        new CompactCallGraph(
+            callGraph.getEntryPoints(),
+            Iterables.concat(callGraph.getEdges(), callGraph.getEdges())));
+
+    for (ForwardQuery query : allocationSites()) {
+      Assert.assertEquals(
+          rows(new Boomerang(callGraph, dataFlowScope, createOptions()).solve(query)),
+          rows(new Boomerang(compact, dataFlowScope, createOptions()).solve(query)));
+    }
+  }
+
+  private static void assertSameGraph(CallGraph expected, CallGraph actual) {
+    Assert.assertEquals(expected.size(), actual.size());
+    Assert.assertEquals(expected.getEdges(), Sets.newHashSet(actual.getEdges()));
+    Assert.assertEquals(
+        Sets.newHashSet(expected.getEntryPoints()), Sets.newHashSet(actual.getEntryPoints()));
+    Assert.assertEquals(expected.getReachableMethods(), actual.getReachableMethods());
+    for (Method m : expected.getReachableMethods()) {
+      Assert.assertEquals(
+          Sets.newHashSet(expected.edgesInto(m)), Sets.newHashSet(actual.edgesInto(m)));
+      for (Statement s : m.getStatements()) {
+        Assert.assertEquals(
+            Sets.newHashSet(expected.edgesOutOf(s)), Sets.newHashSet(actual.edgesOutOf(s)));
+      }
+    }
+  }
+
+  @Test
+  public void calleeAddedLater() {
+    Alloc alloc = new Alloc();
+    Object passed = identity(alloc);
+    Object again = identity(passed);
+    queryFor(again);
+  }
+
+  private Object identity(Object param) {
+    return param;
+  }
+
+  private static class Alloc implements AllocatedObject {}
+}
@@ -0,0 +1,157 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package test.cases.callgraph;
+
+import boomerang.Boomerang;
+import boomerang.BoomerangOptions;
+import boomerang.DefaultBoomerangOptions;
+import boomerang.ForwardQuery;
+import boomerang.callgraph.BoomerangResolver;
+import boomerang.callgraph.DispatchCache;
+import boomerang.scene.CallGraph;
+import boomerang.scene.DeclaredMethod;
+import boomerang.scene.Method;
+import boomerang.scene.Statement;
+import com.google.common.collect.Sets;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+import test.core.BoomerangApiTest;
+import test.core.selfrunning.AllocatedObject;
+
+/**
+ * Solves the allocation sites with an on-the-fly call graph, with a dispatch cache per solver,
+ * shared by all solvers and precomputed from the call graph. The results must not depend on the
+ * cache, solvers sharing the cache must only miss on dispatches no earlier solver resolved, and a
+ * precomputed cache must answer the dispatch of each call graph edge without a lookup.
+ */
+public class DispatchCacheTest extends BoomerangApiTest {
+  private DispatchCache cache;
+
+  @Override
+  protected BoomerangOptions createOptions() {
+    return new DefaultBoomerangOptions() {
+      @Override
+      public boolean onTheFlyCallGraph() {
+        return true;
+      }
+
+      @Override
+      public boolean allowMultipleQueries() {
+        return true;
+      }
+
+      @Override
+      public DispatchCache getDispatchCache() {
+        return cache;
+      }
+    };
+  }
+
+  @Override
+  protected void analyze() {
+    Set<String> expected = solveAll();
+    Assert.assertNotSame(
+        new Boomerang(callGraph, dataFlowScope, createOptions()).getDispatchCache(),
+        new Boomerang(callGraph, dataFlowScope, createOptions()).getDispatchCache());
+
+    cache = new DispatchCache();
+    Assert.assertEquals(expected, solveAll());
+    Assert.assertTrue(cache.getMisses() > 0);
+    long misses = cache.getMisses();
+    long hits = cache.getHits();
+    Assert.assertEquals(expected, solveAll());
+    Assert.assertTrue(cache.getHits() > hits);
+    Assert.assertEquals(misses, cache.getMisses());
+
+    cache = new DispatchCache();
+    BoomerangResolver.precomputeDispatch(callGraph, cache);
+    Assert.assertTrue(cache.size() > 0);
+    Assert.assertEquals(0, cache.getHits() + cache.getMisses());
+    int lookups = 0;
+    for (Method m : callGraph.getReachableMethods()) {
+      for (Statement callSite : m.getStatements()) {
+        if (!callSite.containsInvokeExpr()) {
+          continue;
+        }
+        DeclaredMethod declared = callSite.getInvokeExpr().getMethod();
+        for (CallGraph.Edge e : callGraph.edgesOutOf(callSite)) {
+          Set<Method> targets =
+              cache.getTargets(
+                  declared,
+                  e.tgt().getDeclaringClass(),
+                  (method, receiverClass) -> {
+                    throw new AssertionError("Not precomputed: " + e);
+                  });
+          Assert.assertTrue(e.toString(), targets.contains(e.tgt()));
+          lookups++;
+        }
+      }
+    }
+    Assert.assertTrue(lookups > 0);
+    Assert.assertEquals(lookups, cache.getHits());
+    Assert.assertEquals(0, cache.getMisses());
+    Assert.assertEquals(expected, solveAll());
+  }
+
+  private Set<String> solveAll() {
+    Set<String> res = Sets.newHashSet();
+    for (ForwardQuery query : allocationSites()) {
+      res.addAll(rows(new Boomerang(callGraph, dataFlowScope, createOptions()).solve(query)));
+    }
+    return res;
+  }
+
+  @Test
+  public void dispatchOnInterface() {
+    Shape shape = new Circle();
+    if (staticallyUnknown()) {
+      shape = new Square();
+    }
+    Object res = shape.pass(new Alloc());
+    queryFor(res);
+  }
+
+  @Test
+  public void inheritedMethod() {
+    Shape shape = new Ellipse();
+    if (staticallyUnknown()) {
+      shape = new Square();
+    }
+    Object res = shape.pass(new Alloc());
+    Object again = shape.pass(res);
+    queryFor(again);
+  }
+
+  private static class Alloc implements AllocatedObject {}
+
+  private interface Shape {
+    Object pass(Object o);
+  }
+
+  private static class Circle implements Shape {
+    @Override
+    public Object pass(Object o) {
+      return o;
+    }
+  }
+
+  private static class Ellipse extends Circle {}
+
+  private static class Square implements Shape {
+    @Override
+    public Object pass(Object o) {
+      Object copy = o;
+      return copy;
+    }
+  }
+}
@@ -0,0 +1,207 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package test.cases.callgraph;
+
+import boomerang.BackwardQuery;
+import boomerang.Boomerang;
+import boomerang.BoomerangOptions;
+import boomerang.DefaultBoomerangOptions;
+import boomerang.ForwardQuery;
+import boomerang.callgraph.ReceiverPointsToCache;
+import boomerang.callgraph.ReceiverPointsToCache.Receiver;
+import boomerang.scene.ControlFlowGraph.Edge;
+import boomerang.scene.Statement;
+import com.google.common.collect.Sets;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+import test.core.BoomerangApiTest;
+import test.core.selfrunning.AllocatedObject;
+
+/**
+ * Solves the allocation sites with an on-the-fly call graph, without and with a shared or
+ * pre-warmed {@link ReceiverPointsToCache}, and checks that cache hits change no results and that
+ * each cached receiver holds all allocation sites a fresh solver finds for it.
+ */
+public class ReceiverPointsToCacheTest extends BoomerangApiTest {
+  private ReceiverPointsToCache cache;
+  private Set<ForwardQuery> startedSolvers = Sets.newHashSet();
+
+  @Override
+  protected BoomerangOptions createOptions() {
+    return new DefaultBoomerangOptions() {
+      @Override
+      public boolean onTheFlyCallGraph() {
+        return true;
+      }
+
+      @Override
+      public boolean allowMultipleQueries() {
+        return true;
+      }
+
+      @Override
+      public ReceiverPointsToCache getReceiverPointsToCache() {
+        return cache;
+      }
+    };
+  }
+
+  @Override
+  protected void analyze() {
+    Set<String> expected = solveAll();
+
+    cache = new ReceiverPointsToCache();
+    Assert.assertEquals(expected, solveAll());
+    Assert.assertTrue(cache.size() > 0);
+    long misses = cache.getMisses();
+    Assert.assertEquals(expected, solveAll());
+    Assert.assertTrue(cache.getHits() > 0);
+    Assert.assertEquals(misses, cache.getMisses());
+
+    Map<Statement, Receiver> entries = cache.snapshot();
+    Set<Receiver> hits = Sets.newHashSet();
+    cache =
+        new ReceiverPointsToCache(entries) {
+          @Override
+          public Receiver get(Statement callSite) {
+            Receiver receiver = super.get(callSite);
+            hits.add(receiver);
+            return receiver;
+          }
+        };
+    startedSolvers.clear();
+    Assert.assertEquals(expected, solveAll());
+    Assert.assertFalse(hits.isEmpty());
+    Assert.assertEquals(0, cache.getMisses());
+    // A hit skips the backward query of the receiver, but not the forward solvers of its
+    // allocation sites.
+    for (Receiver receiver : hits) {
+      Assert.assertTrue(startedSolvers.containsAll(receiver.getAllocationSites()));
+    }
+
+    cache = null;
+    for (Map.Entry<Statement, Receiver> e : entries.entrySet()) {
+      Assert.assertEquals(
+          e.getKey().toString(), allocationSites(e.getKey()), e.getValue().getAllocationSites());
+    }
+  }
+
+  private Set<String> solveAll() {
+    Set<String> res = Sets.newHashSet();
+    for (ForwardQuery query : allocationSites()) {
+      Boomerang solver = new Boomerang(callGraph, dataFlowScope, createOptions());
+      res.addAll(rows(solver.solve(query)));
+      startedSolvers.addAll(solver.getSolvers().keySet());
+    }
+    return res;
+  }
+
+  private Set<ForwardQuery> allocationSites(Statement callSite) {
+    Boomerang solver = new Boomerang(callGraph, dataFlowScope, createOptions());
+    Set<ForwardQuery> res = Sets.newHashSet();
+    for (Statement pred : callSite.getMethod().getControlFlowGraph().getPredsOf(callSite)) {
+      BackwardQuery query =
+          BackwardQuery.make(new Edge(pred, callSite), callSite.getInvokeExpr().getBase());
+      res.addAll(solver.solve(query).getAllocationSites().keySet());
+    }
+    return res;
+  }
+
+  @Test
+  public void receiverChangesInLoop() {
+    Shape shape = new Circle();
+    Object res = new Alloc();
+    for (int i = 0; i < 3; i++) {
+      res = shape.pass(res);
+      if (staticallyUnknown()) {
+        shape = new Square();
+      }
+    }
+    queryFor(res);
+  }
+
+  @Test
+  public void receiverThroughField() {
+    Holder holder = new Holder();
+    holder.set(new Circle());
+    if (staticallyUnknown()) {
+      holder.set(new Square());
+    }
+    Alloc alloc = new Alloc();
+    Object res = holder.get().pass(alloc);
+    queryFor(res);
+  }
+
+  @Test
+  public void receiverFromFactory() {
+    Factory factory = new CircleFactory();
+    if (staticallyUnknown()) {
+      factory = new SquareFactory();
+    }
+    Shape shape = factory.create();
+    Object res = shape.pass(new Alloc());
+    queryFor(res);
+  }
+
+  private interface Factory {
+    Shape create();
+  }
+
+  private static class CircleFactory implements Factory {
+    @Override
+    public Shape create() {
+      return new Circle();
+    }
+  }
+
+  private static class SquareFactory implements Factory {
+    @Override
+    public Shape create() {
+      return new Square();
+    }
+  }
+
+  private static class Alloc implements AllocatedObject {}
+
+  private static class Holder {
+    private Shape shape;
+
+    private void set(Shape shape) {
+      this.shape = shape;
+    }
+
+    private Shape get() {
+      return shape;
+    }
+  }
+
+  private interface Shape {
+    Object pass(Object o);
+  }
+
+  private static class Circle implements Shape {
+    @Override
+    public Object pass(Object o) {
+      return o;
+    }
+  }
+
+  private static class Square implements Shape {
+    @Override
+    public Object pass(Object o) {
+      Object copy = o;
+      return copy;
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package test.cases.cancellation;
+
+import boomerang.Boomerang;
+import boomerang.BoomerangOptions;
+import boomerang.CancellationToken;
+import boomerang.DefaultBoomerangOptions;
+import boomerang.ForwardQuery;
+import boomerang.Util;
+import boomerang.results.ForwardBoomerangResults;
+import org.junit.Assert;
+import org.junit.Test;
+import test.core.BoomerangApiTest;
+import test.core.selfrunning.AllocatedObject;
+import wpds.impl.Weight.NoWeight;
+
+public class CancellationTest extends BoomerangApiTest {
+  private static final long MB = 1024 * 1024;
+  private int memoryBudgetMB = -1;
+
+  @Override
+  protected void analyze() {
+    for (ForwardQuery query : allocationSites()) {
+      ForwardBoomerangResults<NoWeight> reference =
+          new Boomerang(callGraph, dataFlowScope, createOptions()).solve(query);
+      Assert.assertFalse(reference.isTimedout());
+
+      // Checking the token on every step must not change the results of the query.
+      ForwardBoomerangResults<NoWeight> checkedOnEveryStep =
+          new Boomerang(callGraph, dataFlowScope, createOptions())
+              .solve(query, new CancellationToken().withCheckInterval(1));
+      Assert.assertFalse(checkedOnEveryStep.isTimedout());
+      Assert.assertEquals(rows(reference), rows(checkedOnEveryStep));
+
+      CancellationToken cancelled = new CancellationToken().withCheckInterval(1);
+      cancelled.cancel();
+      ForwardBoomerangResults<NoWeight> cancelledResults =
+          new Boomerang(callGraph, dataFlowScope, createOptions()).solve(query, cancelled);
+      Assert.assertTrue(cancelledResults.isTimedout());
+      Assert.assertFalse(cancelledResults.isMemoryBudgetExceeded());
+
+      ForwardBoomerangResults<NoWeight> overRuleBudget =
+          new Boomerang(callGraph, dataFlowScope, createOptions())
+              .solve(query, new CancellationToken().withCheckInterval(1).withRuleBudget(0));
+      Assert.assertTrue(overRuleBudget.isTimedout());
+      Assert.assertFalse(overRuleBudget.isMemoryBudgetExceeded());
+
+      // The memory budget applies to the memory retained by the solvers, not to the whole heap.
+      memoryBudgetMB = 1;
+      Assert.assertTrue(Util.getCurrentlyUsedMemory() > memoryBudgetMB * MB);
+      Boomerang solver = new Boomerang(callGraph, dataFlowScope, createOptions());
+      ForwardBoomerangResults<NoWeight> withinBudget =
+          solver.solve(query, new CancellationToken().withCheckInterval(1));
+      Assert.assertTrue(solver.getRetainedSizeEstimate() > 0);
+      Assert.assertTrue(solver.getRetainedSizeEstimate() < memoryBudgetMB * MB);
+      Assert.assertFalse(withinBudget.isTimedout());
+      Assert.assertFalse(withinBudget.isMemoryBudgetExceeded());
+      Assert.assertEquals(rows(reference), rows(withinBudget));
+
+      ForwardBoomerangResults<NoWeight> overBudget =
+          new Boomerang(callGraph, dataFlowScope, createOptions()) {
+            @Override
+            public long getRetainedSizeEstimate() {
+              // A single rule or transition exceeds the budget.
+              return super.getRetainedSizeEstimate() * MB;
+            }
+          }.solve(query, new CancellationToken().withCheckInterval(1));
+      Assert.assertTrue(overBudget.isTimedout());
+      Assert.assertTrue(overBudget.isMemoryBudgetExceeded());
+      memoryBudgetMB = -1;
+    }
+  }
+
+  @Override
+  protected BoomerangOptions createOptions() {
+    return new DefaultBoomerangOptions() {
+      @Override
+      public boolean onTheFlyCallGraph() {
+        return false;
+      }
+
+      @Override
+      public boolean allowMultipleQueries() {
+        return true;
+      }
+
+      @Override
+      public int memoryBudgetMB() {
+        return memoryBudgetMB;
+      }
+    };
+  }
+
+  @Test
+  public void intraprocedural() {
+    Alloc alloc = new Alloc();
+    Object alias = alloc;
+    queryFor(alias);
+  }
+
+  @Test
+  public void viaField() {
+    Alloc alloc = new Alloc();
+    Container container = new Container();
+    container.field = alloc;
+    Object alias = container.field;
+    queryFor(alias);
+  }
+
+  @Test
+  public void interprocedural() {
+    Alloc alloc = new Alloc();
+    Object alias = identity(alloc);
+    queryFor(alias);
+  }
+
+  private Object identity(Object param) {
+    return param;
+  }
+
+  private static class Alloc implements AllocatedObject {}
+
+  private static class Container {
+    Object field;
+  }
+}
@@ -0,0 +1,111 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package test.cases.controlflowgraph;
+
+import boomerang.controlflowgraph.DynamicCFG;
+import boomerang.controlflowgraph.PredecessorListener;
+import boomerang.controlflowgraph.SuccessorListener;
+import boomerang.scene.ControlFlowGraph;
+import boomerang.scene.Statement;
+import boomerang.scene.jimple.JimpleMethod;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+import org.junit.Assert;
+import org.junit.Test;
+import test.core.BoomerangApiTest;
+
+public class DynamicCFGTest extends BoomerangApiTest {
+
+  @Override
+  protected void analyze() {
+    ControlFlowGraph staticCFG = JimpleMethod.of(sootTestMethod).getControlFlowGraph();
+    DynamicCFG cfg = new DynamicCFG();
+    Multiset<Statement> succs = HashMultiset.create();
+    Multiset<Statement> preds = HashMultiset.create();
+    Multiset<Statement> lateSuccs = HashMultiset.create();
+    for (Statement s : staticCFG.getStatements()) {
+      SuccessorListener succListener = new RecordingSuccessorListener(s, succs);
+      PredecessorListener predListener = new RecordingPredecessorListener(s, preds);
+      cfg.addSuccsOfListener(succListener);
+      cfg.addPredsOfListener(predListener);
+      // Registering a listener twice is a no-op.
+      cfg.addSuccsOfListener(succListener);
+      cfg.addPredsOfListener(predListener);
+    }
+    int edges = 0;
+    for (Statement s : staticCFG.getStatements()) {
+      for (Statement succ : staticCFG.getSuccsOf(s)) {
+        cfg.step(s, succ);
+        cfg.step(s, succ);
+        edges++;
+      }
+    }
+    // A listener registered after the edges were stepped is replayed the existing ones.
+    for (Statement s : staticCFG.getStatements()) {
+      cfg.addSuccsOfListener(new RecordingSuccessorListener(s, lateSuccs));
+    }
+    Assert.assertTrue(edges > 0);
+    Assert.assertEquals(edges, succs.size());
+    Assert.assertEquals(edges, preds.size());
+    Assert.assertEquals(succs, lateSuccs);
+    for (Statement s : staticCFG.getStatements()) {
+      Assert.assertEquals(staticCFG.getPredsOf(s).size(), succs.count(s));
+      Assert.assertEquals(staticCFG.getSuccsOf(s).size(), preds.count(s));
+    }
+  }
+
+  @Test
+  public void branching() {
+    Object o = new Object();
+    if (staticallyUnknown()) {
+      o = new Object();
+    }
+    queryFor(o);
+  }
+
+  @Test
+  public void loop() {
+    Object o = new Object();
+    while (staticallyUnknown()) {
+      o = new Object();
+    }
+    queryFor(o);
+  }
+
+  private static class RecordingSuccessorListener extends SuccessorListener {
+    private final Multiset<Statement> succs;
+
+    RecordingSuccessorListener(Statement curr, Multiset<Statement> succs) {
+      super(curr);
+      this.succs = succs;
+    }
+
+    @Override
+    public void getSuccessor(Statement succ) {
+      succs.add(succ);
+    }
+  }
+
+  private static class RecordingPredecessorListener extends PredecessorListener {
+    private final Multiset<Statement> preds;
+
+    RecordingPredecessorListener(Statement curr, Multiset<Statement> preds) {
+      super(curr);
+      this.preds = preds;
+    }
+
+    @Override
+    public void getPredecessor(Statement pred) {
+      preds.add(pred);
+    }
+  }
+}
@@ -0,0 +1,118 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package test.cases.multiqueries;
+
+import boomerang.Boomerang;
+import boomerang.BoomerangOptions;
+import boomerang.DefaultBoomerangOptions;
+import boomerang.ForwardQuery;
+import boomerang.scene.ControlFlowGraph.Edge;
+import boomerang.scene.Val;
+import boomerang.solver.ForwardBoomerangSolver;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+import sync.pds.solver.nodes.Node;
+import test.core.BoomerangApiTest;
+import test.core.selfrunning.AllocatedObject;
+import wpds.impl.Weight.NoWeight;
+
+/**
+ * Solves all allocation sites with one solver that keeps a single forward solver, such that each
+ * query evicts the solvers of the previous ones and solving them again recomputes them. The results
+ * must be the ones of a solver without eviction.
+ */
+public class ForwardSolverEvictionTest extends BoomerangApiTest {
+  private int cacheSize = -1;
+
+  @Override
+  protected BoomerangOptions createOptions() {
+    return new DefaultBoomerangOptions() {
+      @Override
+      public boolean onTheFlyCallGraph() {
+        return false;
+      }
+
+      @Override
+      public boolean allowMultipleQueries() {
+        return true;
+      }
+
+      @Override
+      public int forwardSolverCacheSize() {
+        return cacheSize;
+      }
+    };
+  }
+
+  @Override
+  protected void analyze() {
+    List<ForwardQuery> queries = allocationSites();
+    Assert.assertTrue(queries.size() > 2);
+    Map<ForwardQuery, Set<String>> expected = solve(queries);
+
+    cacheSize = 1;
+    Boomerang solver = new Boomerang(callGraph, dataFlowScope, createOptions());
+    Assert.assertEquals(expected, solve(solver, queries));
+    Assert.assertTrue(solver.getEvictedSolverCount() > 0);
+    Assert.assertEquals(expected, solve(solver, Lists.reverse(queries)));
+    Assert.assertTrue(solver.getRecomputedSolverCount() > 0);
+
+    // The stats track exactly the solvers that are alive.
+    Set<Node<Edge, Val>> reached = Sets.newHashSet();
+    for (ForwardBoomerangSolver<NoWeight> s : solver.getSolvers().values()) {
+      reached.addAll(s.getReachedStates());
+    }
+    Assert.assertEquals(reached, Sets.newHashSet(solver.getStats().getForwardReachesNodes()));
+  }
+
+  private Map<ForwardQuery, Set<String>> solve(List<ForwardQuery> queries) {
+    return solve(new Boomerang(callGraph, dataFlowScope, createOptions()), queries);
+  }
+
+  private static Map<ForwardQuery, Set<String>> solve(
+      Boomerang solver, List<ForwardQuery> queries) {
+    Map<ForwardQuery, Set<String>> res = Maps.newHashMap();
+    for (ForwardQuery query : queries) {
+      res.put(query, rows(solver.solve(query)));
+    }
+    return res;
+  }
+
+  @Test
+  public void connectedThroughFields() {
+    Holder holder = new Holder();
+    holder.value = new Alloc();
+    Holder other = holder;
+    Object read = other.value;
+    Holder second = new Holder();
+    second.value = new Alloc();
+    Object passed = identity(second.value);
+    queryFor(read);
+    queryFor(passed);
+  }
+
+  private Object identity(Object param) {
+    return param;
+  }
+
+  private static class Alloc implements AllocatedObject {}
+
+  private static class Holder implements AllocatedObject {
+    private Object value;
+  }
+}
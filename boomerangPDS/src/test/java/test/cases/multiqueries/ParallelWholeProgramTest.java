@@ -0,0 +1,198 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package test.cases.multiqueries;
+
+import boomerang.Boomerang;
+import boomerang.BoomerangOptions;
+import boomerang.DefaultBoomerangOptions;
+import boomerang.ForwardQuery;
+import boomerang.WholeProgramBoomerang;
+import boomerang.WholeProgramBoomerang.ProgressListener;
+import boomerang.results.ForwardBoomerangResults;
+import boomerang.scene.ControlFlowGraph.Edge;
+import boomerang.scene.Field;
+import boomerang.scene.Val;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+import sync.pds.solver.OneWeightFunctions;
+import sync.pds.solver.WeightFunctions;
+import test.core.BoomerangApiTest;
+import wpds.impl.Weight.NoWeight;
+
+/**
+ * Runs the parallel whole-program analysis with a first seed that only completes once other seeds
+ * are solved. With a permit per seed, the other seeds must not wait for it. With fewer permits, the
+ * solved seeds waiting for the first one must not exceed the permits. In both cases the results
+ * must be reported in the order of the sequential analysis and match the ones of solving each seed
+ * alone.
+ */
+public class ParallelWholeProgramTest extends BoomerangApiTest {
+
+  @Override
+  protected BoomerangOptions createOptions() {
+    return new DefaultBoomerangOptions() {
+      @Override
+      public boolean onTheFlyCallGraph() {
+        return false;
+      }
+
+      @Override
+      public boolean allowMultipleQueries() {
+        return true;
+      }
+    };
+  }
+
+  @Override
+  protected void analyze() {
+    Map<ForwardQuery, Set<String>> sequential = Maps.newLinkedHashMap();
+    WholeProgramBoomerang<NoWeight> solver = wholeProgramSolver();
+    solver.setProgressListener(recordTo(sequential, new AtomicInteger()));
+    solver.wholeProgramAnalysis();
+    List<ForwardQuery> seeds = Lists.newArrayList(sequential.keySet());
+    Assert.assertTrue(seeds.size() > 2);
+
+    Map<ForwardQuery, Set<String>> expected = Maps.newLinkedHashMap();
+    for (ForwardQuery seed : seeds) {
+      Set<String> rows = rows(new Boomerang(callGraph, dataFlowScope, createOptions()).solve(seed));
+      Assert.assertFalse(seed.toString(), rows.isEmpty());
+      expected.put(seed, rows);
+    }
+
+    ForwardQuery slowSeed = seeds.get(0);
+    CountDownLatch othersSolved = new CountDownLatch(seeds.size() - 1);
+    AtomicBoolean slowSeedGaveUp = new AtomicBoolean();
+    Map<ForwardQuery, Set<String>> parallel = Maps.newLinkedHashMap();
+    WholeProgramBoomerang<NoWeight> unbounded = wholeProgramSolver();
+    unbounded.setProgressListener(recordTo(parallel, new AtomicInteger()));
+    unbounded.wholeProgramAnalysis(
+        (cg, scope) ->
+            new Boomerang(cg, scope, createOptions()) {
+              @Override
+              public ForwardBoomerangResults<NoWeight> solve(ForwardQuery query) {
+                if (query.equals(slowSeed)) {
+                  slowSeedGaveUp.set(!await(othersSolved));
+                  return super.solve(query);
+                }
+                ForwardBoomerangResults<NoWeight> res = super.solve(query);
+                othersSolved.countDown();
+                return res;
+              }
+            },
+        2,
+        seeds.size());
+    Assert.assertFalse(slowSeedGaveUp.get());
+    Assert.assertEquals(seeds, Lists.newArrayList(parallel.keySet()));
+    Assert.assertEquals(expected, parallel);
+
+    int maxInFlightSeeds = 2;
+    CountDownLatch oneOtherSolved = new CountDownLatch(1);
+    AtomicInteger pending = new AtomicInteger();
+    AtomicInteger maxPending = new AtomicInteger();
+    Map<ForwardQuery, Set<String>> bounded = Maps.newLinkedHashMap();
+    WholeProgramBoomerang<NoWeight> boundedSolver = wholeProgramSolver();
+    boundedSolver.setProgressListener(recordTo(bounded, pending));
+    boundedSolver.wholeProgramAnalysis(
+        (cg, scope) -> {
+          maxPending.accumulateAndGet(pending.incrementAndGet(), Math::max);
+          return new Boomerang(cg, scope, createOptions()) {
+            @Override
+            public ForwardBoomerangResults<NoWeight> solve(ForwardQuery query) {
+              if (query.equals(slowSeed)) {
+                slowSeedGaveUp.set(!await(oneOtherSolved));
+                // Leaves the pool time to start seeds beyond the permits.
+                await(new CountDownLatch(1), 200);
+                return super.solve(query);
+              }
+              ForwardBoomerangResults<NoWeight> res = super.solve(query);
+              oneOtherSolved.countDown();
+              return res;
+            }
+          };
+        },
+        seeds.size(),
+        maxInFlightSeeds);
+    Assert.assertFalse(slowSeedGaveUp.get());
+    Assert.assertTrue(maxPending.get() <= maxInFlightSeeds);
+    Assert.assertEquals(expected, bounded);
+  }
+
+  private static boolean await(CountDownLatch latch) {
+    return await(latch, TimeUnit.SECONDS.toMillis(30));
+  }
+
+  private static boolean await(CountDownLatch latch, long millis) {
+    try {
+      return latch.await(millis, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private static ProgressListener<NoWeight> recordTo(
+      Map<ForwardQuery, Set<String>> results, AtomicInteger pending) {
+    return new ProgressListener<NoWeight>() {
+      @Override
+      public void onSeedFinished(ForwardQuery seed, ForwardBoomerangResults<NoWeight> res) {
+        results.put(seed, rows(res));
+        pending.decrementAndGet();
+      }
+    };
+  }
+
+  private WholeProgramBoomerang<NoWeight> wholeProgramSolver() {
+    return new WholeProgramBoomerang<NoWeight>(callGraph, dataFlowScope, createOptions()) {
+
+      @Override
+      protected WeightFunctions<Edge, Val, Field, NoWeight> getForwardFieldWeights() {
+        return new OneWeightFunctions<>(NoWeight.NO_WEIGHT_ONE);
+      }
+
+      @Override
+      protected WeightFunctions<Edge, Val, Field, NoWeight> getBackwardFieldWeights() {
+        return new OneWeightFunctions<>(NoWeight.NO_WEIGHT_ONE);
+      }
+
+      @Override
+      protected WeightFunctions<Edge, Val, Edge, NoWeight> getBackwardCallWeights() {
+        return new OneWeightFunctions<>(NoWeight.NO_WEIGHT_ONE);
+      }
+
+      @Override
+      protected WeightFunctions<Edge, Val, Edge, NoWeight> getForwardCallWeights(
+          ForwardQuery sourceQuery) {
+        return new OneWeightFunctions<>(NoWeight.NO_WEIGHT_ONE);
+      }
+    };
+  }
+
+  @Test
+  public void slowFirstSeed() {
+    Object first = new Object();
+    Object second = new Object();
+    Object third = first;
+    Object fourth = new Object();
+    queryFor(third);
+    queryFor(second);
+    queryFor(fourth);
+  }
+}
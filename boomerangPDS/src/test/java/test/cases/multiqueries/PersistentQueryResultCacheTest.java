@@ -0,0 +1,199 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package test.cases.multiqueries;
+
+import boomerang.BackwardQuery;
+import boomerang.Boomerang;
+import boomerang.ForwardQuery;
+import boomerang.Query;
+import boomerang.QueryService;
+import boomerang.results.PersistentQueryResultCache;
+import boomerang.results.PersistentQueryResultCache.CachedQueryResult;
+import boomerang.scene.CallGraph.Edge;
+import boomerang.scene.Method;
+import boomerang.scene.Statement;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import org.junit.Assert;
+import org.junit.Test;
+import test.core.BoomerangApiTest;
+import test.core.selfrunning.AllocatedObject;
+import wpds.impl.Weight.NoWeight;
+
+/**
+ * Answers all queries through a {@link PersistentQueryResultCache} on several threads, stores it to
+ * disk and loads it again. The loaded cache must answer all queries with the results of the first
+ * run without solving. A new call graph edge out of an unchanged method must invalidate exactly the
+ * entries of the queries that visited its caller or callee.
+ */
+public class PersistentQueryResultCacheTest extends BoomerangApiTest {
+
+  @Override
+  protected void analyze() {
+    List<Query> queries = Lists.newArrayList();
+    queries.addAll(allocationSites());
+    queries.addAll(queryForCallSites());
+    Assert.assertTrue(queries.size() > 2);
+    File file;
+    try {
+      file = File.createTempFile("query-results", ".bin");
+      Assert.assertTrue(file.delete());
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    }
+    try {
+      PersistentQueryResultCache cache = newCache(file);
+      Map<Query, CachedQueryResult> computed = answer(cache, queries);
+      Assert.assertEquals(queries.size(), cache.getMisses());
+      Assert.assertEquals(0, cache.getHits());
+      for (Query query : queries) {
+        Assert.assertEquals(query.toString(), expected(query), rows(computed.get(query)));
+      }
+      cache.save();
+
+      PersistentQueryResultCache loaded = newCache(file);
+      Assert.assertEquals(queries.size(), loaded.size());
+      Map<Query, CachedQueryResult> cached = answer(loaded, queries);
+      Assert.assertEquals(queries.size(), loaded.getHits());
+      Assert.assertEquals(0, loaded.getMisses());
+      for (Query query : queries) {
+        Assert.assertEquals(query.toString(), rows(computed.get(query)), rows(cached.get(query)));
+      }
+
+      // Unchanged code gains a callee, e.g., by a new override.
+      Edge edge = newEdge();
+      Assert.assertTrue(callGraph.addEdge(edge));
+      Set<String> changed =
+          Sets.newHashSet(edge.src().getMethod().toString(), edge.tgt().toString());
+      List<Query> stale = Lists.newArrayList();
+      for (Query query : queries) {
+        Set<String> dependencies = computed.get(query).getDependencies();
+        Assert.assertTrue(dependencies.contains(query.cfgEdge().getMethod().toString()));
+        if (!Sets.intersection(dependencies, changed).isEmpty()) {
+          stale.add(query);
+        }
+      }
+      Assert.assertFalse(stale.isEmpty());
+      Assert.assertTrue(stale.size() < queries.size());
+
+      PersistentQueryResultCache reloaded = newCache(file);
+      Assert.assertEquals(queries.size() - stale.size(), reloaded.size());
+      Assert.assertEquals(stale.size(), reloaded.getInvalidations());
+      loaded.refresh();
+      Assert.assertEquals(queries.size() - stale.size(), loaded.size());
+      for (Query query : queries) {
+        Assert.assertEquals(
+            query.toString(), !stale.contains(query), loaded.lookup(query).isPresent());
+      }
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    } finally {
+      file.delete();
+    }
+  }
+
+  private PersistentQueryResultCache newCache(File file) {
+    return new PersistentQueryResultCache(file, callGraph, createOptions());
+  }
+
+  private Map<Query, CachedQueryResult> answer(
+      PersistentQueryResultCache cache, List<Query> queries) {
+    QueryService<NoWeight> service =
+        QueryService.create(callGraph, dataFlowScope, createOptions(), 4);
+    try {
+      Map<Query, CompletableFuture<CachedQueryResult>> futures = Maps.newHashMap();
+      for (Query query : queries) {
+        if (query instanceof ForwardQuery) {
+          futures.put(query, service.submit((ForwardQuery) query, cache));
+        } else {
+          futures.put(query, service.submit((BackwardQuery) query, cache));
+        }
+      }
+      Map<Query, CachedQueryResult> res = Maps.newHashMap();
+      for (Map.Entry<Query, CompletableFuture<CachedQueryResult>> e : futures.entrySet()) {
+        res.put(e.getKey(), e.getValue().join());
+      }
+      return res;
+    } finally {
+      service.shutdown();
+    }
+  }
+
+  /** The textual results of solving the query alone. */
+  private Set<String> expected(Query query) {
+    Boomerang solver = new Boomerang(callGraph, dataFlowScope, createOptions());
+    if (query instanceof ForwardQuery) {
+      return rows(solver.solve((ForwardQuery) query));
+    }
+    Set<String> res = Sets.newHashSet();
+    for (ForwardQuery site : solver.solve((BackwardQuery) query).getAllocationSites().keySet()) {
+      res.add("alloc " + site);
+    }
+    return res;
+  }
+
+  private static Set<String> rows(CachedQueryResult result) {
+    Set<String> res = Sets.newHashSet();
+    for (List<String> row : result.getStatementValWeights()) {
+      res.add(row.get(0) + " | " + row.get(1) + " | " + row.get(2));
+    }
+    for (String site : result.getAllocationSites()) {
+      res.add("alloc " + site);
+    }
+    return res;
+  }
+
+  /** A recursive edge from the call site in {@link #identity(Object)}. */
+  private Edge newEdge() {
+    for (Method m : callGraph.getReachableMethods()) {
+      if (m.getName().equals("identity")) {
+        for (Statement callSite : m.getStatements()) {
+          if (callSite.containsInvokeExpr()) {
+            return new Edge(callSite, m);
+          }
+        }
+      }
+    }
+    throw new AssertionError("No call site to add an edge to");
+  }
+
+  @Test
+  public void aliasesAndAllocations() {
+    Holder holder = new Holder();
+    holder.value = new Alloc();
+    Object alias = holder.value;
+    Alloc other = new Alloc();
+    Object passed = identity(other);
+    queryFor(alias);
+    queryFor(passed);
+  }
+
+  private Object identity(Object param) {
+    log();
+    return param;
+  }
+
+  private static void log() {}
+
+  private static class Alloc implements AllocatedObject {}
+
+  private static class Holder implements AllocatedObject {
+    private Object value;
+  }
+}
@@ -0,0 +1,193 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package test.cases.multiqueries;
+
+import boomerang.BackwardQuery;
+import boomerang.Boomerang;
+import boomerang.ForwardQuery;
+import boomerang.QueryService;
+import boomerang.results.BackwardBoomerangResults;
+import boomerang.scene.Method;
+import boomerang.scene.Statement;
+import boomerang.scene.Val;
+import boomerang.scene.jimple.SootHierarchy;
+import boomerang.weights.DataFlowPathWeight;
+import boomerang.weights.MinDistanceWeight;
+import boomerang.weights.PathConditionWeight;
+import boomerang.weights.PathTrackingWeight;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.junit.Assert;
+import org.junit.Test;
+import soot.Scene;
+import soot.SootClass;
+import sync.pds.weights.BitSetDomain;
+import sync.pds.weights.SetDomain;
+import test.core.BoomerangApiTest;
+import test.core.selfrunning.AllocatedObject;
+import wpds.impl.Weight.NoWeight;
+
+/**
+ * Answers the same queries on several threads at once. The shared singletons must be created once
+ * no matter which thread gets to them first, Soot's hierarchies must answer concurrent queries like
+ * sequential ones, and the {@link QueryService} must yield the results of solving each query alone.
+ */
+public class QueryServiceTest extends BoomerangApiTest {
+  private static final int THREADS = 8;
+  private static final int ROUNDS = 5;
+
+  @Override
+  protected void analyze() {
+    assertSingleInstance(Val::zero);
+    assertSingleInstance(Statement::epsilon);
+    assertSingleInstance(Method::epsilon);
+    assertSingleInstance(PathTrackingWeight::one);
+    assertSingleInstance(PathConditionWeight::one);
+    assertSingleInstance(DataFlowPathWeight::one);
+    assertSingleInstance(MinDistanceWeight::one);
+    assertSingleInstance(SetDomain::one);
+    assertSingleInstance(SetDomain::zero);
+    assertSingleInstance(BitSetDomain::one);
+    assertSingleInstance(BitSetDomain::zero);
+    assertHierarchyIsConsistent();
+
+    List<ForwardQuery> forwardQueries = allocationSites();
+    List<BackwardQuery> backwardQueries = queryForCallSites();
+    Assert.assertTrue(forwardQueries.size() > 1);
+    Map<Object, Set<String>> expected = Maps.newHashMap();
+    for (ForwardQuery query : forwardQueries) {
+      expected.put(
+          query, rows(new Boomerang(callGraph, dataFlowScope, createOptions()).solve(query)));
+    }
+    for (BackwardQuery query : backwardQueries) {
+      expected.put(
+          query,
+          allocationSites(new Boomerang(callGraph, dataFlowScope, createOptions()).solve(query)));
+    }
+
+    QueryService<NoWeight> service =
+        QueryService.create(callGraph, dataFlowScope, createOptions(), THREADS);
+    try {
+      for (int round = 0; round < ROUNDS; round++) {
+        Map<Object, CompletableFuture<Set<String>>> futures = Maps.newHashMap();
+        for (ForwardQuery query : forwardQueries) {
+          futures.put(query, service.submit(query).thenApply(BoomerangApiTest::rows));
+        }
+        for (BackwardQuery query : backwardQueries) {
+          futures.put(query, service.submit(query).thenApply(QueryServiceTest::allocationSites));
+        }
+        for (Map.Entry<Object, CompletableFuture<Set<String>>> e : futures.entrySet()) {
+          Assert.assertEquals(e.getKey().toString(), expected.get(e.getKey()), e.getValue().join());
+        }
+      }
+    } finally {
+      service.shutdown();
+    }
+  }
+
+  private static Set<String> allocationSites(BackwardBoomerangResults<NoWeight> res) {
+    Set<String> sites = Sets.newHashSet();
+    for (ForwardQuery site : res.getAllocationSites().keySet()) {
+      sites.add(site.toString());
+    }
+    return sites;
+  }
+
+  private static void assertSingleInstance(Supplier<?> singleton) {
+    Set<Object> instances = Sets.newIdentityHashSet();
+    instances.addAll(concurrently(singleton));
+    Assert.assertEquals(1, instances.size());
+  }
+
+  /** Rebuilds the hierarchies and queries them from all threads at once while they fill up. */
+  private static void assertHierarchyIsConsistent() {
+    List<SootClass> classes = Lists.newArrayList(Scene.v().getApplicationClasses());
+    Scene.v().releaseActiveHierarchy();
+    Scene.v().releaseFastHierarchy();
+    List<List<String>> concurrent = concurrently(() -> subtypes(classes));
+    List<String> sequential = subtypes(classes);
+    for (List<String> res : concurrent) {
+      Assert.assertEquals(sequential, res);
+    }
+  }
+
+  private static List<String> subtypes(List<SootClass> classes) {
+    List<String> res = Lists.newArrayList();
+    for (SootClass c : classes) {
+      if (c.isInterface()) {
+        res.add(c + " " + SootHierarchy.getImplementersOf(c));
+        res.add(c + " " + SootHierarchy.getSubinterfacesOfIncluding(c));
+      } else {
+        res.add(c + " " + SootHierarchy.getSubclassesOfIncluding(c));
+        res.add(c + " " + SootHierarchy.isSubclass(c, Scene.v().getObjectType().getSootClass()));
+      }
+      res.add(c + " " + SootHierarchy.canStoreType(c.getType(), Scene.v().getObjectType()));
+    }
+    return res;
+  }
+
+  private static <T> List<T> concurrently(Supplier<T> task) {
+    CyclicBarrier start = new CyclicBarrier(THREADS);
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<T>> futures = Lists.newArrayList();
+      for (int i = 0; i < THREADS; i++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  start.await(10, TimeUnit.SECONDS);
+                  return task.get();
+                }));
+      }
+      List<T> res = Lists.newArrayList();
+      for (Future<T> f : futures) {
+        res.add(f.get());
+      }
+      return res;
+    } catch (Exception e) {
+      throw new AssertionError(e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void independentQueries() {
+    Holder first = new Holder();
+    first.value = new Alloc();
+    Holder second = new Holder();
+    second.value = new Alloc();
+    Object alias = first.value;
+    if (staticallyUnknown()) {
+      alias = second.value;
+    }
+    queryFor(alias);
+    queryFor(second.value);
+  }
+
+  private static class Alloc implements AllocatedObject {}
+
+  private static class Holder implements AllocatedObject {
+    private Object value;
+  }
+}
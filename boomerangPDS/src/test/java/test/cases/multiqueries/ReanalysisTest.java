@@ -0,0 +1,168 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package test.cases.multiqueries;
+
+import boomerang.BackwardQuery;
+import boomerang.Boomerang;
+import boomerang.BoomerangOptions;
+import boomerang.DefaultBoomerangOptions;
+import boomerang.ForwardQuery;
+import boomerang.Query;
+import boomerang.scene.ControlFlowGraph.Edge;
+import boomerang.scene.Method;
+import boomerang.scene.Val;
+import boomerang.solver.ForwardBoomerangSolver;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+import sync.pds.solver.nodes.Node;
+import test.core.BoomerangApiTest;
+import test.core.selfrunning.AllocatedObject;
+import wpds.impl.Weight.NoWeight;
+
+/**
+ * Solves all allocation sites, invalidates one method and solves the affected roots again. The
+ * results must match the ones of a fresh solver and the stats must track exactly the solvers that
+ * are alive. The solvers dropped by the invalidation must not receive any flow of the queries
+ * solved afterwards, also not of those sharing an unchanged callee with them.
+ */
+public class ReanalysisTest extends BoomerangApiTest {
+
+  @Override
+  protected BoomerangOptions createOptions() {
+    return new DefaultBoomerangOptions() {
+      @Override
+      public boolean onTheFlyCallGraph() {
+        return true;
+      }
+
+      @Override
+      public boolean allowMultipleQueries() {
+        return true;
+      }
+    };
+  }
+
+  @Override
+  protected void analyze() {
+    List<ForwardQuery> queries = allocationSites();
+    Map<ForwardQuery, Set<String>> expected =
+        solve(new Boomerang(callGraph, dataFlowScope, createOptions()), queries);
+
+    Boomerang solver = new Boomerang(callGraph, dataFlowScope, createOptions());
+    solve(solver, queries);
+    Map<ForwardQuery, ForwardBoomerangSolver<NoWeight>> before =
+        Maps.newHashMap(solver.getSolvers());
+    Set<Query> roots = solver.invalidate(Collections.singleton(method("identity")));
+    Assert.assertFalse(roots.isEmpty());
+    // The allocation that does not reach the changed method keeps its solver.
+    Assert.assertFalse(roots.containsAll(queries));
+    assertStatsTrackLiveSolvers(solver);
+    Map<ForwardBoomerangSolver<NoWeight>, Integer> dropped = Maps.newIdentityHashMap();
+    for (Map.Entry<ForwardQuery, ForwardBoomerangSolver<NoWeight>> e : before.entrySet()) {
+      if (solver.getSolvers().get(e.getKey()) != e.getValue()) {
+        dropped.put(e.getValue(), transitions(e.getValue()));
+      }
+    }
+    Assert.assertFalse(dropped.isEmpty());
+
+    for (Query root : roots) {
+      if (root instanceof ForwardQuery) {
+        solver.solve((ForwardQuery) root);
+      } else {
+        solver.solve((BackwardQuery) root);
+      }
+    }
+    Assert.assertEquals(expected, solve(solver, queries));
+    assertStatsTrackLiveSolvers(solver);
+    for (Map.Entry<ForwardBoomerangSolver<NoWeight>, Integer> e : dropped.entrySet()) {
+      Assert.assertEquals(e.getKey().toString(), e.getValue(), transitions(e.getKey()));
+    }
+  }
+
+  private static Integer transitions(ForwardBoomerangSolver<NoWeight> solver) {
+    return solver.getCallAutomaton().getNumberOfTransitions()
+        + solver.getFieldAutomaton().getNumberOfTransitions();
+  }
+
+  private static void assertStatsTrackLiveSolvers(Boomerang solver) {
+    Set<Node<Edge, Val>> reached = Sets.newHashSet();
+    for (ForwardBoomerangSolver<NoWeight> s : solver.getSolvers().values()) {
+      reached.addAll(s.getReachedStates());
+    }
+    Assert.assertEquals(reached, Sets.newHashSet(solver.getStats().getForwardReachesNodes()));
+  }
+
+  private Method method(String name) {
+    for (Method m : callGraph.getReachableMethods()) {
+      if (m.getName().equals(name)) {
+        return m;
+      }
+    }
+    throw new AssertionError("No reachable method " + name);
+  }
+
+  private static Map<ForwardQuery, Set<String>> solve(
+      Boomerang solver, List<ForwardQuery> queries) {
+    Map<ForwardQuery, Set<String>> res = Maps.newHashMap();
+    for (ForwardQuery query : queries) {
+      res.put(query, rows(solver.solve(query)));
+    }
+    return res;
+  }
+
+  @Test
+  public void changedCallee() {
+    Alloc first = new Alloc();
+    Object passed = identity(first);
+    Holder holder = new Holder();
+    holder.value = passed;
+    Object read = holder.value;
+    Alloc second = new Alloc();
+    Object untouched = second;
+    queryFor(read);
+    queryFor(untouched);
+  }
+
+  @Test
+  public void changedCalleeWithSharedHelper() {
+    Alloc first = new Alloc();
+    Object passed = identity(wrap(first));
+    Alloc second = new Alloc();
+    Object wrapped = wrap(second);
+    Holder holder = new Holder();
+    holder.value = passed;
+    Object read = holder.value;
+    queryFor(read);
+    queryFor(wrapped);
+  }
+
+  private Object identity(Object param) {
+    return param;
+  }
+
+  private Object wrap(Object param) {
+    Object local = param;
+    return local;
+  }
+
+  private static class Alloc implements AllocatedObject {}
+
+  private static class Holder implements AllocatedObject {
+    private Object value;
+  }
+}
@@ -0,0 +1,95 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package test.cases.multiqueries;
+
+import boomerang.BackwardQuery;
+import boomerang.Boomerang;
+import boomerang.ForwardQuery;
+import boomerang.results.BackwardBoomerangResults;
+import boomerang.solver.BackwardBoomerangSolver;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+import test.core.BoomerangApiTest;
+import test.core.selfrunning.AllocatedObject;
+import wpds.impl.Weight.NoWeight;
+
+/**
+ * Solves several backward queries with one solver, one by one and as a batch. All of them propagate
+ * through one backward solver and share the forward solvers of the allocation sites they reach,
+ * each query finds at least the allocation sites a fresh solver finds for it, and the batch finds
+ * the same allocation sites as the loop.
+ */
+public class SharedBackwardSolverTest extends BoomerangApiTest {
+
+  @Override
+  protected void analyze() {
+    List<BackwardQuery> queries = queryForCallSites();
+    Assert.assertTrue(queries.size() > 2);
+    Boomerang shared = new Boomerang(callGraph, dataFlowScope, createOptions());
+    Boomerang batched = new Boomerang(callGraph, dataFlowScope, createOptions());
+    List<BackwardQuery> batch = Lists.newArrayList(queries);
+    batch.addAll(queries);
+    Map<BackwardQuery, BackwardBoomerangResults<NoWeight>> batchResults = batched.solve(batch);
+    Assert.assertEquals(queries, Lists.newArrayList(batchResults.keySet()));
+    int freshForwardSolvers = 0;
+    for (BackwardQuery query : queries) {
+      Boomerang fresh = new Boomerang(callGraph, dataFlowScope, createOptions());
+      Set<ForwardQuery> expected = fresh.solve(query).getAllocationSites().keySet();
+      freshForwardSolvers += fresh.getSolvers().size();
+      Assert.assertFalse(expected.isEmpty());
+      // The forward solvers shared with earlier queries may add allocation sites, never drop one.
+      Assert.assertTrue(shared.solve(query).getAllocationSites().keySet().containsAll(expected));
+    }
+    // The results of the batch are read once all its queries are solved, like those of the loop
+    // once the loop completed.
+    for (BackwardQuery query : queries) {
+      BackwardBoomerangResults<NoWeight> batchRes = batchResults.get(query);
+      Assert.assertFalse(batchRes.isTimedout());
+      Assert.assertEquals(
+          shared.solve(query).getAllocationSites().keySet(),
+          batchRes.getAllocationSites().keySet());
+    }
+    assertOneBackwardSolver(shared);
+    assertOneBackwardSolver(batched);
+    Assert.assertTrue(shared.getSolvers().size() < freshForwardSolvers);
+    Assert.assertEquals(shared.getSolvers().keySet(), batched.getSolvers().keySet());
+  }
+
+  private static void assertOneBackwardSolver(Boomerang solver) {
+    Set<BackwardBoomerangSolver<NoWeight>> backwardSolvers = Sets.newIdentityHashSet();
+    backwardSolvers.addAll(solver.getBackwardSolvers().values());
+    Assert.assertEquals(1, backwardSolvers.size());
+  }
+
+  @Test
+  public void aliasesOfOneAllocation() {
+    Alloc alloc = new Alloc();
+    Object alias = alloc;
+    Holder holder = new Holder();
+    holder.value = alias;
+    Object read = holder.value;
+    queryFor(alloc);
+    queryFor(alias);
+    queryFor(read);
+  }
+
+  private static class Alloc implements AllocatedObject {}
+
+  private static class Holder {
+    private Object value;
+  }
+}
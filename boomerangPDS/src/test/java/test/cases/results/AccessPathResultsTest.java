@@ -0,0 +1,77 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package test.cases.results;
+
+import boomerang.BackwardQuery;
+import boomerang.Boomerang;
+import boomerang.ForwardQuery;
+import boomerang.scene.ControlFlowGraph.Edge;
+import boomerang.scene.jimple.JimpleMethod;
+import boomerang.solver.ForwardBoomerangSolver;
+import boomerang.util.RegExAccessPath;
+import com.google.common.collect.Sets;
+import com.google.common.collect.Table;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+import test.core.BoomerangApiTest;
+import test.core.selfrunning.AllocatedObject;
+import wpds.impl.Weight.NoWeight;
+
+public class AccessPathResultsTest extends BoomerangApiTest {
+
+  @Override
+  protected void analyze() {
+    BackwardQuery queryFor = queryForCallSites().get(0);
+    for (ForwardQuery query : allocationSites()) {
+      Boomerang boomerang = new Boomerang(callGraph, dataFlowScope, createOptions());
+      boomerang.solve(query);
+      ForwardBoomerangSolver<NoWeight> solver = boomerang.getSolvers().get(query);
+      Table<Edge, RegExAccessPath, NoWeight> results =
+          solver.getResults(JimpleMethod.of(sootTestMethod));
+      Assert.assertFalse(results.isEmpty());
+      for (Edge edge : results.rowKeySet()) {
+        Map<RegExAccessPath, NoWeight> resultsAt = solver.getResultsAt(edge.getStart());
+        Assert.assertTrue(resultsAt.keySet().containsAll(results.row(edge).keySet()));
+      }
+      Set<String> atQuery = Sets.newHashSet();
+      for (RegExAccessPath accessPath :
+          solver.getResultsAt(queryFor.cfgEdge().getStart()).keySet()) {
+        atQuery.add(accessPath.getVal().getVariableName());
+      }
+      Assert.assertTrue(atQuery.toString(), atQuery.contains("alias"));
+    }
+  }
+
+  @Test
+  public void local() {
+    Alloc alloc = new Alloc();
+    Object alias = alloc;
+    queryFor(alias);
+  }
+
+  @Test
+  public void viaField() {
+    Alloc alloc = new Alloc();
+    Container container = new Container();
+    container.field = alloc;
+    Object alias = container.field;
+    queryFor(alias);
+  }
+
+  private static class Alloc implements AllocatedObject {}
+
+  private static class Container {
+    Object field;
+  }
+}
@@ -0,0 +1,65 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package test.cases.results;
+
+import boomerang.Boomerang;
+import boomerang.ForwardQuery;
+import boomerang.results.ForwardBoomerangResults;
+import boomerang.scene.ControlFlowGraph.Edge;
+import boomerang.scene.Val;
+import com.google.common.collect.Table;
+import org.junit.Assert;
+import org.junit.Test;
+import test.core.BoomerangApiTest;
+import test.core.selfrunning.AllocatedObject;
+import wpds.impl.Weight.NoWeight;
+
+public class ObjectDestructingStatementsTest extends BoomerangApiTest {
+
+  @Override
+  protected void analyze() {
+    for (ForwardQuery query : allocationSites()) {
+      ForwardBoomerangResults<NoWeight> results =
+          new Boomerang(callGraph, dataFlowScope, createOptions()).solve(query);
+      Table<Edge, Val, NoWeight> destructing = results.getObjectDestructingStatements();
+      Assert.assertFalse(destructing.isEmpty());
+      for (Table.Cell<Edge, Val, NoWeight> c : destructing.cellSet()) {
+        Assert.assertTrue(c.getRowKey().getTarget().uses(c.getColumnKey()));
+        Assert.assertEquals(
+            "queryFor", c.getRowKey().getTarget().getInvokeExpr().getMethod().getName());
+      }
+    }
+  }
+
+  @Test
+  public void lastUseInMethod() {
+    Alloc alloc = new Alloc();
+    Object alias = alloc;
+    queryFor(alias);
+  }
+
+  @Test
+  public void lastUseAfterCall() {
+    Alloc alloc = new Alloc();
+    Object alias = identity(alloc);
+    if (staticallyUnknown()) {
+      alias.hashCode();
+    }
+    queryFor(alias);
+  }
+
+  private Object identity(Object param) {
+    return param;
+  }
+
+  private static class Alloc implements AllocatedObject {}
+}
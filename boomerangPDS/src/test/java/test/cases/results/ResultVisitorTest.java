@@ -0,0 +1,80 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package test.cases.results;
+
+import boomerang.Boomerang;
+import boomerang.ForwardQuery;
+import boomerang.results.ForwardBoomerangResults;
+import boomerang.scene.ControlFlowGraph.Edge;
+import boomerang.scene.Val;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
+import org.junit.Assert;
+import org.junit.Test;
+import test.core.BoomerangApiTest;
+import test.core.selfrunning.AllocatedObject;
+import wpds.impl.Weight.NoWeight;
+
+/**
+ * Collects the rows a visitor registered via {@link Boomerang#registerResultVisitor} receives while
+ * the query is solved. They must equal the rows of {@link
+ * ForwardBoomerangResults#asStatementValWeightTable()} and of {@link
+ * ForwardBoomerangResults#visitStatementValWeights} once the query is solved.
+ */
+public class ResultVisitorTest extends BoomerangApiTest {
+
+  @Override
+  protected void analyze() {
+    for (ForwardQuery query : allocationSites()) {
+      Boomerang solver = new Boomerang(callGraph, dataFlowScope, createOptions());
+      Table<Edge, Val, NoWeight> live = HashBasedTable.create();
+      solver.registerResultVisitor(query, live::put);
+      ForwardBoomerangResults<NoWeight> results = solver.solve(query);
+
+      Table<Edge, Val, NoWeight> table = results.asStatementValWeightTable();
+      Assert.assertFalse(table.isEmpty());
+      Assert.assertEquals(table, live);
+      Table<Edge, Val, NoWeight> visited = HashBasedTable.create();
+      results.visitStatementValWeights(visited::put);
+      Assert.assertEquals(table, visited);
+    }
+  }
+
+  @Test
+  public void intraprocedural() {
+    Alloc alloc = new Alloc();
+    Object alias = alloc;
+    queryFor(alias);
+  }
+
+  @Test
+  public void throughCallsAndFields() {
+    Alloc alloc = new Alloc();
+    Holder holder = new Holder();
+    holder.f = identity(alloc);
+    Object alias = holder.f;
+    if (staticallyUnknown()) {
+      alias = identity(alias);
+    }
+    queryFor(alias);
+  }
+
+  private Object identity(Object param) {
+    return param;
+  }
+
+  private static class Holder {
+    Object f;
+  }
+
+  private static class Alloc implements AllocatedObject {}
+}
@@ -0,0 +1,88 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package test.cases.statics;
+
+import boomerang.Boomerang;
+import boomerang.ForwardQuery;
+import boomerang.scene.CallGraph;
+import boomerang.scene.CallGraph.Edge;
+import boomerang.scene.Method;
+import boomerang.scene.StaticFieldIndex;
+import com.google.common.collect.Lists;
+import java.util.List;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+import test.core.BoomerangApiTest;
+import test.core.selfrunning.AllocatedObject;
+
+/**
+ * Builds a call graph in which the method loading from a static field becomes reachable only after
+ * the static field index was built and a solver was created. The index must be extended in place,
+ * such that the solver propagates the allocation stored to the field into the loading method.
+ */
+public class StaticFieldIndexTest extends BoomerangApiTest {
+
+  @Override
+  protected void analyze() {
+    List<Edge> intoLoad = Lists.newArrayList();
+    CallGraph partial = new CallGraph();
+    for (Method entryPoint : callGraph.getEntryPoints()) {
+      partial.addEntryPoint(entryPoint);
+    }
+    for (Edge e : callGraph.getEdges()) {
+      if (e.tgt().getName().equals("load")) {
+        intoLoad.add(e);
+      } else {
+        partial.addEdge(e);
+      }
+    }
+    Assert.assertFalse(intoLoad.isEmpty());
+    Method load = intoLoad.get(0).tgt();
+
+    StaticFieldIndex index = partial.getStaticFieldIndex();
+    Assert.assertFalse(index.contains(load));
+    Assert.assertFalse(index.getAllStores().isEmpty());
+    Assert.assertTrue(index.getAllLoads().isEmpty());
+    Boomerang solver = new Boomerang(partial, dataFlowScope, createOptions());
+
+    for (Edge e : intoLoad) {
+      partial.addEdge(e);
+    }
+    Assert.assertSame(index, partial.getStaticFieldIndex());
+    Assert.assertTrue(index.contains(load));
+    Assert.assertFalse(index.getAllLoads().isEmpty());
+
+    List<ForwardQuery> queries = allocationSites();
+    Assert.assertEquals(1, queries.size());
+    Set<String> expected =
+        rows(new Boomerang(callGraph, dataFlowScope, createOptions()).solve(queries.get(0)));
+    Set<String> res = rows(solver.solve(queries.get(0)));
+    Assert.assertTrue(res.stream().anyMatch(row -> row.contains(load.toString())));
+    Assert.assertEquals(expected, res);
+  }
+
+  private static Object field;
+
+  @Test
+  public void loadBecomesReachable() {
+    field = new Alloc();
+    Object read = load();
+    queryFor(read);
+  }
+
+  private static Object load() {
+    return field;
+  }
+
+  private static class Alloc implements AllocatedObject {}
+}
@@ -0,0 +1,147 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package test.cases.util;
+
+import boomerang.util.PersistentMap;
+import boomerang.util.PersistentSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PersistentMapTest {
+
+  @Test
+  public void behavesLikeHashMap() {
+    Random random = new Random(42);
+    PersistentMap<Key, Integer> map = PersistentMap.empty();
+    Map<Key, Integer> expected = Maps.newHashMap();
+    for (int i = 0; i < 5000; i++) {
+      int hash = random.nextBoolean() ? random.nextInt(2000) : random.nextInt();
+      Key key = new Key(hash, random.nextInt(4));
+      int value = random.nextInt(3);
+      map = map.plus(key, value);
+      expected.put(key, value);
+    }
+    assertSameMap(expected, map);
+  }
+
+  @Test
+  public void previousVersionsAreUnchanged() {
+    List<PersistentMap<Key, Integer>> versions = Lists.newArrayList();
+    List<Map<Key, Integer>> expected = Lists.newArrayList();
+    PersistentMap<Key, Integer> map = PersistentMap.empty();
+    Map<Key, Integer> current = Maps.newHashMap();
+    for (int i = 0; i < 300; i++) {
+      // Few distinct hash codes, such that collision nodes are created and extended.
+      Key key = new Key(i % 50, i % 7);
+      map = map.plus(key, i);
+      current.put(key, i);
+      versions.add(map);
+      expected.add(Maps.newHashMap(current));
+    }
+    for (int i = 0; i < versions.size(); i++) {
+      assertSameMap(expected.get(i), versions.get(i));
+    }
+  }
+
+  @Test
+  public void unchangedMapIsReturned() {
+    PersistentMap<Key, Integer> map = PersistentMap.of(new Key(1, 1), 1);
+    Assert.assertSame(map, map.plus(new Key(1, 1), 1));
+    Assert.assertSame(map, map.plusAll(map));
+    Assert.assertNotSame(map, map.plus(new Key(1, 1), 2));
+  }
+
+  @Test
+  public void equalityIsIndependentOfInsertionOrder() {
+    List<Key> keys = Lists.newArrayList();
+    for (int i = 0; i < 200; i++) {
+      keys.add(new Key(i, i % 3));
+    }
+    PersistentMap<Key, Integer> forward = PersistentMap.empty();
+    for (Key k : keys) {
+      forward = forward.plus(k, k.hash);
+    }
+    PersistentMap<Key, Integer> backward = PersistentMap.empty();
+    for (Key k : Lists.reverse(keys)) {
+      backward = backward.plus(k, k.hash);
+    }
+    Assert.assertEquals(forward, backward);
+    Assert.assertEquals(forward.hashCode(), backward.hashCode());
+    Assert.assertNotEquals(forward, backward.plus(keys.get(0), -1));
+  }
+
+  @Test
+  public void persistentSet() {
+    PersistentSet<Key> set = PersistentSet.empty();
+    Set<Key> expected = Sets.newHashSet();
+    for (int i = 0; i < 1000; i++) {
+      Key key = new Key(i % 300, i % 5);
+      PersistentSet<Key> previous = set;
+      set = set.plus(key);
+      Assert.assertEquals(expected.add(key), previous != set);
+    }
+    Assert.assertEquals(expected, set);
+    Assert.assertEquals(set, expected);
+    Assert.assertEquals(expected.hashCode(), set.hashCode());
+    for (Key k : expected) {
+      Assert.assertTrue(set.contains(k));
+    }
+    Assert.assertFalse(set.contains(new Key(1000, 0)));
+  }
+
+  private static void assertSameMap(Map<Key, Integer> expected, PersistentMap<Key, Integer> map) {
+    Assert.assertEquals(expected.size(), map.size());
+    Assert.assertEquals(expected, map);
+    Assert.assertEquals(map, expected);
+    Assert.assertEquals(expected.hashCode(), map.hashCode());
+    Assert.assertEquals(expected, Maps.newHashMap(map));
+    for (Map.Entry<Key, Integer> e : expected.entrySet()) {
+      Assert.assertEquals(e.getValue(), map.get(e.getKey()));
+    }
+    Assert.assertNull(map.get(new Key(-1, -1)));
+  }
+
+  /** Key with a configurable hash code, keys with equal hash codes differ by their id. */
+  private static class Key {
+    private final int hash;
+    private final int id;
+
+    private Key(int hash, int id) {
+      this.hash = hash;
+      this.id = id;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) return false;
+      Key other = (Key) o;
+      return hash == other.hash && id == other.id;
+    }
+
+    @Override
+    public String toString() {
+      return hash + "/" + id;
+    }
+  }
+}
@@ -0,0 +1,137 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package test.cases.weights;
+
+import boomerang.scene.Method;
+import boomerang.scene.Statement;
+import boomerang.scene.Val;
+import boomerang.scene.jimple.JimpleMethod;
+import boomerang.weights.PathConditionWeight;
+import boomerang.weights.PathConditionWeight.ConditionDomain;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import test.core.BoomerangApiTest;
+import wpds.impl.Weight;
+
+/** Compares extend and combine of {@link PathConditionWeight} against a model built on maps. */
+public class PathConditionWeightTest extends BoomerangApiTest {
+
+  @Override
+  protected void analyze() {
+    Method method = JimpleMethod.of(sootTestMethod);
+    List<Statement> ifStatements = Lists.newArrayList();
+    for (Statement s : method.getStatements()) {
+      if (s.isIfStmt()) {
+        ifStatements.add(s);
+      }
+    }
+    List<Val> locals = Lists.newArrayList(method.getLocals());
+    Assert.assertTrue(ifStatements.size() > 3);
+
+    Random random = new Random(7);
+    List<Model> models = Lists.newArrayList();
+    for (int i = 0; i < 200; i++) {
+      Model m = new Model();
+      if (random.nextBoolean()) {
+        Statement s = ifStatements.get(random.nextInt(ifStatements.size()));
+        boolean condition = random.nextBoolean();
+        m.weight = new PathConditionWeight(s, condition);
+        m.ifs.put(s, condition ? ConditionDomain.TRUE : ConditionDomain.FALSE);
+      } else {
+        Val v = locals.get(random.nextInt(locals.size()));
+        ConditionDomain c = ConditionDomain.values()[random.nextInt(3)];
+        m.weight = new PathConditionWeight(v, c);
+        m.vals.put(v, c);
+      }
+      models.add(m);
+    }
+    for (int i = 0; i < 2000; i++) {
+      Model a = models.get(random.nextInt(models.size()));
+      Model b = models.get(random.nextInt(models.size()));
+      Model res = random.nextBoolean() ? a.extendWith(b) : a.combineWith(b);
+      Assert.assertEquals(res.ifs, ((PathConditionWeight) res.weight).getConditions());
+      Assert.assertEquals(res.vals, ((PathConditionWeight) res.weight).getEvaluationMap());
+      models.add(res);
+    }
+    // Weights with the same conditions are equal, independent of how they were built.
+    for (int i = 0; i < 2000; i++) {
+      Model a = models.get(random.nextInt(models.size()));
+      Model b = models.get(random.nextInt(models.size()));
+      boolean sameConditions = a.ifs.equals(b.ifs) && a.vals.equals(b.vals);
+      Assert.assertEquals(sameConditions, a.weight.equals(b.weight));
+      if (sameConditions) {
+        Assert.assertEquals(a.weight.hashCode(), b.weight.hashCode());
+      }
+    }
+  }
+
+  private static class Model {
+    private Weight weight;
+    private final Map<Statement, ConditionDomain> ifs = Maps.newHashMap();
+    private final Map<Val, ConditionDomain> vals = Maps.newHashMap();
+
+    private Model extendWith(Model other) {
+      Model res = new Model();
+      res.weight = weight.extendWith(other.weight);
+      res.ifs.putAll(ifs);
+      res.ifs.putAll(other.ifs);
+      res.vals.putAll(vals);
+      res.vals.putAll(other.vals);
+      return res;
+    }
+
+    private Model combineWith(Model other) {
+      Model res = new Model();
+      res.weight = weight.combineWith(other.weight);
+      join(ifs, other.ifs, res.ifs);
+      join(vals, other.vals, res.vals);
+      return res;
+    }
+
+    private static <K> void join(
+        Map<K, ConditionDomain> a, Map<K, ConditionDomain> b, Map<K, ConditionDomain> res) {
+      res.putAll(a);
+      for (Map.Entry<K, ConditionDomain> e : b.entrySet()) {
+        ConditionDomain aVal = a.get(e.getKey());
+        res.put(
+            e.getKey(),
+            aVal == null || aVal.equals(e.getValue()) ? e.getValue() : ConditionDomain.TOP);
+      }
+    }
+  }
+
+  @Test
+  public void branches() {
+    Object o = new Object();
+    int i = 0;
+    if (staticallyUnknown()) {
+      i++;
+    }
+    if (staticallyUnknown()) {
+      i--;
+    }
+    if (staticallyUnknown()) {
+      o = null;
+    }
+    while (staticallyUnknown()) {
+      i += 2;
+    }
+    if (i > 3) {
+      queryFor(o);
+    }
+  }
+}
@@ -0,0 +1,166 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package test.cases.weights;
+
+import boomerang.scene.ControlFlowGraph;
+import boomerang.scene.ControlFlowGraph.Edge;
+import boomerang.scene.Method;
+import boomerang.scene.Statement;
+import boomerang.scene.Val;
+import boomerang.scene.jimple.JimpleMethod;
+import boomerang.weights.PathTrackingWeight;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+import sync.pds.solver.nodes.Node;
+import test.core.BoomerangApiTest;
+import wpds.impl.Weight;
+
+public class PathTrackingWeightTest extends BoomerangApiTest {
+
+  @Override
+  protected void analyze() {
+    Method method = JimpleMethod.of(sootTestMethod);
+    ControlFlowGraph cfg = method.getControlFlowGraph();
+    List<Node<Edge, Val>> nodes = Lists.newArrayList();
+    for (Statement s : cfg.getStatements()) {
+      for (Statement succ : cfg.getSuccsOf(s)) {
+        for (Val local : method.getLocals()) {
+          nodes.add(new Node<>(new Edge(s, succ), local));
+        }
+      }
+    }
+    // More statements than fit into a 64 bit filter.
+    Assert.assertTrue(nodes.size() > 200);
+
+    Weight path = PathTrackingWeight.one();
+    for (Node<Edge, Val> n : nodes) {
+      path = path.extendWith(new PathTrackingWeight(n));
+    }
+    Assert.assertEquals(nodes, ((PathTrackingWeight) path).getShortestPathWitness());
+    Assert.assertEquals(
+        Collections.singleton(new LinkedHashSet<>(nodes)),
+        ((PathTrackingWeight) path).getAllPathWitness());
+
+    // Appending statements of the path again does not change it.
+    Weight prefix = PathTrackingWeight.one();
+    for (Node<Edge, Val> n : nodes.subList(0, nodes.size() / 2)) {
+      prefix = prefix.extendWith(new PathTrackingWeight(n));
+    }
+    Assert.assertEquals(path, path.extendWith(prefix));
+    Assert.assertEquals(path, prefix.extendWith(path));
+
+    // Paths are equal if they contain the same statements, independent of the order.
+    List<Node<Edge, Val>> shuffled = Lists.newArrayList(nodes);
+    Collections.shuffle(shuffled, new Random(1));
+    Weight shuffledPath = PathTrackingWeight.one();
+    for (Node<Edge, Val> n : shuffled) {
+      shuffledPath = shuffledPath.extendWith(new PathTrackingWeight(n));
+    }
+    Assert.assertEquals(path, shuffledPath);
+    Assert.assertEquals(path.hashCode(), shuffledPath.hashCode());
+    Assert.assertNotEquals(path, prefix);
+
+    // Combining keeps the shorter witness and both paths.
+    PathTrackingWeight combined = (PathTrackingWeight) path.combineWith(prefix);
+    Assert.assertEquals(
+        ((PathTrackingWeight) prefix).getShortestPathWitness(), combined.getShortestPathWitness());
+    Assert.assertEquals(2, combined.getAllPathWitness().size());
+
+    compareWithPathSets(nodes.subList(0, 12));
+  }
+
+  /**
+   * Applies random sequences of extend and combine operations to weights and to the sets of paths
+   * they stand for, and checks that both agree on all paths.
+   */
+  private static void compareWithPathSets(List<Node<Edge, Val>> nodes) {
+    Random random = new Random(7);
+    for (int run = 0; run < 50; run++) {
+      List<PathTrackingWeight> weights = Lists.newArrayList(PathTrackingWeight.one());
+      List<Set<Set<Node<Edge, Val>>>> models = Lists.newArrayList();
+      models.add(Collections.emptySet());
+      for (Node<Edge, Val> n : nodes) {
+        weights.add(new PathTrackingWeight(n));
+        models.add(Collections.singleton(Collections.singleton(n)));
+      }
+      for (int step = 0; step < 40; step++) {
+        int i = random.nextInt(weights.size());
+        int j = random.nextInt(weights.size());
+        boolean extend = random.nextBoolean();
+        PathTrackingWeight res =
+            (PathTrackingWeight)
+                (extend
+                    ? weights.get(i).extendWith(weights.get(j))
+                    : weights.get(i).combineWith(weights.get(j)));
+        Set<Set<Node<Edge, Val>>> model =
+            extend ? extend(models.get(i), models.get(j)) : combine(models.get(i), models.get(j));
+        Assert.assertEquals(model, res.getAllPathWitness());
+        // Weights without paths may still differ from ONE.
+        for (int k = 0; k < weights.size() && !model.isEmpty(); k++) {
+          if (models.get(k).equals(model)
+              && weights.get(k).getShortestPathWitness().equals(res.getShortestPathWitness())) {
+            Assert.assertEquals(weights.get(k), res);
+          }
+        }
+        weights.add(res);
+        models.add(model);
+      }
+    }
+  }
+
+  private static Set<Set<Node<Edge, Val>>> extend(
+      Set<Set<Node<Edge, Val>>> prefixes, Set<Set<Node<Edge, Val>>> suffixes) {
+    if (prefixes.isEmpty()) {
+      return suffixes;
+    }
+    if (suffixes.isEmpty()) {
+      return prefixes;
+    }
+    Set<Set<Node<Edge, Val>>> res = Sets.newHashSet();
+    for (Set<Node<Edge, Val>> prefix : prefixes) {
+      for (Set<Node<Edge, Val>> suffix : suffixes) {
+        res.add(Sets.union(prefix, suffix).immutableCopy());
+      }
+    }
+    return res;
+  }
+
+  private static Set<Set<Node<Edge, Val>>> combine(
+      Set<Set<Node<Edge, Val>>> a, Set<Set<Node<Edge, Val>>> b) {
+    return Sets.union(a, b).immutableCopy();
+  }
+
+  @Test
+  public void longPath() {
+    Object a = new Object();
+    Object b = a;
+    Object c = b;
+    for (int i = 0; i < 3; i++) {
+      if (staticallyUnknown()) {
+        c = new Object();
+      } else {
+        b = c;
+      }
+    }
+    Object d = c;
+    Object e = b;
+    queryFor(d);
+    queryFor(e);
+  }
+}
@@ -0,0 +1,119 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package test.core;
+
+import boomerang.BackwardQuery;
+import boomerang.BoomerangOptions;
+import boomerang.DefaultBoomerangOptions;
+import boomerang.ForwardQuery;
+import boomerang.Query;
+import boomerang.results.ForwardBoomerangResults;
+import boomerang.scene.AnalysisScope;
+import boomerang.scene.CallGraph;
+import boomerang.scene.DataFlowScope;
+import boomerang.scene.SootDataFlowScope;
+import boomerang.scene.jimple.BoomerangPretransformer;
+import boomerang.scene.jimple.SootCallGraph;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.collect.Table;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import soot.Scene;
+import soot.SceneTransformer;
+import test.core.selfrunning.AbstractTestingFramework;
+import test.core.selfrunning.AllocatedObject;
+import wpds.impl.Weight;
+
+/**
+ * Base class for tests of the solver API (cancellation, caching, re-analysis, ...). The test method
+ * is the analyzed program, {@link #analyze()} issues the queries and checks the results. Forward
+ * queries start at the allocation sites of {@link AllocatedObject}s, backward queries at the
+ * arguments of calls to {@link #queryFor(Object)}.
+ */
+public abstract class BoomerangApiTest extends AbstractTestingFramework {
+
+  protected CallGraph callGraph;
+  protected DataFlowScope dataFlowScope;
+
+  @Override
+  protected SceneTransformer createAnalysisTransformer() {
+    return new SceneTransformer() {
+
+      protected void internalTransform(
+          String phaseName, @SuppressWarnings("rawtypes") Map options) {
+        BoomerangPretransformer.v().reset();
+        BoomerangPretransformer.v().apply();
+        callGraph = new SootCallGraph();
+        dataFlowScope = SootDataFlowScope.make(Scene.v());
+        analyze();
+      }
+    };
+  }
+
+  protected abstract void analyze();
+
+  protected BoomerangOptions createOptions() {
+    return new DefaultBoomerangOptions() {
+      @Override
+      public boolean onTheFlyCallGraph() {
+        return false;
+      }
+
+      @Override
+      public boolean allowMultipleQueries() {
+        return true;
+      }
+    };
+  }
+
+  protected List<ForwardQuery> allocationSites() {
+    List<ForwardQuery> res = Lists.newArrayList();
+    for (Query q : seeds(new AllocationSiteOf(AllocatedObject.class.getName()))) {
+      res.add((ForwardQuery) q);
+    }
+    return res;
+  }
+
+  protected List<BackwardQuery> queryForCallSites() {
+    List<BackwardQuery> res = Lists.newArrayList();
+    for (Query q : seeds(new FirstArgumentOf("queryFor"))) {
+      res.add((BackwardQuery) q);
+    }
+    return res;
+  }
+
+  private Collection<? extends Query> seeds(ValueOfInterestInUnit f) {
+    AnalysisScope scope = new Preanalysis(callGraph, f);
+    Collection<? extends Query> seeds = scope.computeSeeds();
+    if (seeds.isEmpty()) {
+      throw new RuntimeException("No seeds found in " + testMethodName.getMethodName());
+    }
+    return seeds;
+  }
+
+  /**
+   * @return The (statement, value, weight) rows of the results in a form that can be compared
+   *     across solver instances.
+   */
+  protected static <W extends Weight> Set<String> rows(ForwardBoomerangResults<W> results) {
+    Set<String> res = Sets.newHashSet();
+    for (Table.Cell<?, ?, W> c : results.asStatementValWeightTable().cellSet()) {
+      res.add(c.getRowKey() + " | " + c.getColumnKey() + " | " + c.getValue());
+    }
+    return res;
+  }
+
+  protected void queryFor(Object variable) {}
+}
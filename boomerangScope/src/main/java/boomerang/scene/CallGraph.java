@@ -12,8 +12,8 @@ public class CallGraph {
   private Multimap<Statement, Edge> edgesOutOf = HashMultimap.create();
   private Multimap<Method, Edge> edgesInto = HashMultimap.create();
   private Set<Method> entryPoints = Sets.newHashSet();
-  private Multimap<Field, Statement> fieldLoadStatements = HashMultimap.create();
-  private Multimap<Field, Statement> fieldStoreStatements = HashMultimap.create();
+  private final StaticFieldIndex staticFieldIndex = new StaticFieldIndex();
+  private boolean staticFieldIndexBuilt;
 
   public Collection<Edge> edgesOutOf(Statement stmt) {
     return edgesOutOf.get(stmt);
@@ -68,13 +68,19 @@ public class CallGraph {
     }
   }
 
-  public boolean addEdge(Edge edge) {
+  public synchronized boolean addEdge(Edge edge) {
+    if (staticFieldIndexBuilt && isUnreachable(edge.tgt())) {
+      staticFieldIndex.add(edge.tgt());
+    }
     edgesOutOf.put(edge.callSite, edge);
     edgesInto.put(edge.tgt(), edge);
-    computeStaticFieldsLoadAndStores(edge.tgt());
     return edges.add(edge);
   }
 
+  private boolean isUnreachable(Method m) {
+    return !getEntryPoints().contains(m) && edgesInto(m).isEmpty();
+  }
+
   public Collection<Edge> edgesInto(Method m) {
     return edgesInto.get(m);
   }
@@ -91,8 +97,10 @@ public class CallGraph {
     return entryPoints;
   }
 
-  public boolean addEntryPoint(Method m) {
-    computeStaticFieldsLoadAndStores(m);
+  public synchronized boolean addEntryPoint(Method m) {
+    if (staticFieldIndexBuilt && isUnreachable(m)) {
+      staticFieldIndex.add(m);
+    }
     return entryPoints.add(m);
   }
 
@@ -103,22 +111,27 @@ public class CallGraph {
     return reachableMethod;
   }
 
-  public Multimap<Field, Statement> getFieldStoreStatements() {
-    return fieldStoreStatements;
+  /**
+   * Returns the static field loads and stores of all reachable methods. The index is built on first
+   * access, scanning each reachable method once. Afterwards, each method that becomes reachable is
+   * added to the same index instance, such that holders of the index always see all reachable
+   * methods.
+   */
+  public synchronized StaticFieldIndex getStaticFieldIndex() {
+    if (!staticFieldIndexBuilt) {
+      staticFieldIndexBuilt = true;
+      for (Method m : getReachableMethods()) {
+        staticFieldIndex.add(m);
+      }
+    }
+    return staticFieldIndex;
   }
 
-  public Multimap<Field, Statement> getFieldLoadStatements() {
-    return fieldLoadStatements;
+  public Multimap<Field, Statement> getFieldStoreStatements() {
+    return getStaticFieldIndex().getAllStores();
   }
 
-  private void computeStaticFieldsLoadAndStores(Method m) {
-    for (Statement s : m.getStatements()) {
-      if (s.isStaticFieldStore()) {
-        fieldStoreStatements.put(s.getStaticField().field(), s);
-      }
-      if (s.isStaticFieldLoad()) {
-        fieldLoadStatements.put(s.getStaticField().field(), s);
-      }
-    }
+  public Multimap<Field, Statement> getFieldLoadStatements() {
+    return getStaticFieldIndex().getAllLoads();
   }
 }
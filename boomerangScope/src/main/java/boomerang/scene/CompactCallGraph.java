@@ -0,0 +1,487 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package boomerang.scene;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * {@link CallGraph} that stores its edges in compressed sparse row form. Methods and call sites are
+ * assigned dense ids, and the callees of each call site and the callers of each method are stored
+ * as consecutive ranges of int arrays. Edge objects are only materialized upon lookup. Edges and
+ * entry points added after construction, e.g., by an on-the-fly call graph, are kept in the
+ * hash-based structures of {@link CallGraph} on top of the arrays.
+ *
+ * <p>A compact call graph can be written to a binary file via {@link #write(Path)}. {@link
+ * #read(Path, Function)} memory-maps such a file, so the edge arrays are not copied onto the heap.
+ */
+public class CompactCallGraph extends CallGraph {
+
+  private static final int MAGIC = 0x53434347;
+  private static final int VERSION = 1;
+
+  private final IdIndex<Method> methods;
+  private final IdIndex<Statement> callSites;
+  private final Set<Method> entryPoints;
+  private final IntBuffer outOffsets;
+  private final IntBuffer outTargets;
+  private final IntBuffer inOffsets;
+  private final IntBuffer inSources;
+  private final Set<Method> reachableMethods;
+  private final Set<Method> reachableMethodsView;
+
+  /** Creates a compact copy of the given call graph. */
+  public CompactCallGraph(CallGraph cg) {
+    this(cg.getEntryPoints(), cg.getEdges());
+  }
+
+  /**
+   * Creates a compact call graph of the given entry points and edges. The edges are iterated once
+   * and may contain duplicates, they are not collected in a hash-based call graph beforehand.
+   */
+  public CompactCallGraph(Collection<Method> entryPoints, Iterable<Edge> edges) {
+    IdIndex<Method> mIds = new IdIndex<>(entryPoints.size());
+    IdIndex<Statement> csIds = new IdIndex<>(16);
+    for (Method m : entryPoints) {
+      mIds.intern(m);
+    }
+    // Each edge as its call site id in the high and its target id in the low half.
+    long[] pairs = new long[16];
+    int pairCount = 0;
+    for (Edge e : edges) {
+      mIds.intern(e.src().getMethod());
+      int cs = csIds.intern(e.src());
+      int tgt = mIds.intern(e.tgt());
+      if (pairCount == pairs.length) {
+        pairs = Arrays.copyOf(pairs, 2 * pairCount);
+      }
+      pairs[pairCount++] = ((long) cs << 32) | tgt;
+    }
+    Arrays.sort(pairs, 0, pairCount);
+    int[] out = new int[csIds.size() + 1];
+    int[] in = new int[mIds.size() + 1];
+    int[] targets = new int[pairCount];
+    int edgeCount = 0;
+    for (int i = 0; i < pairCount; i++) {
+      if (i > 0 && pairs[i] == pairs[i - 1]) {
+        continue;
+      }
+      int tgt = (int) pairs[i];
+      targets[edgeCount++] = tgt;
+      out[(int) (pairs[i] >>> 32) + 1]++;
+      in[tgt + 1]++;
+    }
+    prefixSums(out);
+    prefixSums(in);
+    int[] inFill = in.clone();
+    int[] sources = new int[edgeCount];
+    for (int cs = 0; cs < csIds.size(); cs++) {
+      for (int i = out[cs]; i < out[cs + 1]; i++) {
+        sources[inFill[targets[i]]++] = cs;
+      }
+    }
+    this.methods = mIds;
+    this.callSites = csIds;
+    this.entryPoints = Collections.unmodifiableSet(Sets.newHashSet(entryPoints));
+    this.outOffsets = IntBuffer.wrap(out);
+    this.outTargets = IntBuffer.wrap(Arrays.copyOf(targets, edgeCount));
+    this.inOffsets = IntBuffer.wrap(in);
+    this.inSources = IntBuffer.wrap(sources);
+    this.reachableMethods = computeReachableMethods();
+    this.reachableMethodsView = Collections.unmodifiableSet(reachableMethods);
+  }
+
+  private CompactCallGraph(
+      Method[] methods,
+      Statement[] callSites,
+      Set<Method> entryPoints,
+      IntBuffer outOffsets,
+      IntBuffer outTargets,
+      IntBuffer inOffsets,
+      IntBuffer inSources) {
+    this.methods = new IdIndex<>(methods.length);
+    for (Method m : methods) {
+      this.methods.intern(m);
+    }
+    this.callSites = new IdIndex<>(callSites.length);
+    for (Statement cs : callSites) {
+      this.callSites.intern(cs);
+    }
+    this.entryPoints = Collections.unmodifiableSet(entryPoints);
+    this.outOffsets = outOffsets;
+    this.outTargets = outTargets;
+    this.inOffsets = inOffsets;
+    this.inSources = inSources;
+    this.reachableMethods = computeReachableMethods();
+    this.reachableMethodsView = Collections.unmodifiableSet(reachableMethods);
+  }
+
+  /** The reachable methods, a concurrent set as edges may be added while it is read. */
+  private Set<Method> computeReachableMethods() {
+    Set<Method> res = ConcurrentHashMap.newKeySet();
+    res.addAll(entryPoints);
+    for (int i = 0; i < methods.size(); i++) {
+      if (inOffsets.get(i + 1) > inOffsets.get(i)) {
+        res.add(methods.get(i));
+      }
+    }
+    return res;
+  }
+
+  private static int[] prefixSums(int[] counts) {
+    for (int i = 1; i < counts.length; i++) {
+      counts[i] += counts[i - 1];
+    }
+    return counts;
+  }
+
+  @Override
+  public Collection<Edge> edgesOutOf(Statement stmt) {
+    return concat(compactEdgesOutOf(stmt), super.edgesOutOf(stmt));
+  }
+
+  @Override
+  public Collection<Edge> edgesInto(Method m) {
+    return concat(compactEdgesInto(m), super.edgesInto(m));
+  }
+
+  private static Collection<Edge> concat(Collection<Edge> compact, Collection<Edge> added) {
+    if (added.isEmpty()) {
+      return compact;
+    }
+    if (compact.isEmpty()) {
+      return added;
+    }
+    return ImmutableList.<Edge>builder().addAll(compact).addAll(added).build();
+  }
+
+  private Collection<Edge> compactEdgesOutOf(Statement stmt) {
+    int cs = callSites.indexOf(stmt);
+    if (cs < 0) {
+      return Collections.emptyList();
+    }
+    int from = outOffsets.get(cs);
+    int to = outOffsets.get(cs + 1);
+    return new AbstractList<Edge>() {
+      @Override
+      public Edge get(int index) {
+        return new Edge(callSites.get(cs), methods.get(outTargets.get(from + index)));
+      }
+
+      @Override
+      public int size() {
+        return to - from;
+      }
+    };
+  }
+
+  private Collection<Edge> compactEdgesInto(Method m) {
+    int id = methods.indexOf(m);
+    if (id < 0) {
+      return Collections.emptyList();
+    }
+    int from = inOffsets.get(id);
+    int to = inOffsets.get(id + 1);
+    return new AbstractList<Edge>() {
+      @Override
+      public Edge get(int index) {
+        return new Edge(callSites.get(inSources.get(from + index)), m);
+      }
+
+      @Override
+      public int size() {
+        return to - from;
+      }
+    };
+  }
+
+  @Override
+  public synchronized boolean addEdge(Edge edge) {
+    if (compactEdgesOutOf(edge.src()).contains(edge) || !super.addEdge(edge)) {
+      return false;
+    }
+    reachableMethods.add(edge.tgt());
+    return true;
+  }
+
+  @Override
+  public synchronized boolean addEntryPoint(Method m) {
+    if (entryPoints.contains(m) || !super.addEntryPoint(m)) {
+      return false;
+    }
+    reachableMethods.add(m);
+    return true;
+  }
+
+  /** Whether edges or entry points were added after construction. */
+  private boolean hasAddedElements() {
+    return super.size() > 0 || !super.getEntryPoints().isEmpty();
+  }
+
+  @Override
+  public int size() {
+    return outTargets.limit() + super.size();
+  }
+
+  @Override
+  public Set<Edge> getEdges() {
+    Set<Edge> compact = compactEdges();
+    return super.size() == 0 ? compact : Sets.union(compact, super.getEdges());
+  }
+
+  private Set<Edge> compactEdges() {
+    return new AbstractSet<Edge>() {
+      @Override
+      public Iterator<Edge> iterator() {
+        return new Iterator<Edge>() {
+          private int cs = 0;
+          private int edge = 0;
+
+          @Override
+          public boolean hasNext() {
+            return edge < outTargets.limit();
+          }
+
+          @Override
+          public Edge next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            while (outOffsets.get(cs + 1) <= edge) {
+              cs++;
+            }
+            return new Edge(callSites.get(cs), methods.get(outTargets.get(edge++)));
+          }
+        };
+      }
+
+      @Override
+      public boolean contains(Object o) {
+        if (!(o instanceof Edge)) return false;
+        return compactEdgesOutOf(((Edge) o).src()).contains(o);
+      }
+
+      @Override
+      public int size() {
+        return outTargets.limit();
+      }
+    };
+  }
+
+  @Override
+  public Collection<Method> getEntryPoints() {
+    Collection<Method> added = super.getEntryPoints();
+    if (added.isEmpty()) {
+      return entryPoints;
+    }
+    return ImmutableSet.<Method>builder().addAll(entryPoints).addAll(added).build();
+  }
+
+  /**
+   * Returns a view of the reachable methods, which is computed once and kept up to date. The view
+   * may be read while edges are added concurrently, its iterators are weakly consistent.
+   */
+  @Override
+  public Set<Method> getReachableMethods() {
+    return reachableMethodsView;
+  }
+
+  /**
+   * Writes the call graph, including the edges and entry points added after construction, to the
+   * given file. Methods are identified by their signature, call sites by their method and their
+   * index within the method's statements.
+   */
+  public synchronized void write(Path file) throws IOException {
+    if (hasAddedElements()) {
+      new CompactCallGraph(this).write(file);
+      return;
+    }
+    try (OutputStream os = Files.newOutputStream(file);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(methods.size());
+      for (int i = 0; i < methods.size(); i++) {
+        Method m = methods.get(i);
+        byte[] signature = m.toString().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(signature.length);
+        out.write(signature);
+      }
+      Map<Method, Map<Statement, Integer>> statementIndices = Maps.newHashMap();
+      out.writeInt(callSites.size());
+      for (int i = 0; i < callSites.size(); i++) {
+        Statement cs = callSites.get(i);
+        Map<Statement, Integer> indices =
+            statementIndices.computeIfAbsent(cs.getMethod(), CompactCallGraph::indexStatements);
+        out.writeInt(methods.indexOf(cs.getMethod()));
+        out.writeInt(indices.get(cs));
+      }
+      out.writeInt(entryPoints.size());
+      for (Method m : entryPoints) {
+        out.writeInt(methods.indexOf(m));
+      }
+      out.writeInt(size());
+      writeInts(out, outOffsets);
+      writeInts(out, outTargets);
+      writeInts(out, inOffsets);
+      writeInts(out, inSources);
+    }
+  }
+
+  private static Map<Statement, Integer> indexStatements(Method m) {
+    Map<Statement, Integer> indices = Maps.newHashMap();
+    List<Statement> statements = m.getStatements();
+    for (int i = 0; i < statements.size(); i++) {
+      indices.put(statements.get(i), i);
+    }
+    return indices;
+  }
+
+  private static void writeInts(DataOutputStream out, IntBuffer ints) throws IOException {
+    for (int i = 0; i < ints.limit(); i++) {
+      out.writeInt(ints.get(i));
+    }
+  }
+
+  /**
+   * Memory-maps a call graph written by {@link #write(Path)}. The method resolver maps the
+   * signature of a method, as returned by its toString(), to the method of the current scene.
+   */
+  public static CompactCallGraph read(Path file, Function<String, Method> methodResolver)
+      throws IOException {
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+      throw new IOException("Not a compact call graph file: " + file);
+    }
+    Method[] methods = new Method[buffer.getInt()];
+    for (int i = 0; i < methods.length; i++) {
+      byte[] signature = new byte[buffer.getInt()];
+      buffer.get(signature);
+      String sig = new String(signature, StandardCharsets.UTF_8);
+      methods[i] = methodResolver.apply(sig);
+      if (methods[i] == null) {
+        throw new IOException("Could not resolve method " + sig);
+      }
+    }
+    Statement[] callSites = new Statement[buffer.getInt()];
+    for (int i = 0; i < callSites.length; i++) {
+      Method m = methods[buffer.getInt()];
+      callSites[i] = m.getStatements().get(buffer.getInt());
+    }
+    Set<Method> entryPoints = Sets.newHashSet();
+    int entryPointCount = buffer.getInt();
+    for (int i = 0; i < entryPointCount; i++) {
+      entryPoints.add(methods[buffer.getInt()]);
+    }
+    int edgeCount = buffer.getInt();
+    IntBuffer outOffsets = sliceInts(buffer, callSites.length + 1);
+    IntBuffer outTargets = sliceInts(buffer, edgeCount);
+    IntBuffer inOffsets = sliceInts(buffer, methods.length + 1);
+    IntBuffer inSources = sliceInts(buffer, edgeCount);
+    return new CompactCallGraph(
+        methods, callSites, entryPoints, outOffsets, outTargets, inOffsets, inSources);
+  }
+
+  private static IntBuffer sliceInts(ByteBuffer buffer, int count) {
+    ByteBuffer slice = buffer.slice();
+    slice.limit(count * Integer.BYTES);
+    buffer.position(buffer.position() + count * Integer.BYTES);
+    return slice.asIntBuffer();
+  }
+
+  /**
+   * Assigns dense ids to distinct elements. The ids are kept in an open-addressing table of ints
+   * rather than a map of boxed integers.
+   */
+  private static final class IdIndex<T> {
+    private Object[] elements;
+    private int size;
+    /** The id plus one of the element hashed to each slot, 0 for an empty slot. */
+    private int[] slots;
+
+    private IdIndex(int expectedSize) {
+      elements = new Object[Math.max(expectedSize, 1)];
+      slots = new int[Integer.highestOneBit(Math.max(2 * expectedSize, 16) - 1) << 1];
+    }
+
+    /** @return The id of the element, a new one if it has not been seen before. */
+    private int intern(T element) {
+      int slot = slotOf(element);
+      if (slots[slot] != 0) {
+        return slots[slot] - 1;
+      }
+      if (size == elements.length) {
+        elements = Arrays.copyOf(elements, 2 * size);
+      }
+      elements[size] = element;
+      slots[slot] = ++size;
+      if (2 * size > slots.length) {
+        slots = new int[2 * slots.length];
+        for (int i = 0; i < size; i++) {
+          slots[slotOf(elements[i])] = i + 1;
+        }
+      }
+      return size - 1;
+    }
+
+    /** @return The id of the element, or -1 if it has none. */
+    private int indexOf(Object element) {
+      return slots[slotOf(element)] - 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T get(int id) {
+      return (T) elements[id];
+    }
+
+    private int size() {
+      return size;
+    }
+
+    /** @return The slot holding the element, or the empty slot it would be stored in. */
+    private int slotOf(Object element) {
+      int mask = slots.length - 1;
+      int h = element.hashCode() * 0x9E3779B9;
+      int i = (h ^ (h >>> 16)) & mask;
+      while (slots[i] != 0 && !elements[slots[i] - 1].equals(element)) {
+        i = (i + 1) & mask;
+      }
+      return i;
+    }
+  }
+}
@@ -2,6 +2,7 @@ package boomerang.scene;
 
 import boomerang.scene.jimple.JimpleDeclaredMethod;
 import boomerang.scene.jimple.JimpleMethod;
+import boomerang.scene.jimple.SootHierarchy;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Sets;
 import java.util.List;
@@ -91,14 +92,13 @@ public class SootDataFlowScope {
     private Set<SootClass> excludes = Sets.newHashSet();
 
     public MapFilter() {
-      List<SootClass> mapSubClasses =
-          Scene.v().getActiveHierarchy().getImplementersOf(Scene.v().getSootClass(MAP));
+      List<SootClass> mapSubClasses = SootHierarchy.getImplementersOf(Scene.v().getSootClass(MAP));
       excludes.add(Scene.v().getSootClass(MAP));
       excludes.addAll(mapSubClasses);
       if (Scene.v().containsClass(GUAVA_MAP)) {
         SootClass c = Scene.v().getSootClass(GUAVA_MAP);
         if (c.isInterface()) {
-          excludes.addAll(Scene.v().getActiveHierarchy().getImplementersOf(c));
+          excludes.addAll(SootHierarchy.getImplementersOf(c));
         }
       }
       for (SootClass c : Scene.v().getClasses()) {
@@ -121,7 +121,7 @@ public class SootDataFlowScope {
 
     public IterableFilter() {
       List<SootClass> iterableSubClasses =
-          Scene.v().getActiveHierarchy().getImplementersOf(Scene.v().getSootClass(ITERABLE));
+          SootHierarchy.getImplementersOf(Scene.v().getSootClass(ITERABLE));
       excludes.addAll(iterableSubClasses);
       for (SootClass c : Scene.v().getClasses()) {
         if (c.hasOuterClass() && excludes.contains(c.getOuterClass())) excludes.add(c);
@@ -17,7 +17,6 @@ import wpds.interfaces.Location;
 
 public abstract class Statement implements Location {
   // Wrapper for stmt so we know the method
-  private static Statement epsilon;
   private final String rep;
   protected final Method method;
 
@@ -32,10 +31,15 @@ public abstract class Statement implements Location {
   }
 
   public static Statement epsilon() {
-    if (epsilon == null) {
-      epsilon = new EpsStatement();
-    }
-    return epsilon;
+    return EpsilonHolder.INSTANCE;
+  }
+
+  /**
+   * Creates the epsilon statement upon the first call to {@link #epsilon()}, safely for all
+   * threads.
+   */
+  private static class EpsilonHolder {
+    private static final Statement INSTANCE = new EpsStatement();
   }
 
   private static class EpsStatement extends Statement implements Empty {
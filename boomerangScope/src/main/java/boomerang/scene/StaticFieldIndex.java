@@ -0,0 +1,94 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package boomerang.scene;
+
+import com.google.common.collect.ImmutableSetMultimap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of the statements loading from and storing to each static field. Methods are added one by
+ * one as they become reachable, and each method is scanned at most once. The index may be read and
+ * extended concurrently, readers see the statements of methods added while they iterate or not.
+ */
+public class StaticFieldIndex {
+
+  private final Set<Method> indexedMethods = ConcurrentHashMap.newKeySet();
+  private final Map<Field, Set<Statement>> loads = new ConcurrentHashMap<>();
+  private final Map<Field, Set<Statement>> stores = new ConcurrentHashMap<>();
+
+  /** Creates an index of the given methods. */
+  public static StaticFieldIndex build(Collection<Method> methods) {
+    StaticFieldIndex index = new StaticFieldIndex();
+    for (Method m : methods) {
+      index.add(m);
+    }
+    return index;
+  }
+
+  /**
+   * Scans the statements of the method, unless it was added before.
+   *
+   * @return Whether the method was not indexed yet.
+   */
+  public boolean add(Method m) {
+    if (!indexedMethods.add(m)) {
+      return false;
+    }
+    for (Statement s : m.getStatements()) {
+      if (s.isStaticFieldStore()) {
+        put(stores, s.getStaticField().field(), s);
+      }
+      if (s.isStaticFieldLoad()) {
+        put(loads, s.getStaticField().field(), s);
+      }
+    }
+    return true;
+  }
+
+  private static void put(Map<Field, Set<Statement>> index, Field field, Statement s) {
+    index.computeIfAbsent(field, f -> ConcurrentHashMap.newKeySet()).add(s);
+  }
+
+  public boolean contains(Method m) {
+    return indexedMethods.contains(m);
+  }
+
+  public Collection<Statement> getLoads(Field field) {
+    return Collections.unmodifiableSet(loads.getOrDefault(field, Collections.emptySet()));
+  }
+
+  public Collection<Statement> getStores(Field field) {
+    return Collections.unmodifiableSet(stores.getOrDefault(field, Collections.emptySet()));
+  }
+
+  /** A snapshot of all loads indexed so far. */
+  public ImmutableSetMultimap<Field, Statement> getAllLoads() {
+    return snapshot(loads);
+  }
+
+  /** A snapshot of all stores indexed so far. */
+  public ImmutableSetMultimap<Field, Statement> getAllStores() {
+    return snapshot(stores);
+  }
+
+  private static ImmutableSetMultimap<Field, Statement> snapshot(Map<Field, Set<Statement>> index) {
+    ImmutableSetMultimap.Builder<Field, Statement> res = ImmutableSetMultimap.builder();
+    for (Map.Entry<Field, Set<Statement>> e : index.entrySet()) {
+      res.putAll(e.getKey(), e.getValue());
+    }
+    return res.build();
+  }
+}
@@ -56,7 +56,7 @@ public class JimpleType implements Type {
     if (targetType.getSootClass().isPhantom() || sourceType.getSootClass().isPhantom())
       return false;
     if (target instanceof AllocVal && ((AllocVal) target).getAllocVal().isNewExpr()) {
-      boolean castFails = Scene.v().getOrMakeFastHierarchy().canStoreType(targetType, sourceType);
+      boolean castFails = SootHierarchy.canStoreType(targetType, sourceType);
       return !castFails;
     }
     // TODO this line is necessary as canStoreType does not properly work for
@@ -65,8 +65,8 @@ public class JimpleType implements Type {
       return false;
     }
     boolean castFails =
-        Scene.v().getOrMakeFastHierarchy().canStoreType(targetType, sourceType)
-            || Scene.v().getOrMakeFastHierarchy().canStoreType(sourceType, targetType);
+        SootHierarchy.canStoreType(targetType, sourceType)
+            || SootHierarchy.canStoreType(sourceType, targetType);
     return !castFails;
   }
 
@@ -85,16 +85,11 @@ public class JimpleType implements Type {
 
     RefType allocatedType = (RefType) delegate;
     if (!interfaceType.isInterface()) {
-      return Scene.v().getFastHierarchy().isSubclass(allocatedType.getSootClass(), interfaceType);
+      return SootHierarchy.isSubclass(allocatedType.getSootClass(), interfaceType);
     }
-    if (Scene.v()
-        .getActiveHierarchy()
-        .getSubinterfacesOfIncluding(interfaceType)
+    if (SootHierarchy.getSubinterfacesOfIncluding(interfaceType)
         .contains(allocatedType.getSootClass())) return true;
-    return Scene.v()
-        .getActiveHierarchy()
-        .getImplementersOf(interfaceType)
-        .contains(allocatedType.getSootClass());
+    return SootHierarchy.getImplementersOf(interfaceType).contains(allocatedType.getSootClass());
   }
 
   @Override
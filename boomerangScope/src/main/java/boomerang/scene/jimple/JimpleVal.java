@@ -119,9 +119,8 @@ public class JimpleVal extends Val {
   }
 
   public boolean isThrowableAllocationType() {
-    return Scene.v()
-        .getOrMakeFastHierarchy()
-        .canStoreType(getType().getDelegate(), Scene.v().getType("java.lang.Throwable"));
+    return SootHierarchy.canStoreType(
+        getType().getDelegate(), Scene.v().getType("java.lang.Throwable"));
   }
 
   public boolean isCast() {
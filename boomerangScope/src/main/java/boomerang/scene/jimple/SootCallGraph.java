@@ -1,7 +1,15 @@
 package boomerang.scene.jimple;
 
 import boomerang.scene.CallGraph;
+import boomerang.scene.CompactCallGraph;
+import boomerang.scene.Method;
 import boomerang.scene.Statement;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import soot.Scene;
@@ -11,17 +19,47 @@ public class SootCallGraph extends CallGraph {
   Logger LOGGER = LoggerFactory.getLogger(SootCallGraph.class);
 
   public SootCallGraph() {
-    soot.jimple.toolkits.callgraph.CallGraph callGraph = Scene.v().getCallGraph();
-    for (soot.jimple.toolkits.callgraph.Edge e : callGraph) {
-      if (e.src().hasActiveBody() && e.tgt().hasActiveBody() && e.srcStmt() != null) {
-        Statement callSite = JimpleStatement.create(e.srcStmt(), JimpleMethod.of(e.src()));
-        if (callSite.containsInvokeExpr()) {
-          this.addEdge(new Edge(callSite, JimpleMethod.of(e.tgt())));
-        }
+    for (Edge e : edges()) {
+      this.addEdge(e);
+    }
+    for (Method m : entryPoints()) {
+      this.addEntryPoint(m);
+    }
+  }
+
+  /**
+   * Builds a {@link CompactCallGraph} of the Soot call graph, streaming the edges into its arrays
+   * without building a {@link SootCallGraph} first.
+   */
+  public static CompactCallGraph compact() {
+    return new CompactCallGraph(entryPoints(), edges());
+  }
+
+  private static Iterable<Edge> edges() {
+    return Iterables.filter(
+        Iterables.transform(Scene.v().getCallGraph(), SootCallGraph::toEdge), Objects::nonNull);
+  }
+
+  private static Edge toEdge(soot.jimple.toolkits.callgraph.Edge e) {
+    if (e.src().hasActiveBody() && e.tgt().hasActiveBody() && e.srcStmt() != null) {
+      Statement callSite = JimpleStatement.create(e.srcStmt(), JimpleMethod.of(e.src()));
+      if (callSite.containsInvokeExpr()) {
+        return new Edge(callSite, JimpleMethod.of(e.tgt()));
       }
     }
+    return null;
+  }
+
+  private static List<Method> entryPoints() {
+    List<Method> res = Lists.newArrayList();
     for (SootMethod m : Scene.v().getEntryPoints()) {
-      if (m.hasActiveBody()) this.addEntryPoint(JimpleMethod.of(m));
+      if (m.hasActiveBody()) res.add(JimpleMethod.of(m));
     }
+    return res;
+  }
+
+  /** Reads a {@link CompactCallGraph} and resolves its methods in the current Soot scene. */
+  public static CompactCallGraph readCompact(Path file) throws IOException {
+    return CompactCallGraph.read(file, sig -> JimpleMethod.of(Scene.v().getMethod(sig)));
   }
 }
@@ -0,0 +1,60 @@
+package boomerang.scene.jimple;
+
+import java.util.List;
+import soot.FastHierarchy;
+import soot.Hierarchy;
+import soot.Scene;
+import soot.SootClass;
+import soot.Type;
+
+/**
+ * Queries Soot's class hierarchies on behalf of concurrently running solvers. {@link Hierarchy} and
+ * {@link FastHierarchy} fill their subclass and implementer maps lazily upon the first query for a
+ * class, hence all queries to one hierarchy instance are serialized on that instance. The returned
+ * lists are not modified by Soot once computed.
+ */
+public final class SootHierarchy {
+
+  private SootHierarchy() {}
+
+  /** Builds both hierarchies, such that concurrent solvers do not race to build them. */
+  public static void prepare() {
+    Scene.v().getOrMakeFastHierarchy();
+    Scene.v().getActiveHierarchy();
+  }
+
+  public static boolean canStoreType(Type child, Type parent) {
+    FastHierarchy hierarchy = Scene.v().getOrMakeFastHierarchy();
+    synchronized (hierarchy) {
+      return hierarchy.canStoreType(child, parent);
+    }
+  }
+
+  public static boolean isSubclass(SootClass child, SootClass parent) {
+    FastHierarchy hierarchy = Scene.v().getOrMakeFastHierarchy();
+    synchronized (hierarchy) {
+      return hierarchy.isSubclass(child, parent);
+    }
+  }
+
+  public static List<SootClass> getImplementersOf(SootClass sootInterface) {
+    Hierarchy hierarchy = Scene.v().getActiveHierarchy();
+    synchronized (hierarchy) {
+      return hierarchy.getImplementersOf(sootInterface);
+    }
+  }
+
+  public static List<SootClass> getSubinterfacesOfIncluding(SootClass sootInterface) {
+    Hierarchy hierarchy = Scene.v().getActiveHierarchy();
+    synchronized (hierarchy) {
+      return hierarchy.getSubinterfacesOfIncluding(sootInterface);
+    }
+  }
+
+  public static List<SootClass> getSubclassesOfIncluding(SootClass sootClass) {
+    Hierarchy hierarchy = Scene.v().getActiveHierarchy();
+    synchronized (hierarchy) {
+      return hierarchy.getSubclassesOfIncluding(sootClass);
+    }
+  }
+}
@@ -13,16 +13,25 @@ package ideal;
 
 import boomerang.ForwardQuery;
 import boomerang.Query;
+import boomerang.QueryService;
 import boomerang.WeightedForwardQuery;
+import boomerang.callgraph.BoomerangResolver;
+import boomerang.callgraph.DispatchCache;
 import boomerang.results.ForwardBoomerangResults;
 import boomerang.scene.AnalysisScope;
 import boomerang.scene.ControlFlowGraph.Edge;
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import typestate.TransitionFunction;
@@ -36,12 +45,17 @@ public class IDEALAnalysis<W extends Weight> {
 
   protected final IDEALAnalysisDefinition<W> analysisDefinition;
   private final AnalysisScope seedFactory;
-  private int seedCount;
-  private Map<WeightedForwardQuery<W>, Stopwatch> analysisTime = new HashMap<>();
-  private Set<WeightedForwardQuery<W>> timedoutSeeds = new HashSet<>();
+  private final AtomicInteger seedCount = new AtomicInteger();
+  private Map<WeightedForwardQuery<W>, Stopwatch> analysisTime = new ConcurrentHashMap<>();
+  private Set<WeightedForwardQuery<W>> timedoutSeeds = ConcurrentHashMap.newKeySet();
+  private Map<WeightedForwardQuery<W>, Edge> errorWitnesses = new ConcurrentHashMap<>();
+  /** The dispatch targets shared by the solvers of all seeds. */
+  private final DispatchCache dispatchCache;
 
   public IDEALAnalysis(final IDEALAnalysisDefinition<W> analysisDefinition) {
     this.analysisDefinition = analysisDefinition;
+    DispatchCache shared = analysisDefinition.boomerangOptions().getDispatchCache();
+    this.dispatchCache = shared != null ? shared : new DispatchCache();
     this.seedFactory =
         new AnalysisScope(analysisDefinition.callGraph()) {
 
@@ -61,31 +75,91 @@ public class IDEALAnalysis<W extends Weight> {
     else LOGGER.info("Analysing {} seeds!", initialSeeds.size());
     for (Query s : initialSeeds) {
       if (!(s instanceof WeightedForwardQuery)) continue;
-      WeightedForwardQuery<W> seed = (WeightedForwardQuery<W>) s;
-      seedCount++;
-      LOGGER.info("Analyzing {}", seed);
-      Stopwatch watch = Stopwatch.createStarted();
-      analysisTime.put(seed, watch);
-      run(seed);
-      watch.stop();
-      LOGGER.debug(
-          "Analyzed (finished,timedout): \t ({},{}) of {} seeds",
-          (seedCount - timedoutSeeds.size()),
-          timedoutSeeds.size(),
-          initialSeeds.size());
+      analyseSeed((WeightedForwardQuery<W>) s, initialSeeds.size());
     }
   }
 
+  /**
+   * Analyses the seeds on a pool of the given number of threads, each seed is solved independently
+   * by its own {@link IDEALSeedSolver}. All seeds are computed on the same number of threads (see
+   * {@link AnalysisScope#computeSeedsInParallel(int)}), the shared scope is prepared (see {@link
+   * QueryService#prepareSharedScope(boomerang.scene.CallGraph)}) and the dispatch targets of the
+   * call sites are precomputed before the first seed is submitted. The analysis definition, in
+   * particular its weight functions and call graph, must be thread-safe. Calls to {@link
+   * IDEALResultHandler#report(WeightedForwardQuery, ForwardBoomerangResults)} are serialised unless
+   * the handler declares itself {@link IDEALResultHandler#isThreadSafe()}.
+   */
+  public void run(int parallelism) {
+    printOptions();
+
+    List<WeightedForwardQuery<W>> seeds = Lists.newArrayList();
+    for (Query s : seedFactory.computeSeedsInParallel(parallelism)) {
+      if (s instanceof WeightedForwardQuery) {
+        seeds.add((WeightedForwardQuery<W>) s);
+      }
+    }
+    if (seeds.isEmpty()) {
+      LOGGER.info("No seeds found!");
+      return;
+    }
+    LOGGER.info("Analysing {} seeds with {} threads!", seeds.size(), parallelism);
+    QueryService.prepareSharedScope(analysisDefinition.callGraph());
+    BoomerangResolver.precomputeDispatch(analysisDefinition.callGraph(), dispatchCache);
+
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+    List<Future<?>> futures = Lists.newArrayList();
+    try {
+      for (WeightedForwardQuery<W> seed : seeds) {
+        futures.add(executor.submit(() -> analyseSeed(seed, seeds.size())));
+      }
+      for (Future<?> f : futures) {
+        f.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while analysing seeds", e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException("Analysing seed failed", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void analyseSeed(WeightedForwardQuery<W> seed, int totalSeeds) {
+    int count = seedCount.incrementAndGet();
+    LOGGER.info("Analyzing {}", seed);
+    Stopwatch watch = Stopwatch.createStarted();
+    analysisTime.put(seed, watch);
+    run(seed);
+    watch.stop();
+    LOGGER.debug(
+        "Analyzed (finished,timedout): \t ({},{}) of {} seeds",
+        (count - timedoutSeeds.size()),
+        timedoutSeeds.size(),
+        totalSeeds);
+  }
+
   public ForwardBoomerangResults<W> run(ForwardQuery seed) {
-    IDEALSeedSolver<W> idealAnalysis = new IDEALSeedSolver<W>(analysisDefinition, seed);
+    IDEALSeedSolver<W> idealAnalysis =
+        new IDEALSeedSolver<W>(analysisDefinition, seed, dispatchCache);
     ForwardBoomerangResults<W> res;
     try {
       res = idealAnalysis.run();
+      if (idealAnalysis.getErrorWitness() != null) {
+        errorWitnesses.put((WeightedForwardQuery) seed, idealAnalysis.getErrorWitness());
+      }
     } catch (IDEALSeedTimeout e) {
       res = (ForwardBoomerangResults<W>) e.getLastResults();
       timedoutSeeds.add((WeightedForwardQuery) seed);
     }
-    analysisDefinition.getResultHandler().report((WeightedForwardQuery) seed, res);
+    IDEALResultHandler<W> resultHandler = analysisDefinition.getResultHandler();
+    if (resultHandler.isThreadSafe()) {
+      resultHandler.report((WeightedForwardQuery) seed, res);
+    } else {
+      synchronized (resultHandler) {
+        resultHandler.report((WeightedForwardQuery) seed, res);
+      }
+    }
     return res;
   }
 
@@ -106,4 +180,13 @@ public class IDEALAnalysis<W extends Weight> {
   public boolean isTimedout(WeightedForwardQuery<TransitionFunction> key) {
     return timedoutSeeds.contains(key);
   }
+
+  /**
+   * @return The statement at which the seed reached an error, or null if the analysis definition
+   *     does not {@link IDEALAnalysisDefinition#stopAtFirstError() stop at the first error} or the
+   *     seed reached none.
+   */
+  public Edge getErrorWitness(WeightedForwardQuery<TransitionFunction> key) {
+    return errorWitnesses.get(key);
+  }
 }
@@ -49,6 +49,35 @@ public abstract class IDEALAnalysisDefinition<W extends Weight> {
     return true;
   }
 
+  /**
+   * With an on-the-fly call graph, the value-flow phase of a seed takes the receivers of the call
+   * sites the object-flow phase resolved from a {@link boomerang.callgraph.ReceiverPointsToCache}
+   * instead of re-issuing their backward queries, unless the {@link #boomerangOptions()} supply a
+   * cache.
+   */
+  public boolean reuseReceiversBetweenPhases() {
+    return true;
+  }
+
+  /**
+   * In error-finding mode, the value-flow phase of a seed is cancelled as soon as the seed reaches
+   * a weight for which {@link #isErrorWeight(Weight)} holds. The seed then only reports partial
+   * results, see {@link IDEALSeedSolver#getErrorWitness()}.
+   */
+  public boolean stopAtFirstError() {
+    return false;
+  }
+
+  /**
+   * Declares the error weights for {@link #stopAtFirstError()}. A weight must only be declared an
+   * error if the seed cannot recover from it, such that the error is also found at the
+   * object-destructing statements of the seed. No weight is an error by default, see {@link
+   * typestate.TypeStateAnalysisDefinition} for type-state analyses.
+   */
+  public boolean isErrorWeight(W weight) {
+    return false;
+  }
+
   public String toString() {
     String str = "====== IDEal Analysis Options ======";
     // str += "\nEdge Functions:\t\t" + edgeFunctions();
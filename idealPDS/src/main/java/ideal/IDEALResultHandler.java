@@ -7,4 +7,12 @@ import wpds.impl.Weight;
 public class IDEALResultHandler<W extends Weight> {
 
   public void report(WeightedForwardQuery<W> seed, ForwardBoomerangResults<W> res) {}
+
+  /**
+   * Whether {@link #report(WeightedForwardQuery, ForwardBoomerangResults)} may be called
+   * concurrently. Otherwise, {@link IDEALAnalysis#run(int)} serialises all calls.
+   */
+  public boolean isThreadSafe() {
+    return false;
+  }
 }
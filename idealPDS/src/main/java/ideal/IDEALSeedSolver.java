@@ -12,9 +12,12 @@
 package ideal;
 
 import boomerang.BackwardQuery;
+import boomerang.CancellationToken;
 import boomerang.ForwardQuery;
 import boomerang.Query;
 import boomerang.WeightedBoomerang;
+import boomerang.callgraph.DispatchCache;
+import boomerang.callgraph.ReceiverPointsToCache;
 import boomerang.results.BackwardBoomerangResults;
 import boomerang.results.ForwardBoomerangResults;
 import boomerang.scene.ControlFlowGraph.Edge;
@@ -59,10 +62,22 @@ public class IDEALSeedSolver<W extends Weight> {
   private final W one;
   private final WeightedBoomerang<W> phase1Solver;
   private final WeightedBoomerang<W> phase2Solver;
+  /**
+   * Receivers resolved by phase 1, reused by phase 2. Phase 2 only drops flows of the seed at
+   * strong updates, hence the receivers phase 1 found are a sound over-approximation for phase 2. A
+   * hit still starts the forward solvers of the receiver's allocation sites, phase 2 needs them for
+   * its aliasing.
+   */
+  private final ReceiverPointsToCache receiverPointsToCache = new ReceiverPointsToCache();
+  /** Dispatch targets shared by both phases and, if run by an {@link IDEALAnalysis}, all seeds. */
+  private final DispatchCache dispatchCache;
+
   private final Stopwatch analysisStopwatch = Stopwatch.createUnstarted();
   private Multimap<Node<Edge, Val>, Edge> affectedStrongUpdateStmt = HashMultimap.create();
   private Set<Node<Edge, Val>> weakUpdates = Sets.newHashSet();
   private int killedRules;
+  private final CancellationToken valueFlowToken = new CancellationToken();
+  private Edge errorWitness;
 
   private final class AddIndirectFlowAtCallSite implements WPAUpdateListener<Edge, INode<Val>, W> {
     private final Edge callSite;
@@ -114,6 +129,56 @@ public class IDEALSeedSolver<W extends Weight> {
     }
   }
 
+  /**
+   * Computes the weights of the seed's call automaton relative to the seed, as {@link
+   * WeightedPAutomaton#getTransitionsToFinalWeights()} does, and cancels the value-flow phase once
+   * one of them is an error weight of the analysis definition.
+   */
+  private final class ErrorWitnessListener extends WPAStateListener<Edge, INode<Val>, W> {
+    private final W weight;
+
+    private ErrorWitnessListener(INode<Val> state, W weight) {
+      super(state);
+      this.weight = weight;
+    }
+
+    @Override
+    public void onOutTransitionAdded(
+        Transition<Edge, INode<Val>> t, W w, WeightedPAutomaton<Edge, INode<Val>, W> aut) {}
+
+    @Override
+    public void onInTransitionAdded(
+        Transition<Edge, INode<Val>> t, W w, WeightedPAutomaton<Edge, INode<Val>, W> aut) {
+      checkForErrorWitness(t, (W) weight.extendWith(w), aut);
+    }
+
+    @Override
+    public int hashCode() {
+      final int prime = 31;
+      int result = super.hashCode();
+      result = prime * result + getOuterType().hashCode();
+      result = prime * result + ((weight == null) ? 0 : weight.hashCode());
+      return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) return true;
+      if (!super.equals(obj)) return false;
+      if (getClass() != obj.getClass()) return false;
+      ErrorWitnessListener other = (ErrorWitnessListener) obj;
+      if (!getOuterType().equals(other.getOuterType())) return false;
+      if (weight == null) {
+        if (other.weight != null) return false;
+      } else if (!weight.equals(other.weight)) return false;
+      return true;
+    }
+
+    private IDEALSeedSolver getOuterType() {
+      return IDEALSeedSolver.this;
+    }
+  }
+
   private final class TriggerBackwardQuery
       extends WPAStateListener<Field, INode<Node<Edge, Val>>, W> {
 
@@ -269,7 +334,16 @@ public class IDEALSeedSolver<W extends Weight> {
   };
 
   public IDEALSeedSolver(IDEALAnalysisDefinition<W> analysisDefinition, ForwardQuery seed) {
+    this(analysisDefinition, seed, analysisDefinition.boomerangOptions().getDispatchCache());
+  }
+
+  /** @param dispatchCache The dispatch cache of both phases, a new one if null. */
+  public IDEALSeedSolver(
+      IDEALAnalysisDefinition<W> analysisDefinition,
+      ForwardQuery seed,
+      DispatchCache dispatchCache) {
     this.analysisDefinition = analysisDefinition;
+    this.dispatchCache = dispatchCache != null ? dispatchCache : new DispatchCache();
     this.seed = seed;
     this.idealWeightFunctions =
         new IDEALWeightFunctions<W>(
@@ -290,6 +364,10 @@ public class IDEALSeedSolver<W extends Weight> {
     }
     LOGGER.debug("Starting Phase 2 of IDEal");
     ForwardBoomerangResults<W> resultPhase2 = runPhase(this.phase2Solver, Phases.ValueFlow);
+    if (errorWitness != null) {
+      LOGGER.debug("Stopped Phase 2 of IDEal at error witness {}", errorWitness);
+      return resultPhase2;
+    }
     if (resultPhase2.isTimedout()) {
       if (analysisStopwatch.isRunning()) {
         analysisStopwatch.stop();
@@ -297,6 +375,7 @@ public class IDEALSeedSolver<W extends Weight> {
       throw new IDEALSeedTimeout(this, this.phase2Solver, resultPhase2);
     }
     LOGGER.debug("Killed Strong Update Rules {}", killedRules);
+    LOGGER.debug("Receivers shared between phases {}", receiverPointsToCache);
     return resultPhase2;
   }
 
@@ -328,6 +407,20 @@ public class IDEALSeedSolver<W extends Weight> {
         return new OneWeightFunctions<>(one);
       }
 
+      @Override
+      public DispatchCache getDispatchCache() {
+        return dispatchCache;
+      }
+
+      @Override
+      public ReceiverPointsToCache getReceiverPointsToCache() {
+        ReceiverPointsToCache cache = super.getReceiverPointsToCache();
+        if (cache == null && analysisDefinition.reuseReceiversBetweenPhases()) {
+          return receiverPointsToCache;
+        }
+        return cache;
+      }
+
       @Override
       public boolean preventCallRuleAdd(ForwardQuery sourceQuery, Rule<Edge, INode<Val>, W> rule) {
         if (phase.equals(Phases.ValueFlow) && sourceQuery.equals(seed)) {
@@ -369,6 +462,9 @@ public class IDEALSeedSolver<W extends Weight> {
 
     if (phase.equals(Phases.ValueFlow)) {
       registerIndirectFlowListener(boomerang.getSolvers().getOrCreate(seed));
+      if (analysisDefinition.stopAtFirstError()) {
+        registerErrorWitnessListener(boomerang.getSolvers().getOrCreate(seed));
+      }
     }
 
     idealWeightFunctions.registerListener(
@@ -381,7 +477,8 @@ public class IDEALSeedSolver<W extends Weight> {
               .getFieldAutomaton()
               .registerListener(new TriggerBackwardQuery(seedSolver, boomerang, curr));
         });
-    ForwardBoomerangResults<W> res = boomerang.solve(seed);
+    ForwardBoomerangResults<W> res =
+        boomerang.solve(seed, phase.equals(Phases.ValueFlow) ? valueFlowToken : null);
     analysisStopwatch.stop();
     if (LOGGER.isDebugEnabled()) {
       boomerang.printAllForwardCallAutomatonFlow();
@@ -408,6 +505,32 @@ public class IDEALSeedSolver<W extends Weight> {
     }
   }
 
+  private void registerErrorWitnessListener(AbstractBoomerangSolver<W> solver) {
+    solver
+        .getCallAutomaton()
+        .registerListener(
+            (t, w, aut) -> {
+              if (aut.getInitialStates().contains(t.getTarget())) {
+                checkForErrorWitness(t, w, aut);
+              }
+            });
+  }
+
+  private void checkForErrorWitness(
+      Transition<Edge, INode<Val>> t,
+      W weightFromSeed,
+      WeightedPAutomaton<Edge, INode<Val>, W> aut) {
+    if (errorWitness != null) {
+      return;
+    }
+    if (analysisDefinition.isErrorWeight(weightFromSeed)) {
+      errorWitness = t.getLabel();
+      valueFlowToken.cancel();
+    } else if (aut.isGeneratedState(t.getStart())) {
+      aut.registerListener(new ErrorWitnessListener(t.getStart(), weightFromSeed));
+    }
+  }
+
   private void registerIndirectFlowListener(AbstractBoomerangSolver<W> solver) {
     WeightedPAutomaton<Edge, INode<Val>, W> callAutomaton = solver.getCallAutomaton();
     callAutomaton.registerListener(
@@ -442,6 +565,15 @@ public class IDEALSeedSolver<W extends Weight> {
     return phase2Solver;
   }
 
+  /**
+   * @return The statement at which the seed was first found in an error weight, if the analysis
+   *     definition {@link IDEALAnalysisDefinition#stopAtFirstError() stops at the first error}, or
+   *     null otherwise. The results of a seed with an error witness are partial.
+   */
+  public Edge getErrorWitness() {
+    return errorWitness;
+  }
+
   public Stopwatch getAnalysisStopwatch() {
     return analysisStopwatch;
   }
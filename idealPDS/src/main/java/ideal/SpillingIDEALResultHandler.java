@@ -0,0 +1,344 @@
+package ideal;
+
+import boomerang.WeightedForwardQuery;
+import boomerang.results.ForwardBoomerangResults;
+import boomerang.scene.ControlFlowGraph.Edge;
+import boomerang.scene.Statement;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import typestate.TransitionFunction;
+import wpds.impl.Weight;
+
+/**
+ * Result handler that writes the compact outcome of each seed to an append-only file instead of
+ * keeping its {@link ForwardBoomerangResults}, such that the solvers of a seed can be garbage
+ * collected once it is reported. Each record holds the textual (statement, value, weight) rows of
+ * the seed, the weights at its object-destructing statements and the error sites among them. An
+ * in-memory index maps each seed to the offset of its record, it is rebuilt from the records when
+ * an existing file is reopened.
+ */
+public class SpillingIDEALResultHandler<W extends Weight> extends IDEALResultHandler<W>
+    implements Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SpillingIDEALResultHandler.class);
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final File file;
+  private final Predicate<W> isErrorWeight;
+  private final FileChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+  private final Map<String, Long> seedToOffset = Maps.newHashMap();
+  private long size;
+
+  /** Creates a handler that reports transition functions into an error state as error sites. */
+  public SpillingIDEALResultHandler(File file) throws IOException {
+    this(
+        file, w -> w instanceof TransitionFunction && ((TransitionFunction) w).reachesErrorState());
+  }
+
+  public SpillingIDEALResultHandler(File file, Predicate<W> isErrorWeight) throws IOException {
+    this.file = file;
+    this.isErrorWeight = isErrorWeight;
+    if (file.getParentFile() != null) {
+      Files.createDirectories(file.getParentFile().toPath());
+    }
+    this.channel =
+        FileChannel.open(
+            file.toPath(),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+    try {
+      this.size = channel.size();
+      rebuildIndex();
+    } catch (IOException | RuntimeException e) {
+      try {
+        channel.close();
+      } catch (IOException suppressed) {
+        e.addSuppressed(suppressed);
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public void report(WeightedForwardQuery<W> seed, ForwardBoomerangResults<W> res) {
+    // Traverse the results outside the lock, such that concurrent seeds only serialize the append.
+    List<List<String>> rows = Lists.newArrayList();
+    List<List<String>> destructingRows = Lists.newArrayList();
+    List<String> errorSites = Lists.newArrayList();
+    if (res != null) {
+      res.visitStatementValWeights(
+          (edge, val, w) -> rows.add(Arrays.asList(edge.toString(), val.toString(), w.toString())));
+      res.visitObjectDestructingStatements(
+          (edge, val, w) -> {
+            destructingRows.add(Arrays.asList(edge.toString(), val.toString(), w.toString()));
+            if (isErrorWeight.test(w)) {
+              errorSites.add(edge.toString());
+            }
+          });
+    }
+    String key = keyOf(seed);
+    byte[] record;
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      writeString(out, key);
+      out.writeBoolean(res == null || res.isTimedout());
+      writeRows(out, rows);
+      writeRows(out, destructingRows);
+      writeStrings(out, errorSites);
+      out.flush();
+      record = bytes.toByteArray();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not serialize results of " + seed, e);
+    }
+    synchronized (this) {
+      try {
+        seedToOffset.put(key, size);
+        append(record);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Could not write results of " + seed + " to " + file, e);
+      }
+    }
+  }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
+  /** @return The stored outcome of the seed, or null if no result has been reported for it. */
+  public SeedResult lookup(WeightedForwardQuery<W> seed) throws IOException {
+    return lookup(keyOf(seed));
+  }
+
+  /** Looks a result up by the key of its seed, see {@link #getSeeds()}. */
+  public synchronized SeedResult lookup(String seed) throws IOException {
+    Long offset = seedToOffset.get(seed);
+    if (offset == null) {
+      return null;
+    }
+    flush();
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(readRecord(offset)));
+    String key = readString(in);
+    boolean timedout = in.readBoolean();
+    List<List<String>> rows = readRows(in);
+    List<List<String>> destructingRows = readRows(in);
+    List<String> errorSites = readStrings(in);
+    return new SeedResult(key, timedout, rows, destructingRows, errorSites);
+  }
+
+  /** @return The keys of all seeds with a stored result. */
+  public synchronized Collection<String> getSeeds() {
+    return Collections.unmodifiableCollection(Lists.newArrayList(seedToOffset.keySet()));
+  }
+
+  public synchronized int size() {
+    return seedToOffset.size();
+  }
+
+  /** Writes all buffered records to the file. */
+  public synchronized void flush() throws IOException {
+    buffer.flip();
+    long position = size - buffer.remaining();
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+    buffer.clear();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    flush();
+    channel.close();
+    LOGGER.debug("Stored results of {} seeds in {}", seedToOffset.size(), file);
+  }
+
+  /** Appends a length-prefixed record, buffering small records. */
+  private void append(byte[] record) throws IOException {
+    if (buffer.remaining() < Integer.BYTES + record.length) {
+      flush();
+    }
+    if (buffer.remaining() < Integer.BYTES + record.length) {
+      ByteBuffer large = ByteBuffer.allocate(Integer.BYTES + record.length);
+      large.putInt(record.length).put(record).flip();
+      long position = size;
+      while (large.hasRemaining()) {
+        position += channel.write(large, position);
+      }
+    } else {
+      buffer.putInt(record.length).put(record);
+    }
+    size += Integer.BYTES + record.length;
+  }
+
+  private byte[] readRecord(long offset) throws IOException {
+    ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+    readFully(length, offset);
+    ByteBuffer record = ByteBuffer.allocate(length.getInt(0));
+    readFully(record, offset + Integer.BYTES);
+    return record.array();
+  }
+
+  private void readFully(ByteBuffer target, long position) throws IOException {
+    while (target.hasRemaining()) {
+      int read = channel.read(target, position);
+      if (read < 0) {
+        throw new EOFException("Truncated result record in " + file);
+      }
+      position += read;
+    }
+  }
+
+  private void rebuildIndex() throws IOException {
+    long offset = 0;
+    while (offset + Integer.BYTES <= size) {
+      byte[] record;
+      try {
+        record = readRecord(offset);
+      } catch (EOFException e) {
+        LOGGER.warn("Ignoring truncated result record at offset {} of {}", offset, file);
+        break;
+      }
+      String seed = readString(new DataInputStream(new ByteArrayInputStream(record)));
+      seedToOffset.put(seed, offset);
+      offset += Integer.BYTES + record.length;
+    }
+    size = offset;
+    channel.truncate(size);
+  }
+
+  /**
+   * The key of a seed is its textual representation qualified by the method and the position of its
+   * statement, such that distinct seeds that print the same are not stored under the same key.
+   */
+  private String keyOf(WeightedForwardQuery<W> seed) {
+    Edge edge = seed.cfgEdge();
+    List<Statement> statements = edge.getMethod().getStatements();
+    return seed
+        + " in "
+        + edge.getMethod()
+        + " at "
+        + statements.indexOf(edge.getStart())
+        + " -> "
+        + statements.indexOf(edge.getTarget());
+  }
+
+  private static void writeRows(DataOutputStream out, List<List<String>> rows) throws IOException {
+    out.writeInt(rows.size());
+    for (List<String> row : rows) {
+      writeStrings(out, row);
+    }
+  }
+
+  private static List<List<String>> readRows(DataInputStream in) throws IOException {
+    int size = in.readInt();
+    List<List<String>> res = Lists.newArrayListWithCapacity(size);
+    for (int i = 0; i < size; i++) {
+      res.add(readStrings(in));
+    }
+    return res;
+  }
+
+  private static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+    out.writeInt(strings.size());
+    for (String s : strings) {
+      writeString(out, s);
+    }
+  }
+
+  private static List<String> readStrings(DataInputStream in) throws IOException {
+    int size = in.readInt();
+    List<String> res = Lists.newArrayListWithCapacity(size);
+    for (int i = 0; i < size; i++) {
+      res.add(readString(in));
+    }
+    return res;
+  }
+
+  /** Writes the string as int length and UTF-8 bytes, writeUTF is limited to 64KB. */
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /** The textual, persisted outcome of a single seed. */
+  public static class SeedResult {
+    private final String seed;
+    private final boolean timedout;
+    private final List<List<String>> statementValWeights;
+    private final List<List<String>> objectDestructingStatements;
+    private final List<String> errorSites;
+
+    SeedResult(
+        String seed,
+        boolean timedout,
+        List<List<String>> statementValWeights,
+        List<List<String>> objectDestructingStatements,
+        List<String> errorSites) {
+      this.seed = seed;
+      this.timedout = timedout;
+      this.statementValWeights = statementValWeights;
+      this.objectDestructingStatements = objectDestructingStatements;
+      this.errorSites = errorSites;
+    }
+
+    public String getSeed() {
+      return seed;
+    }
+
+    public boolean isTimedout() {
+      return timedout;
+    }
+
+    /**
+     * (statement, value, weight) rows reached by the seed, see {@link
+     * ForwardBoomerangResults#asStatementValWeightTable()}.
+     */
+    public List<List<String>> getStatementValWeights() {
+      return statementValWeights;
+    }
+
+    /**
+     * (statement, value, weight) rows at which the seed is last used, see {@link
+     * ForwardBoomerangResults#getObjectDestructingStatements()}.
+     */
+    public List<List<String>> getObjectDestructingStatements() {
+      return objectDestructingStatements;
+    }
+
+    /** Object-destructing statements at which the weight of the seed is an error. */
+    public List<String> getErrorSites() {
+      return errorSites;
+    }
+  }
+}
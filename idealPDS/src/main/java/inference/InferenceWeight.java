@@ -21,8 +21,8 @@ public class InferenceWeight extends Weight {
 
   private final Set<Method> invokedMethods;
   private final String rep;
-  private static InferenceWeight one;
-  private static InferenceWeight zero;
+  private static final InferenceWeight one = new InferenceWeight("ONE");
+  private static final InferenceWeight zero = new InferenceWeight("ZERO");
 
   private InferenceWeight(String rep) {
     this.rep = rep;
@@ -59,12 +59,10 @@ public class InferenceWeight extends Weight {
   }
 
   public static InferenceWeight one() {
-    if (one == null) one = new InferenceWeight("ONE");
     return one;
   }
 
   public static InferenceWeight zero() {
-    if (zero == null) zero = new InferenceWeight("ZERO");
     return zero;
   }
 
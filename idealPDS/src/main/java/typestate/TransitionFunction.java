@@ -12,46 +12,129 @@
 package typestate;
 
 import boomerang.scene.ControlFlowGraph.Edge;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
 import typestate.finiteautomata.ITransition;
+import typestate.finiteautomata.State;
 import typestate.finiteautomata.Transition;
 import wpds.impl.Weight;
 
+/**
+ * Relation between the states of a type-state machine. The relation is stored as a boolean matrix
+ * over interned state ids, one bit set per row, such that extending two functions is a bit-matrix
+ * multiplication and combining them a bitwise or. The set of state-change statements is immutable
+ * and shared with the operands whenever possible.
+ */
 public class TransitionFunction extends Weight {
 
-  private final Set<ITransition> value;
+  private static final Map<State, Integer> stateToId = new ConcurrentHashMap<>();
+  private static final List<State> idToState = new CopyOnWriteArrayList<>();
+  private static final long[][] NO_ROWS = new long[0][];
+
+  /** rows[from] holds a bit for each state reachable from the state with id from, or is null. */
+  private final long[][] rows;
+
+  /** Whether the relation contains {@link Transition#identity()}. */
+  private final boolean identity;
 
   private final String rep;
 
-  private static TransitionFunction one;
+  private static final TransitionFunction one = new TransitionFunction("ONE");
+
+  private static final TransitionFunction zero = new TransitionFunction("ZERO");
 
-  private static TransitionFunction zero;
+  private final Set<Edge> stateChangeStatements;
 
-  private Set<Edge> stateChangeStatements;
+  private int hashCode;
 
   public TransitionFunction(Set<? extends ITransition> trans, Set<Edge> stateChangeStatements) {
-    this.stateChangeStatements = stateChangeStatements;
-    this.value = new HashSet<>(trans);
+    long[][] rows = NO_ROWS;
+    boolean identity = false;
+    for (ITransition t : trans) {
+      if (t.equals(Transition.identity())) {
+        identity = true;
+        continue;
+      }
+      int from = idOf(t.from());
+      int to = idOf(t.to());
+      if (from >= rows.length) {
+        rows = Arrays.copyOf(rows, from + 1);
+      }
+      rows[from] = set(rows[from], to);
+    }
+    this.rows = rows;
+    this.identity = identity;
+    this.stateChangeStatements = ImmutableSet.copyOf(stateChangeStatements);
     this.rep = null;
   }
 
   public TransitionFunction(ITransition trans, Set<Edge> stateChangeStatements) {
-    this(new HashSet<>(Collections.singleton(trans)), stateChangeStatements);
+    this(Collections.singleton(trans), stateChangeStatements);
   }
 
   private TransitionFunction(String rep) {
-    this.value = Sets.newHashSet();
+    this.rows = NO_ROWS;
+    this.identity = false;
     this.rep = rep;
-    this.stateChangeStatements = Sets.newHashSet();
+    this.stateChangeStatements = ImmutableSet.of();
+  }
+
+  private TransitionFunction(long[][] rows, boolean identity, Set<Edge> stateChangeStatements) {
+    this.rows = rows;
+    this.identity = identity;
+    this.stateChangeStatements = stateChangeStatements;
+    this.rep = null;
   }
 
   public Collection<ITransition> values() {
-    return Lists.newArrayList(value);
+    List<ITransition> res = Lists.newArrayList();
+    if (identity) {
+      res.add(Transition.identity());
+    }
+    for (int from = 0; from < rows.length; from++) {
+      long[] row = rows[from];
+      if (row == null) {
+        continue;
+      }
+      for (int w = 0; w < row.length; w++) {
+        for (long bits = row[w]; bits != 0; bits &= bits - 1) {
+          int to = w * Long.SIZE + Long.numberOfTrailingZeros(bits);
+          res.add(new Transition(idToState.get(from), idToState.get(to)));
+        }
+      }
+    }
+    return res;
+  }
+
+  /** @return Whether the relation contains a transition into an error state. */
+  public boolean reachesErrorState() {
+    return reachesState(State::isErrorState);
+  }
+
+  /** @return Whether the relation contains a transition into a state that satisfies the filter. */
+  public boolean reachesState(Predicate<State> filter) {
+    for (long[] row : rows) {
+      if (row == null) {
+        continue;
+      }
+      for (int w = 0; w < row.length; w++) {
+        for (long bits = row[w]; bits != 0; bits &= bits - 1) {
+          if (filter.test(idToState.get(w * Long.SIZE + Long.numberOfTrailingZeros(bits)))) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
   }
 
   public Set<Edge> getLastStateChangeStatements() {
@@ -66,24 +149,25 @@ public class TransitionFunction extends Weight {
       return zero();
     }
     TransitionFunction func = (TransitionFunction) other;
-    Set<ITransition> otherTransitions = func.value;
-    Set<ITransition> ress = new HashSet<>();
-    Set<Edge> newStateChangeStatements = new HashSet<>();
-    for (ITransition first : value) {
-      for (ITransition second : otherTransitions) {
-        if (second.equals(Transition.identity())) {
-          ress.add(first);
-          newStateChangeStatements.addAll(stateChangeStatements);
-        } else if (first.equals(Transition.identity())) {
-          ress.add(second);
-          newStateChangeStatements.addAll(func.stateChangeStatements);
-        } else if (first.to().equals(second.from())) {
-          ress.add(new Transition(first.from(), second.to()));
-          newStateChangeStatements.addAll(func.stateChangeStatements);
-        }
-      }
+    // A transition followed by the identity stays unchanged and keeps its statements, every other
+    // pair of transitions that is part of the result records the statements of the second one.
+    long[][] res = multiply(rows, func.rows);
+    boolean otherStatements = !isEmpty(res);
+    if (func.identity) {
+      res = or(res, rows);
+    }
+    if (identity) {
+      res = or(res, func.rows);
+      otherStatements |= !isEmpty(func.rows);
+    }
+    Set<Edge> newStateChangeStatements = ImmutableSet.of();
+    if (func.identity && (identity || !isEmpty(rows))) {
+      newStateChangeStatements = stateChangeStatements;
     }
-    return new TransitionFunction(ress, newStateChangeStatements);
+    if (otherStatements) {
+      newStateChangeStatements = union(newStateChangeStatements, func.stateChangeStatements);
+    }
+    return new TransitionFunction(res, identity && func.identity, newStateChangeStatements);
   }
 
   @Override
@@ -96,45 +180,178 @@ public class TransitionFunction extends Weight {
     }
     TransitionFunction func = (TransitionFunction) other;
     if (other.equals(one()) || this.equals(one())) {
-      Set<ITransition> transitions = new HashSet<>((other.equals(one()) ? value : func.value));
-      Set<ITransition> idTransitions = Sets.newHashSet();
-      for (ITransition t : transitions) {
-        idTransitions.add(new Transition(t.from(), t.from()));
+      TransitionFunction nonOne = other.equals(one()) ? this : func;
+      // Adds the transition from each source state to itself.
+      long[][] transitions = nonOne.rows.clone();
+      for (int from = 0; from < transitions.length; from++) {
+        if (transitions[from] != null && !isEmpty(transitions[from])) {
+          transitions[from] = set(transitions[from].clone(), from);
+        }
       }
-      transitions.addAll(idTransitions);
-      return new TransitionFunction(
-          transitions,
-          Sets.newHashSet(
-              (other.equals(one()) ? stateChangeStatements : func.stateChangeStatements)));
-    }
-    Set<ITransition> transitions = new HashSet<>(func.value);
-    transitions.addAll(value);
-    HashSet<Edge> newStateChangeStmts = Sets.newHashSet(stateChangeStatements);
-    newStateChangeStmts.addAll(func.stateChangeStatements);
-    return new TransitionFunction(transitions, newStateChangeStmts);
+      return new TransitionFunction(transitions, nonOne.identity, nonOne.stateChangeStatements);
+    }
+    return new TransitionFunction(
+        or(rows, func.rows),
+        identity || func.identity,
+        union(stateChangeStatements, func.stateChangeStatements));
   };
 
   public static TransitionFunction one() {
-    if (one == null) one = new TransitionFunction("ONE");
     return one;
   }
 
   public static TransitionFunction zero() {
-    if (zero == null) zero = new TransitionFunction("ZERO");
     return zero;
   }
 
+  private static int idOf(State state) {
+    Integer id = stateToId.get(state);
+    if (id != null) {
+      return id;
+    }
+    synchronized (idToState) {
+      return stateToId.computeIfAbsent(
+          state,
+          s -> {
+            idToState.add(s);
+            return idToState.size() - 1;
+          });
+    }
+  }
+
+  /** Sets the bit of column in row, allocating a (larger) row if required. */
+  private static long[] set(long[] row, int column) {
+    int word = column / Long.SIZE;
+    if (row == null) {
+      row = new long[word + 1];
+    } else if (word >= row.length) {
+      row = Arrays.copyOf(row, word + 1);
+    }
+    row[word] |= 1L << column;
+    return row;
+  }
+
+  private static long[][] multiply(long[][] left, long[][] right) {
+    long[][] res = new long[left.length][];
+    for (int from = 0; from < left.length; from++) {
+      long[] row = left[from];
+      if (row == null) {
+        continue;
+      }
+      for (int w = 0; w < row.length; w++) {
+        for (long bits = row[w]; bits != 0; bits &= bits - 1) {
+          int via = w * Long.SIZE + Long.numberOfTrailingZeros(bits);
+          if (via < right.length && right[via] != null) {
+            res[from] = orRow(res[from], right[via]);
+          }
+        }
+      }
+    }
+    return res;
+  }
+
+  private static long[][] or(long[][] left, long[][] right) {
+    long[][] res = Arrays.copyOf(left, Math.max(left.length, right.length));
+    for (int from = 0; from < right.length; from++) {
+      if (right[from] != null) {
+        res[from] = res[from] == null ? right[from] : orRow(res[from].clone(), right[from]);
+      }
+    }
+    return res;
+  }
+
+  /** Ors other into row, which may be modified in place. */
+  private static long[] orRow(long[] row, long[] other) {
+    if (row == null) {
+      return other.clone();
+    }
+    if (row.length < other.length) {
+      row = Arrays.copyOf(row, other.length);
+    }
+    for (int w = 0; w < other.length; w++) {
+      row[w] |= other[w];
+    }
+    return row;
+  }
+
+  private static boolean isEmpty(long[][] rows) {
+    for (long[] row : rows) {
+      if (row != null && !isEmpty(row)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isEmpty(long[] row) {
+    for (long word : row) {
+      if (word != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static long word(long[][] rows, int from, int w) {
+    if (from >= rows.length || rows[from] == null || w >= rows[from].length) {
+      return 0;
+    }
+    return rows[from][w];
+  }
+
+  private static boolean sameRelation(long[][] left, long[][] right) {
+    for (int from = 0; from < Math.max(left.length, right.length); from++) {
+      int words =
+          Math.max(
+              from < left.length && left[from] != null ? left[from].length : 0,
+              from < right.length && right[from] != null ? right[from].length : 0);
+      for (int w = 0; w < words; w++) {
+        if (word(left, from, w) != word(right, from, w)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static Set<Edge> union(Set<Edge> left, Set<Edge> right) {
+    if (left.containsAll(right)) {
+      return left;
+    }
+    if (right.containsAll(left)) {
+      return right;
+    }
+    return ImmutableSet.<Edge>builder().addAll(left).addAll(right).build();
+  }
+
   public String toString() {
     if (this.rep != null) return this.rep;
-    return "Weight: " + value.toString() + "";
+    return "Weight: " + values().toString() + "";
   }
 
   @Override
   public int hashCode() {
+    if (hashCode != 0) {
+      return hashCode;
+    }
     final int prime = 31;
     int result = 1;
     result = prime * result + ((rep == null) ? 0 : rep.hashCode());
-    result = prime * result + ((value == null) ? 0 : value.hashCode());
+    result = prime * result + (identity ? 1231 : 1237);
+    int relation = 0;
+    for (int from = 0; from < rows.length; from++) {
+      long[] row = rows[from];
+      if (row == null) {
+        continue;
+      }
+      for (int w = 0; w < row.length; w++) {
+        if (row[w] != 0) {
+          relation += (from * prime + w) * prime + Long.hashCode(row[w]);
+        }
+      }
+    }
+    result = prime * result + relation;
+    hashCode = result;
     return result;
   }
 
@@ -144,12 +361,11 @@ public class TransitionFunction extends Weight {
     if (obj == null) return false;
     if (getClass() != obj.getClass()) return false;
     TransitionFunction other = (TransitionFunction) obj;
+    if (hashCode() != other.hashCode()) return false;
     if (rep == null) {
       if (other.rep != null) return false;
     } else if (!rep.equals(other.rep)) return false;
-    if (value == null) {
-      if (other.value != null) return false;
-    } else if (!value.equals(other.value)) return false;
-    return true;
+    if (identity != other.identity) return false;
+    return sameRelation(rows, other.rows);
   }
 }
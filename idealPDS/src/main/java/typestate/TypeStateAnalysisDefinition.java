@@ -0,0 +1,48 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package typestate;
+
+import boomerang.WeightedForwardQuery;
+import boomerang.scene.ControlFlowGraph.Edge;
+import boomerang.scene.Val;
+import ideal.IDEALAnalysisDefinition;
+import java.util.Collection;
+import sync.pds.solver.WeightFunctions;
+import typestate.finiteautomata.TypeStateMachineWeightFunctions;
+
+/**
+ * Analysis definition of a type-state analysis. Seeds and weights are taken from the state machine.
+ * In error-finding mode, a seed stops once it reaches an absorbing error state of the state
+ * machine, see {@link TypeStateMachineWeightFunctions#isAbsorbing(typestate.finiteautomata.State)}.
+ * Error states an object can leave again, such as an opened file that is closed later, only count
+ * at the object-destructing statements and never stop a seed early.
+ */
+public abstract class TypeStateAnalysisDefinition
+    extends IDEALAnalysisDefinition<TransitionFunction> {
+
+  public abstract TypeStateMachineWeightFunctions stateMachine();
+
+  @Override
+  public Collection<WeightedForwardQuery<TransitionFunction>> generate(Edge stmt) {
+    return stateMachine().generateSeed(stmt);
+  }
+
+  @Override
+  public WeightFunctions<Edge, Val, Edge, TransitionFunction> weightFunctions() {
+    return stateMachine();
+  }
+
+  @Override
+  public boolean isErrorWeight(TransitionFunction weight) {
+    return stateMachine().reachesAbsorbingErrorState(weight);
+  }
+}
@@ -21,6 +21,7 @@ public class MatcherTransition extends Transition {
   private Type type;
   private Parameter param;
   private String methodMatcher;
+  private Pattern methodPattern;
   private boolean negate = false;
 
   public enum Type {
@@ -39,6 +40,7 @@ public class MatcherTransition extends Transition {
   public MatcherTransition(State from, String methodMatcher, Parameter param, State to, Type type) {
     super(from, to);
     this.methodMatcher = methodMatcher;
+    this.methodPattern = Pattern.compile(methodMatcher);
     this.type = type;
     this.param = param;
   }
@@ -47,19 +49,25 @@ public class MatcherTransition extends Transition {
       State from, String methodMatcher, boolean negate, Parameter param, State to, Type type) {
     super(from, to);
     this.methodMatcher = methodMatcher;
+    this.methodPattern = Pattern.compile(methodMatcher);
     this.negate = negate;
     this.type = type;
     this.param = param;
   }
 
   public boolean matches(DeclaredMethod declaredMethod) {
-    boolean matches = Pattern.matches(methodMatcher, declaredMethod.getSubSignature());
+    boolean matches = methodPattern.matcher(declaredMethod.getSubSignature()).matches();
     if (matches)
       LOGGER.debug(
           "Found matching transition at call site {} for {}", declaredMethod.getInvokeExpr(), this);
     return negate ? !matches : matches;
   }
 
+  /** @return A transition from the state to itself that matches the same calls as this one. */
+  MatcherTransition loop(State state) {
+    return new MatcherTransition(state, methodMatcher, negate, param, state, type);
+  }
+
   public Type getType() {
     return type;
   }
@@ -69,10 +69,9 @@ public class Transition implements ITransition {
     return "" + from + " -> " + to;
   }
 
-  private static Transition instance;
+  private static final Transition instance = new Transition("ID -> ID");
 
   public static Transition identity() {
-    if (instance == null) instance = new Transition("ID -> ID");
     return instance;
   }
 }
@@ -14,18 +14,22 @@ package typestate.finiteautomata;
 import boomerang.WeightedForwardQuery;
 import boomerang.scene.AllocVal;
 import boomerang.scene.ControlFlowGraph.Edge;
+import boomerang.scene.DeclaredMethod;
 import boomerang.scene.InvokeExpr;
 import boomerang.scene.Statement;
 import boomerang.scene.Val;
+import boomerang.scene.jimple.SootHierarchy;
 import com.google.common.base.Joiner;
-import com.google.common.collect.Collections2;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import soot.Scene;
@@ -42,8 +46,54 @@ public abstract class TypeStateMachineWeightFunctions
       LoggerFactory.getLogger(TypeStateMachineWeightFunctions.class);
   public Set<MatcherTransition> transition = new HashSet<>();
 
+  /**
+   * Matching transitions per invoked method, keyed by its declaring class and sub-signature. One
+   * index serves {@link Type#OnCall}, the other {@link Type#OnCallToReturn}, such that the matchers
+   * are evaluated once per invoked method instead of at every call site.
+   */
+  private final Map<String, List<MatcherTransition>> onCallIndex = new ConcurrentHashMap<>();
+
+  private final Map<String, List<MatcherTransition>> onCallToReturnIndex =
+      new ConcurrentHashMap<>();
+
+  /** Whether a state is absorbing, see {@link #isAbsorbing(State)}. */
+  private final Map<State, Boolean> absorbing = new ConcurrentHashMap<>();
+
   public void addTransition(MatcherTransition trans) {
     transition.add(trans);
+    onCallIndex.clear();
+    onCallToReturnIndex.clear();
+    absorbing.clear();
+  }
+
+  /**
+   * A state is absorbing if each call that matches a transition of the state machine keeps an
+   * object in that state, i.e., the state machine has a loop on the state for every matcher. Once a
+   * seed reaches an absorbing state, the state persists up to its object-destructing statements.
+   */
+  public boolean isAbsorbing(State state) {
+    return absorbing.computeIfAbsent(
+        state,
+        s -> {
+          for (MatcherTransition trans : transition) {
+            if (trans.from().equals(s) && !trans.to().equals(s)) {
+              return false;
+            }
+            if (!transition.contains(trans.loop(s))) {
+              return false;
+            }
+          }
+          return true;
+        });
+  }
+
+  /**
+   * @return Whether the weight moves an object into an absorbing error state. Such an error is
+   *     reported at the object-destructing statements of the object, see {@link
+   *     #isAbsorbing(State)}.
+   */
+  public boolean reachesAbsorbingErrorState(TransitionFunction weight) {
+    return weight.reachesState(s -> s.isErrorState() && isAbsorbing(s));
   }
 
   @Override
@@ -57,16 +107,7 @@ public abstract class TypeStateMachineWeightFunctions
   }
 
   public TransitionFunction push(Node<Edge, Val> curr, Node<Edge, Val> succ, Edge push) {
-    return getMatchingTransitions(
-        succ.stmt(),
-        succ.fact(),
-        push,
-        Collections2.filter(
-            transition,
-            input ->
-                input.getType().equals(Type.OnCall)
-                    || input.getType().equals(Type.OnCallOrOnCallToReturn)),
-        Type.OnCall);
+    return getMatchingTransitions(succ.stmt(), succ.fact(), push, Type.OnCall);
   }
 
   @Override
@@ -82,13 +123,7 @@ public abstract class TypeStateMachineWeightFunctions
     Set<Transition> res = Sets.newHashSet();
     if (invokeExpr.isInstanceInvokeExpr()) {
       if (invokeExpr.getBase().equals(succ.fact())) {
-        for (MatcherTransition trans : transition) {
-          if (trans.matches(invokeExpr.getMethod())
-              && (trans.getType().equals(Type.OnCallToReturn)
-                  || trans.getType().equals(Type.OnCallOrOnCallToReturn))) {
-            res.add(trans);
-          }
-        }
+        res.addAll(matchingTransitions(invokeExpr.getMethod(), Type.OnCallToReturn));
       }
     }
     if (!res.isEmpty()) {
@@ -100,26 +135,21 @@ public abstract class TypeStateMachineWeightFunctions
   }
 
   private TransitionFunction getMatchingTransitions(
-      Edge edge,
-      Val node,
-      Edge transitionEdge,
-      Collection<MatcherTransition> filteredTrans,
-      Type type) {
+      Edge edge, Val node, Edge transitionEdge, Type type) {
     Statement transitionStmt = transitionEdge.getStart();
     Set<ITransition> res = new HashSet<>();
-    if (filteredTrans.isEmpty() || !transitionStmt.containsInvokeExpr()) return getOne();
-    for (MatcherTransition trans : filteredTrans) {
-      if (trans.matches(transitionStmt.getInvokeExpr().getMethod())) {
-        LOGGER.trace(
-            "Found potential transition at {}, now checking if parameter match", transitionStmt);
-        Parameter param = trans.getParam();
-        if (param.equals(Parameter.This) && edge.getMethod().isThisLocal(node))
-          res.add(new Transition(trans.from(), trans.to()));
-        if (param.equals(Parameter.Param1) && edge.getMethod().getParameterLocal(0).equals(node))
-          res.add(new Transition(trans.from(), trans.to()));
-        if (param.equals(Parameter.Param2) && edge.getMethod().getParameterLocal(1).equals(node))
-          res.add(new Transition(trans.from(), trans.to()));
-      }
+    if (!transitionStmt.containsInvokeExpr()) return getOne();
+    for (MatcherTransition trans :
+        matchingTransitions(transitionStmt.getInvokeExpr().getMethod(), type)) {
+      LOGGER.trace(
+          "Found potential transition at {}, now checking if parameter match", transitionStmt);
+      Parameter param = trans.getParam();
+      if (param.equals(Parameter.This) && edge.getMethod().isThisLocal(node))
+        res.add(new Transition(trans.from(), trans.to()));
+      if (param.equals(Parameter.Param1) && edge.getMethod().getParameterLocal(0).equals(node))
+        res.add(new Transition(trans.from(), trans.to()));
+      if (param.equals(Parameter.Param2) && edge.getMethod().getParameterLocal(1).equals(node))
+        res.add(new Transition(trans.from(), trans.to()));
     }
 
     if (res.isEmpty()) return getOne();
@@ -128,9 +158,34 @@ public abstract class TypeStateMachineWeightFunctions
     return new TransitionFunction(res, Collections.singleton(transitionEdge));
   }
 
+  /**
+   * @return The transitions of the given type, or of type {@link Type#OnCallOrOnCallToReturn}, that
+   *     match the invoked method. Type is either {@link Type#OnCall} or {@link
+   *     Type#OnCallToReturn}.
+   */
+  private List<MatcherTransition> matchingTransitions(DeclaredMethod method, Type type) {
+    Map<String, List<MatcherTransition>> index =
+        type.equals(Type.OnCall) ? onCallIndex : onCallToReturnIndex;
+    String key =
+        method.getDeclaringClass().getFullyQualifiedName() + ": " + method.getSubSignature();
+    return index.computeIfAbsent(
+        key,
+        k -> {
+          List<MatcherTransition> res = Lists.newArrayList();
+          for (MatcherTransition trans : transition) {
+            if ((trans.getType().equals(type)
+                    || trans.getType().equals(Type.OnCallOrOnCallToReturn))
+                && trans.matches(method)) {
+              res.add(trans);
+            }
+          }
+          return res.isEmpty() ? Collections.emptyList() : res;
+        });
+  }
+
   protected List<SootClass> getSubclassesOf(String className) {
     SootClass sootClass = Scene.v().getSootClass(className);
-    List<SootClass> list = Scene.v().getActiveHierarchy().getSubclassesOfIncluding(sootClass);
+    List<SootClass> list = SootHierarchy.getSubclassesOfIncluding(sootClass);
     List<SootClass> res = new LinkedList<>();
     for (SootClass c : list) {
       res.add(c);
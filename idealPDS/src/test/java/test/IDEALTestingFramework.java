@@ -18,7 +18,6 @@ import boomerang.debugger.Debugger;
 import boomerang.results.ForwardBoomerangResults;
 import boomerang.scene.CallGraph;
 import boomerang.scene.CallGraph.Edge;
-import boomerang.scene.ControlFlowGraph;
 import boomerang.scene.DataFlowScope;
 import boomerang.scene.Method;
 import boomerang.scene.SootDataFlowScope;
@@ -29,11 +28,9 @@ import boomerang.scene.jimple.JimpleMethod;
 import boomerang.scene.jimple.SootCallGraph;
 import com.google.common.collect.Lists;
 import ideal.IDEALAnalysis;
-import ideal.IDEALAnalysisDefinition;
 import ideal.IDEALResultHandler;
 import ideal.IDEALSeedSolver;
 import ideal.StoreIDEALResultHandler;
-import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -41,11 +38,11 @@ import java.util.Map.Entry;
 import java.util.Set;
 import soot.Scene;
 import soot.SceneTransformer;
-import sync.pds.solver.WeightFunctions;
 import test.ExpectedResults.InternalState;
 import test.core.selfrunning.AbstractTestingFramework;
 import test.core.selfrunning.ImprecisionException;
 import typestate.TransitionFunction;
+import typestate.TypeStateAnalysisDefinition;
 import typestate.finiteautomata.TypeStateMachineWeightFunctions;
 
 public abstract class IDEALTestingFramework extends AbstractTestingFramework {
@@ -58,68 +55,90 @@ public abstract class IDEALTestingFramework extends AbstractTestingFramework {
   protected abstract TypeStateMachineWeightFunctions getStateMachine();
 
   protected IDEALAnalysis<TransitionFunction> createAnalysis() {
-    return new IDEALAnalysis<>(
-        new IDEALAnalysisDefinition<TransitionFunction>() {
+    return new IDEALAnalysis<>(createAnalysisDefinition());
+  }
 
-          @Override
-          public Collection<WeightedForwardQuery<TransitionFunction>> generate(
-              ControlFlowGraph.Edge stmt) {
-            return IDEALTestingFramework.this.getStateMachine().generateSeed(stmt);
-          }
+  protected TypeStateAnalysisDefinition createAnalysisDefinition() {
+    return new TypeStateAnalysisDefinition() {
+      private final TypeStateMachineWeightFunctions stateMachine = getStateMachine();
 
-          @Override
-          public WeightFunctions<
-                  ControlFlowGraph.Edge, Val, ControlFlowGraph.Edge, TransitionFunction>
-              weightFunctions() {
-            return IDEALTestingFramework.this.getStateMachine();
-          }
+      @Override
+      public TypeStateMachineWeightFunctions stateMachine() {
+        return stateMachine;
+      }
 
-          @Override
-          public Debugger<TransitionFunction> debugger(IDEALSeedSolver<TransitionFunction> solver) {
-            return
-            /**
-             * VISUALIZATION ? new IDEVizDebugger<>(new File(
-             * ideVizFile.getAbsolutePath().replace(".json", " " + solver.getSeed() + ".json")),
-             * callGraph) :
-             */
-            new Debugger<>();
-          }
+      @Override
+      public boolean stopAtFirstError() {
+        return IDEALTestingFramework.this.stopAtFirstError();
+      }
 
-          @Override
-          public IDEALResultHandler<TransitionFunction> getResultHandler() {
-            return resultHandler;
-          }
+      @Override
+      public boolean reuseReceiversBetweenPhases() {
+        return IDEALTestingFramework.this.reuseReceiversBetweenPhases();
+      }
 
-          @Override
-          public BoomerangOptions boomerangOptions() {
-            return new DefaultBoomerangOptions() {
-
-              @Override
-              public boolean onTheFlyCallGraph() {
-                return false;
-              }
-
-              public StaticFieldStrategy getStaticFieldStrategy() {
-                return StaticFieldStrategy.FLOW_SENSITIVE;
-              };
-
-              @Override
-              public boolean allowMultipleQueries() {
-                return true;
-              }
-            };
-          }
+      @Override
+      public Debugger<TransitionFunction> debugger(IDEALSeedSolver<TransitionFunction> solver) {
+        return
+        /**
+         * VISUALIZATION ? new IDEVizDebugger<>(new File(
+         * ideVizFile.getAbsolutePath().replace(".json", " " + solver.getSeed() + ".json")),
+         * callGraph) :
+         */
+        new Debugger<>();
+      }
+
+      @Override
+      public IDEALResultHandler<TransitionFunction> getResultHandler() {
+        return IDEALTestingFramework.this.getResultHandler();
+      }
+
+      @Override
+      public BoomerangOptions boomerangOptions() {
+        return new DefaultBoomerangOptions() {
 
           @Override
-          public CallGraph callGraph() {
-            return callGraph;
+          public boolean onTheFlyCallGraph() {
+            return IDEALTestingFramework.this.onTheFlyCallGraph();
           }
 
+          public StaticFieldStrategy getStaticFieldStrategy() {
+            return StaticFieldStrategy.FLOW_SENSITIVE;
+          };
+
           @Override
-          protected DataFlowScope getDataFlowScope() {
-            return dataFlowScope;
+          public boolean allowMultipleQueries() {
+            return true;
           }
-        });
+        };
+      }
+
+      @Override
+      public CallGraph callGraph() {
+        return callGraph;
+      }
+
+      @Override
+      protected DataFlowScope getDataFlowScope() {
+        return dataFlowScope;
+      }
+    };
+  }
+
+  protected boolean onTheFlyCallGraph() {
+    return false;
+  }
+
+  protected boolean stopAtFirstError() {
+    return false;
+  }
+
+  protected boolean reuseReceiversBetweenPhases() {
+    return true;
+  }
+
+  protected IDEALResultHandler<TransitionFunction> getResultHandler() {
+    return resultHandler;
   }
 
   @Override
@@ -0,0 +1,86 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package typestate.tests;
+
+import boomerang.WeightedForwardQuery;
+import boomerang.results.ForwardBoomerangResults;
+import ideal.IDEALAnalysis;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import test.IDEALTestingFramework;
+import typestate.TransitionFunction;
+import typestate.finiteautomata.TypeStateMachineWeightFunctions;
+import typestate.impl.statemachines.FileMustBeClosedStateMachine;
+import typestate.test.helper.File;
+
+/**
+ * An opened file can still be closed, so its error state is not absorbing. In error-finding mode,
+ * no seed stops early and the results are the complete results of the analysis.
+ */
+public class FileMustBeClosedStopAtFirstErrorTest extends IDEALTestingFramework {
+
+  @Override
+  protected boolean stopAtFirstError() {
+    return true;
+  }
+
+  @Override
+  protected Map<
+          WeightedForwardQuery<TransitionFunction>, ForwardBoomerangResults<TransitionFunction>>
+      executeAnalysis() {
+    IDEALAnalysis<TransitionFunction> analysis = createAnalysis();
+    analysis.run();
+    Map<WeightedForwardQuery<TransitionFunction>, ForwardBoomerangResults<TransitionFunction>>
+        results = resultHandler.getResults();
+    Assert.assertFalse(results.isEmpty());
+    for (WeightedForwardQuery<TransitionFunction> seed : results.keySet()) {
+      Assert.assertNull(analysis.getErrorWitness(seed));
+      Assert.assertFalse(results.get(seed).isTimedout());
+    }
+    return results;
+  }
+
+  @Test
+  public void closed() {
+    File file = new File();
+    file.open();
+    mustBeInErrorState(file);
+    file.close();
+    mustBeInAcceptingState(file);
+  }
+
+  @Test
+  public void closedInCallee() {
+    File file = new File();
+    file.open();
+    mustBeInErrorState(file);
+    close(file);
+    mustBeInAcceptingState(file);
+  }
+
+  @Test
+  public void notClosed() {
+    File file = new File();
+    file.open();
+    mustBeInErrorState(file);
+  }
+
+  private static void close(File file) {
+    file.close();
+  }
+
+  @Override
+  protected TypeStateMachineWeightFunctions getStateMachine() {
+    return new FileMustBeClosedStateMachine();
+  }
+}
@@ -0,0 +1,132 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package typestate.tests;
+
+import boomerang.Query;
+import boomerang.WeightedForwardQuery;
+import boomerang.callgraph.ReceiverPointsToCache;
+import boomerang.results.ForwardBoomerangResults;
+import com.google.common.collect.Maps;
+import ideal.IDEALSeedSolver;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import test.IDEALTestingFramework;
+import typestate.TransitionFunction;
+import typestate.finiteautomata.TypeStateMachineWeightFunctions;
+import typestate.impl.statemachines.FileMustBeClosedStateMachine;
+import typestate.test.helper.File;
+import typestate.test.helper.ObjectWithField;
+
+/**
+ * Runs the seeds through {@link IDEALSeedSolver} directly with an on-the-fly call graph, with and
+ * without reusing the receivers of phase 1 in phase 2, and checks that the reuse changes no
+ * results.
+ */
+public class IDEALSeedSolverTest extends IDEALTestingFramework {
+  private boolean reuseReceivers;
+
+  @Override
+  protected Map<
+          WeightedForwardQuery<TransitionFunction>, ForwardBoomerangResults<TransitionFunction>>
+      executeAnalysis() {
+    Map<WeightedForwardQuery<TransitionFunction>, ForwardBoomerangResults<TransitionFunction>>
+        results = Maps.newHashMap();
+    long hits = 0;
+    for (Query q : createAnalysis().computeSeeds()) {
+      WeightedForwardQuery<TransitionFunction> seed = (WeightedForwardQuery<TransitionFunction>) q;
+      reuseReceivers = false;
+      IDEALSeedSolver<TransitionFunction> unshared =
+          new IDEALSeedSolver<>(createAnalysisDefinition(), seed);
+      Assert.assertNull(unshared.getPhase2Solver().getReceiverPointsToCache());
+      ForwardBoomerangResults<TransitionFunction> expected = unshared.run();
+
+      reuseReceivers = true;
+      IDEALSeedSolver<TransitionFunction> solver =
+          new IDEALSeedSolver<>(createAnalysisDefinition(), seed);
+      ReceiverPointsToCache cache = solver.getPhase1Solver().getReceiverPointsToCache();
+      Assert.assertSame(cache, solver.getPhase2Solver().getReceiverPointsToCache());
+      ForwardBoomerangResults<TransitionFunction> res = solver.run();
+      Assert.assertEquals(expected.asStatementValWeightTable(), res.asStatementValWeightTable());
+      hits += cache.getHits();
+      results.put(seed, res);
+    }
+    Assert.assertFalse(results.isEmpty());
+    Assert.assertTrue(hits > 0);
+    return results;
+  }
+
+  @Override
+  protected boolean onTheFlyCallGraph() {
+    return true;
+  }
+
+  @Override
+  protected boolean reuseReceiversBetweenPhases() {
+    return reuseReceivers;
+  }
+
+  @Test
+  public void flowViaFieldDirect() {
+    ObjectWithField container = new ObjectWithField();
+    container.field = new File();
+    File field = container.field;
+    field.open();
+    File f2 = container.field;
+    mustBeInErrorState(f2);
+  }
+
+  @Test
+  public void closedByDispatchedCallee() {
+    File file = new File();
+    file.open();
+    Closer closer = new FileCloser();
+    if (staticallyUnknown()) {
+      closer = new OtherFileCloser();
+    }
+    closer.close(file);
+    mustBeInAcceptingState(file);
+  }
+
+  @Test
+  public void closedAlias() {
+    File file = new File();
+    File alias = file;
+    file.open();
+    alias.close();
+    mustBeInAcceptingState(file);
+  }
+
+  private interface Closer {
+    void close(File file);
+  }
+
+  private static class FileCloser implements Closer {
+    @Override
+    public void close(File file) {
+      file.close();
+    }
+  }
+
+  private static class OtherFileCloser implements Closer {
+    @Override
+    public void close(File file) {
+      File closed = file;
+      closed.close();
+    }
+  }
+
+  @Override
+  protected TypeStateMachineWeightFunctions getStateMachine() {
+    return new FileMustBeClosedStateMachine();
+  }
+}
@@ -0,0 +1,98 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package typestate.tests;
+
+import boomerang.WeightedForwardQuery;
+import boomerang.results.ForwardBoomerangResults;
+import boomerang.scene.ControlFlowGraph.Edge;
+import ideal.IDEALAnalysis;
+import java.util.Iterator;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import test.IDEALTestingFramework;
+import typestate.TransitionFunction;
+import typestate.finiteautomata.TypeStateMachineWeightFunctions;
+import typestate.impl.statemachines.HasNextStateMachine;
+
+/**
+ * The error state of {@link HasNextStateMachine} is absorbing, in error-finding mode a seed stops
+ * at the first call to next() that is not preceded by hasNext(). Tests whose name starts with
+ * "error" expect such an error witness, all others expect none.
+ */
+public class IteratorStopAtFirstErrorTest extends IDEALTestingFramework {
+
+  @Override
+  protected boolean stopAtFirstError() {
+    return true;
+  }
+
+  @Override
+  protected Map<
+          WeightedForwardQuery<TransitionFunction>, ForwardBoomerangResults<TransitionFunction>>
+      executeAnalysis() {
+    IDEALAnalysis<TransitionFunction> analysis = createAnalysis();
+    analysis.run();
+    Map<WeightedForwardQuery<TransitionFunction>, ForwardBoomerangResults<TransitionFunction>>
+        results = resultHandler.getResults();
+    Assert.assertEquals(1, results.size());
+    Edge witness = analysis.getErrorWitness(results.keySet().iterator().next());
+    if (sootTestMethod.getName().startsWith("error")) {
+      // The first call to next() moves the iterator into the error state.
+      Assert.assertNotNull(witness);
+      Assert.assertEquals("next", witness.getStart().getInvokeExpr().getMethod().getName());
+      Assert.assertEquals("hasNext", witness.getTarget().getInvokeExpr().getMethod().getName());
+    } else {
+      Assert.assertNull(witness);
+    }
+    return results;
+  }
+
+  @Test
+  public void errorNextWithoutHasNext() {
+    MyIterator<Object> iterator = new MyList<>().iterator();
+    iterator.next();
+    iterator.hasNext();
+    iterator.next();
+  }
+
+  @Test
+  public void hasNextBeforeNext() {
+    MyIterator<Object> iterator = new MyList<>().iterator();
+    iterator.hasNext();
+    iterator.next();
+    mustBeInAcceptingState(iterator);
+  }
+
+  private static class MyList<V> {
+    public MyIterator<V> iterator() {
+      return new MyIterator<V>();
+    }
+  }
+
+  private static class MyIterator<V> implements Iterator<V> {
+    @Override
+    public boolean hasNext() {
+      return false;
+    }
+
+    @Override
+    public V next() {
+      return null;
+    }
+  }
+
+  @Override
+  protected TypeStateMachineWeightFunctions getStateMachine() {
+    return new HasNextStateMachine();
+  }
+}
@@ -0,0 +1,148 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package typestate.tests;
+
+import boomerang.WeightedForwardQuery;
+import boomerang.results.ForwardBoomerangResults;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import ideal.StoreIDEALResultHandler;
+import inference.InferenceWeight;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.junit.Assert;
+import org.junit.Test;
+import test.IDEALTestingFramework;
+import typestate.TransitionFunction;
+import typestate.finiteautomata.Transition;
+import typestate.finiteautomata.TypeStateMachineWeightFunctions;
+import typestate.impl.statemachines.FileMustBeClosedStateMachine;
+import typestate.test.helper.File;
+import typestate.test.helper.ObjectWithField;
+
+/**
+ * Checks that the weight singletons are shared by all threads and that analysing the seeds on
+ * several threads yields the results of a sequential run.
+ */
+public class ParallelIDEALAnalysisTest extends IDEALTestingFramework {
+
+  @Override
+  protected Map<
+          WeightedForwardQuery<TransitionFunction>, ForwardBoomerangResults<TransitionFunction>>
+      executeAnalysis() {
+    assertSingleInstance(TransitionFunction::one);
+    assertSingleInstance(TransitionFunction::zero);
+    assertSingleInstance(Transition::identity);
+    assertSingleInstance(InferenceWeight::one);
+    assertSingleInstance(InferenceWeight::zero);
+
+    createAnalysis().run();
+    Map<WeightedForwardQuery<TransitionFunction>, Set<String>> sequential =
+        rows(resultHandler.getResults());
+
+    resultHandler = new StoreIDEALResultHandler<>();
+    createAnalysis().run(4);
+    Map<WeightedForwardQuery<TransitionFunction>, Set<String>> parallel =
+        rows(resultHandler.getResults());
+
+    Assert.assertTrue(sequential.size() > 1);
+    Assert.assertEquals(sequential, parallel);
+    return resultHandler.getResults();
+  }
+
+  /** Requests the singleton from several threads at once, all of them must get the same one. */
+  private static void assertSingleInstance(Supplier<?> singleton) {
+    int threads = 8;
+    CyclicBarrier start = new CyclicBarrier(threads);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    Set<Object> instances = Sets.newIdentityHashSet();
+    try {
+      List<Future<?>> futures = Lists.newArrayList();
+      for (int i = 0; i < threads; i++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  start.await(10, TimeUnit.SECONDS);
+                  return singleton.get();
+                }));
+      }
+      for (Future<?> f : futures) {
+        instances.add(f.get());
+      }
+    } catch (Exception e) {
+      throw new AssertionError(e);
+    } finally {
+      executor.shutdownNow();
+    }
+    Assert.assertEquals(1, instances.size());
+  }
+
+  private static Map<WeightedForwardQuery<TransitionFunction>, Set<String>> rows(
+      Map<WeightedForwardQuery<TransitionFunction>, ForwardBoomerangResults<TransitionFunction>>
+          results) {
+    Map<WeightedForwardQuery<TransitionFunction>, Set<String>> res = Maps.newHashMap();
+    for (Map.Entry<
+            WeightedForwardQuery<TransitionFunction>, ForwardBoomerangResults<TransitionFunction>>
+        e : results.entrySet()) {
+      Set<String> rows = Sets.newHashSet();
+      e.getValue()
+          .visitStatementValWeights((edge, val, w) -> rows.add(edge + " | " + val + " | " + w));
+      res.put(e.getKey(), rows);
+    }
+    return res;
+  }
+
+  @Test
+  public void severalFiles() {
+    File a = new File();
+    File b = new File();
+    File c = a;
+    a.open();
+    b.open();
+    if (staticallyUnknown()) {
+      c.close();
+    }
+    close(b);
+    mayBeInErrorState(a);
+    mustBeInAcceptingState(b);
+  }
+
+  @Test
+  public void filesInFields() {
+    ObjectWithField first = new ObjectWithField();
+    ObjectWithField second = new ObjectWithField();
+    first.field = new File();
+    second.field = new File();
+    first.field.open();
+    second.field.open();
+    close(first.field);
+    mustBeInAcceptingState(first.field);
+    mustBeInErrorState(second.field);
+  }
+
+  private static void close(File file) {
+    file.close();
+  }
+
+  @Override
+  protected TypeStateMachineWeightFunctions getStateMachine() {
+    return new FileMustBeClosedStateMachine();
+  }
+}
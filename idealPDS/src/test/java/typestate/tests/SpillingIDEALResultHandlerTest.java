@@ -0,0 +1,166 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package typestate.tests;
+
+import boomerang.WeightedForwardQuery;
+import boomerang.results.ForwardBoomerangResults;
+import boomerang.scene.ControlFlowGraph;
+import boomerang.scene.ControlFlowGraph.Edge;
+import boomerang.scene.Statement;
+import com.google.common.base.Strings;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import ideal.IDEALResultHandler;
+import ideal.SpillingIDEALResultHandler;
+import ideal.SpillingIDEALResultHandler.SeedResult;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import test.IDEALTestingFramework;
+import typestate.TransitionFunction;
+import typestate.finiteautomata.TypeStateMachineWeightFunctions;
+import typestate.impl.statemachines.FileMustBeClosedStateMachine;
+
+/**
+ * Reports the results of each test to a {@link SpillingIDEALResultHandler} next to the in-memory
+ * handler and checks that the spilled records match the results, also after reopening the file.
+ */
+public class SpillingIDEALResultHandlerTest extends IDEALTestingFramework {
+  private File file;
+  private SpillingIDEALResultHandler<TransitionFunction> spilling;
+
+  @Override
+  protected IDEALResultHandler<TransitionFunction> getResultHandler() {
+    return new IDEALResultHandler<TransitionFunction>() {
+      @Override
+      public void report(
+          WeightedForwardQuery<TransitionFunction> seed,
+          ForwardBoomerangResults<TransitionFunction> res) {
+        resultHandler.report(seed, res);
+        spilling.report(seed, res);
+      }
+    };
+  }
+
+  @Override
+  protected Map<
+          WeightedForwardQuery<TransitionFunction>, ForwardBoomerangResults<TransitionFunction>>
+      executeAnalysis() {
+    try {
+      file = Files.createTempFile("ideal-results", ".bin").toFile();
+      spilling = new SpillingIDEALResultHandler<>(file);
+      Map<WeightedForwardQuery<TransitionFunction>, ForwardBoomerangResults<TransitionFunction>>
+          results = super.executeAnalysis();
+      Assert.assertFalse(results.isEmpty());
+      assertStored(results);
+      checkLongAndAmbiguousSeeds(Iterables.getFirst(results.keySet(), null));
+      spilling.close();
+
+      spilling = new SpillingIDEALResultHandler<>(file);
+      Assert.assertEquals(results.size() + 2, spilling.size());
+      assertStored(results);
+      spilling.close();
+      return results;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      file.delete();
+    }
+  }
+
+  private void assertStored(
+      Map<WeightedForwardQuery<TransitionFunction>, ForwardBoomerangResults<TransitionFunction>>
+          results)
+      throws IOException {
+    for (Map.Entry<
+            WeightedForwardQuery<TransitionFunction>, ForwardBoomerangResults<TransitionFunction>>
+        e : results.entrySet()) {
+      List<List<String>> rows = Lists.newArrayList();
+      e.getValue()
+          .visitStatementValWeights(
+              (edge, val, w) ->
+                  rows.add(Arrays.asList(edge.toString(), val.toString(), w.toString())));
+      List<List<String>> destructingRows = Lists.newArrayList();
+      e.getValue()
+          .visitObjectDestructingStatements(
+              (edge, val, w) ->
+                  destructingRows.add(
+                      Arrays.asList(edge.toString(), val.toString(), w.toString())));
+      SeedResult stored = spilling.lookup(e.getKey());
+      Assert.assertNotNull(stored);
+      Assert.assertEquals(e.getValue().isTimedout(), stored.isTimedout());
+      Assert.assertEquals(rows, stored.getStatementValWeights());
+      Assert.assertEquals(destructingRows, stored.getObjectDestructingStatements());
+    }
+  }
+
+  /** Seeds that print the same, or whose representation exceeds 64KB, are stored separately. */
+  private void checkLongAndAmbiguousSeeds(WeightedForwardQuery<TransitionFunction> seed)
+      throws IOException {
+    String longName = Strings.repeat("x", 1 << 17);
+    WeightedForwardQuery<TransitionFunction> first = renamed(seed, longName);
+    ControlFlowGraph cfg = seed.cfgEdge().getMethod().getControlFlowGraph();
+    Statement start = cfg.getStartPoints().iterator().next();
+    Edge otherEdge = new Edge(start, cfg.getSuccsOf(start).iterator().next());
+    Assert.assertNotEquals(seed.cfgEdge(), otherEdge);
+    WeightedForwardQuery<TransitionFunction> second =
+        renamed(new WeightedForwardQuery<>(otherEdge, seed.var(), seed.weight()), longName);
+    spilling.report(first, null);
+    spilling.report(second, null);
+    Assert.assertTrue(spilling.lookup(first).getSeed().startsWith(longName));
+    Assert.assertTrue(spilling.lookup(first).isTimedout());
+    Assert.assertNotEquals(spilling.lookup(first).getSeed(), spilling.lookup(second).getSeed());
+  }
+
+  private static WeightedForwardQuery<TransitionFunction> renamed(
+      WeightedForwardQuery<TransitionFunction> seed, String name) {
+    return new WeightedForwardQuery<TransitionFunction>(seed.cfgEdge(), seed.var(), seed.weight()) {
+      @Override
+      public String toString() {
+        return name;
+      }
+    };
+  }
+
+  @Test
+  public void closed() {
+    typestate.test.helper.File file = new typestate.test.helper.File();
+    file.open();
+    file.close();
+    mustBeInAcceptingState(file);
+  }
+
+  @Test
+  public void twoFiles() {
+    typestate.test.helper.File first = new typestate.test.helper.File();
+    typestate.test.helper.File second = new typestate.test.helper.File();
+    first.open();
+    second.open();
+    if (staticallyUnknown()) {
+      second.close();
+    }
+    first.close();
+    mustBeInAcceptingState(first);
+    mayBeInErrorState(second);
+  }
+
+  @Override
+  protected TypeStateMachineWeightFunctions getStateMachine() {
+    return new FileMustBeClosedStateMachine();
+  }
+}
@@ -0,0 +1,235 @@
+/**
+ * ***************************************************************************** Copyright (c) 2018
+ * Fraunhofer IEM, Paderborn, Germany. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * <p>SPDX-License-Identifier: EPL-2.0
+ *
+ * <p>Contributors: Johannes Spaeth - initial API and implementation
+ * *****************************************************************************
+ */
+package typestate.tests;
+
+import boomerang.scene.ControlFlowGraph.Edge;
+import boomerang.scene.Method;
+import boomerang.scene.Statement;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+import test.IDEALTestingFramework;
+import typestate.TransitionFunction;
+import typestate.finiteautomata.ITransition;
+import typestate.finiteautomata.State;
+import typestate.finiteautomata.Transition;
+import typestate.finiteautomata.TypeStateMachineWeightFunctions;
+import typestate.impl.statemachines.FileMustBeClosedStateMachine;
+import typestate.test.helper.File;
+
+/**
+ * Compares extend and combine of {@link TransitionFunction} against a model that keeps the
+ * transitions and the state-change statements in sets, as {@link TransitionFunction} did before it
+ * stored its relation as a bit matrix. The states span more than one word of a matrix row.
+ */
+public class TransitionFunctionTest extends IDEALTestingFramework {
+
+  @Override
+  protected TypeStateMachineWeightFunctions getStateMachine() {
+    return new FileMustBeClosedStateMachine();
+  }
+
+  @Override
+  protected void analyze(Method m) {
+    List<Edge> edges = Lists.newArrayList();
+    for (Statement s : m.getStatements()) {
+      for (Statement succ : m.getControlFlowGraph().getSuccsOf(s)) {
+        edges.add(new Edge(s, succ));
+      }
+    }
+    Assert.assertTrue(edges.size() > 3);
+
+    // Interns all states in order, such that the first and the last states are in different words.
+    List<State> states = Lists.newArrayList();
+    Set<ITransition> loops = Sets.newHashSet();
+    for (int i = 0; i < 2 * Long.SIZE; i++) {
+      State s = new TestState(i);
+      states.add(s);
+      loops.add(new Transition(s, s));
+    }
+    new TransitionFunction(loops, Sets.newHashSet());
+    List<State> used = Lists.newArrayList(states.subList(0, 4));
+    used.addAll(states.subList(states.size() - 4, states.size()));
+
+    Random random = new Random(7);
+    List<Model> models = Lists.newArrayList(Model.ONE, Model.ZERO);
+    for (int i = 0; i < 200; i++) {
+      Set<ITransition> transitions = Sets.newHashSet();
+      for (int j = random.nextInt(4); j > 0; j--) {
+        transitions.add(
+            new Transition(
+                used.get(random.nextInt(used.size())), used.get(random.nextInt(used.size()))));
+      }
+      if (random.nextInt(4) == 0) {
+        transitions.add(Transition.identity());
+      }
+      Set<Edge> statements = Sets.newHashSet();
+      for (int j = random.nextInt(3); j > 0; j--) {
+        statements.add(edges.get(random.nextInt(edges.size())));
+      }
+      models.add(new Model(transitions, statements));
+    }
+    for (int i = 0; i < 5000; i++) {
+      Model a = models.get(random.nextInt(models.size()));
+      Model b = models.get(random.nextInt(models.size()));
+      Model res = random.nextBoolean() ? a.extendWith(b) : a.combineWith(b);
+      if (res.rep == null) {
+        Assert.assertEquals(res.transitions, Sets.newHashSet(res.weight.values()));
+        Assert.assertEquals(res.statements, res.weight.getLastStateChangeStatements());
+      }
+      models.add(res);
+    }
+    // Functions with the same transitions are equal, independent of how they were built.
+    for (int i = 0; i < 5000; i++) {
+      Model a = models.get(random.nextInt(models.size()));
+      Model b = models.get(random.nextInt(models.size()));
+      boolean same = a.sameFunction(b);
+      Assert.assertEquals(same, a.weight.equals(b.weight));
+      if (same) {
+        Assert.assertEquals(a.weight.hashCode(), b.weight.hashCode());
+      }
+    }
+  }
+
+  /** A function as a set of transitions and a set of state-change statements. */
+  private static class Model {
+    private static final Model ONE = new Model(TransitionFunction.one(), "ONE");
+    private static final Model ZERO = new Model(TransitionFunction.zero(), "ZERO");
+
+    private final TransitionFunction weight;
+    private final String rep;
+    private final Set<ITransition> transitions;
+    private final Set<Edge> statements;
+
+    private Model(TransitionFunction weight, String rep) {
+      this.weight = weight;
+      this.rep = rep;
+      this.transitions = Sets.newHashSet();
+      this.statements = Sets.newHashSet();
+    }
+
+    private Model(Set<ITransition> transitions, Set<Edge> statements) {
+      this(new TransitionFunction(transitions, statements), transitions, statements);
+    }
+
+    private Model(TransitionFunction weight, Set<ITransition> transitions, Set<Edge> statements) {
+      this.weight = weight;
+      this.rep = null;
+      this.transitions = transitions;
+      this.statements = statements;
+    }
+
+    private boolean sameFunction(Model other) {
+      if (rep != null || other.rep != null) {
+        return rep == other.rep;
+      }
+      return transitions.equals(other.transitions);
+    }
+
+    private Model extendWith(Model other) {
+      if (other == ONE) return this;
+      if (this == ONE) return other;
+      if (this == ZERO || other == ZERO) return ZERO;
+      Set<ITransition> res = Sets.newHashSet();
+      Set<Edge> resStatements = Sets.newHashSet();
+      for (ITransition first : transitions) {
+        for (ITransition second : other.transitions) {
+          if (second.equals(Transition.identity())) {
+            res.add(first);
+            resStatements.addAll(statements);
+          } else if (first.equals(Transition.identity())) {
+            res.add(second);
+            resStatements.addAll(other.statements);
+          } else if (first.to().equals(second.from())) {
+            res.add(new Transition(first.from(), second.to()));
+            resStatements.addAll(other.statements);
+          }
+        }
+      }
+      return new Model((TransitionFunction) weight.extendWith(other.weight), res, resStatements);
+    }
+
+    private Model combineWith(Model other) {
+      if (this == ZERO) return other;
+      if (other == ZERO) return this;
+      if (this == ONE && other == ONE) return ONE;
+      TransitionFunction combined = (TransitionFunction) weight.combineWith(other.weight);
+      if (this == ONE || other == ONE) {
+        Model nonOne = this == ONE ? other : this;
+        Set<ITransition> res = Sets.newHashSet(nonOne.transitions);
+        for (ITransition t : nonOne.transitions) {
+          // The identity has no source state and hence no transition to it.
+          if (!t.equals(Transition.identity())) {
+            res.add(new Transition(t.from(), t.from()));
+          }
+        }
+        return new Model(combined, res, Sets.newHashSet(nonOne.statements));
+      }
+      return new Model(
+          combined,
+          Sets.union(transitions, other.transitions).immutableCopy(),
+          Sets.union(statements, other.statements).immutableCopy());
+    }
+  }
+
+  private static class TestState implements State {
+    private final int id;
+
+    private TestState(int id) {
+      this.id = id;
+    }
+
+    @Override
+    public boolean isErrorState() {
+      return false;
+    }
+
+    @Override
+    public boolean isInitialState() {
+      return id == 0;
+    }
+
+    @Override
+    public boolean isAccepting() {
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return id;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof TestState && ((TestState) obj).id == id;
+    }
+
+    @Override
+    public String toString() {
+      return "S" + id;
+    }
+  }
+
+  @Test
+  public void randomSequences() {
+    File file = new File();
+    file.open();
+    if (staticallyUnknown()) {
+      file.close();
+    }
+    file.close();
+  }
+}